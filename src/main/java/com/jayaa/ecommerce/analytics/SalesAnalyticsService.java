@@ -0,0 +1,139 @@
+package com.jayaa.ecommerce.analytics;
+
+import com.jayaa.ecommerce.dto.CategorySalesResponse;
+import com.jayaa.ecommerce.dto.ProductSalesResponse;
+import com.jayaa.ecommerce.dto.SalesDayResponse;
+import com.jayaa.ecommerce.exception.BadRequestException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin sales reports. Everything is read from the daily rollups maintained by SalesRollup
+ * (a few rows per day and product), never from orders/order_items, so a dashboard refresh
+ * costs the same on a busy day as on a quiet one. Categories are derived from the product
+ * rows through the products' current categories.
+ */
+@Service
+public class SalesAnalyticsService {
+
+    private static final int DEFAULT_RANGE_DAYS = 30;
+    private static final int MAX_RANGE_DAYS = 366;
+    private static final int MAX_LIMIT = 100;
+
+    private static final String SELECT_DAYS =
+            "SELECT sales_date, SUM(order_count) AS order_count, SUM(cancelled_count) AS cancelled_count, " +
+            "SUM(units_sold) AS units_sold, SUM(revenue) AS revenue FROM sales_daily " +
+            "WHERE sales_date BETWEEN ? AND ? GROUP BY sales_date";
+    private static final String SELECT_PRODUCTS =
+            "SELECT p.id, p.name, p.sku, s.order_count, s.units_sold, s.revenue FROM (" +
+            "SELECT product_id, SUM(order_count) AS order_count, SUM(units_sold) AS units_sold, " +
+            "SUM(revenue) AS revenue FROM product_sales_daily WHERE sales_date BETWEEN ? AND ? GROUP BY product_id" +
+            ") s JOIN products p ON p.id = s.product_id ORDER BY %s DESC, p.id LIMIT ?";
+    private static final String SELECT_CATEGORIES =
+            "SELECT c.id, c.name, SUM(s.order_count) AS order_count, SUM(s.units_sold) AS units_sold, " +
+            "SUM(s.revenue) AS revenue FROM product_sales_daily s " +
+            "JOIN product_categories pc ON pc.product_id = s.product_id " +
+            "JOIN categories c ON c.id = pc.category_id " +
+            "WHERE s.sales_date BETWEEN ? AND ? GROUP BY c.id, c.name ORDER BY revenue DESC, c.id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SalesRollup salesRollup;
+
+    // ⭐ One row per day of the range, zeros included, oldest first
+    @Transactional(readOnly = true)
+    public List<SalesDayResponse> getDailySales(LocalDate from, LocalDate to) {
+        LocalDate end = resolveTo(to);
+        LocalDate start = resolveFrom(from, end);
+
+        Map<LocalDate, SalesDayResponse> byDate = new HashMap<>();
+        jdbcTemplate.query(SELECT_DAYS, rs -> {
+            LocalDate date = rs.getDate("sales_date").toLocalDate();
+            byDate.put(date, new SalesDayResponse(date, rs.getLong("order_count"), rs.getLong("cancelled_count"),
+                    rs.getLong("units_sold"), rs.getBigDecimal("revenue")));
+        }, Date.valueOf(start), Date.valueOf(end));
+
+        List<SalesDayResponse> days = new ArrayList<>();
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+            SalesDayResponse day = byDate.get(date);
+            days.add(day != null ? day : new SalesDayResponse(date, 0, 0, 0, BigDecimal.ZERO));
+        }
+        return days;
+    }
+
+    // ⭐ Best sellers of the range by revenue (or units)
+    @Transactional(readOnly = true)
+    public List<ProductSalesResponse> getProductSales(LocalDate from, LocalDate to, String sortBy, int limit) {
+        LocalDate end = resolveTo(to);
+        LocalDate start = resolveFrom(from, end);
+        String orderBy = switch (sortBy.toLowerCase()) {
+            case "revenue" -> "s.revenue";
+            case "units" -> "s.units_sold";
+            case "orders" -> "s.order_count";
+            default -> throw new BadRequestException("sortBy must be revenue, units or orders");
+        };
+
+        return jdbcTemplate.query(String.format(SELECT_PRODUCTS, orderBy), (rs, rowNum) -> new ProductSalesResponse(
+                rs.getLong("id"),
+                rs.getString("name"),
+                rs.getString("sku"),
+                rs.getLong("order_count"),
+                rs.getLong("units_sold"),
+                rs.getBigDecimal("revenue")
+        ), Date.valueOf(start), Date.valueOf(end), Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+
+    @Transactional(readOnly = true)
+    public List<CategorySalesResponse> getCategorySales(LocalDate from, LocalDate to) {
+        LocalDate end = resolveTo(to);
+        LocalDate start = resolveFrom(from, end);
+
+        return jdbcTemplate.query(SELECT_CATEGORIES, (rs, rowNum) -> new CategorySalesResponse(
+                rs.getLong("id"),
+                rs.getString("name"),
+                rs.getLong("order_count"),
+                rs.getLong("units_sold"),
+                rs.getBigDecimal("revenue")
+        ), Date.valueOf(start), Date.valueOf(end));
+    }
+
+    // ⭐ Backfill/repair: recompute the range from the orders, then report it
+    public List<SalesDayResponse> rebuild(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            throw new BadRequestException("from and to are required");
+        }
+        LocalDate start = resolveFrom(from, to);
+        salesRollup.rebuild(start, to);
+        return getDailySales(start, to);
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private static LocalDate resolveTo(LocalDate to) {
+        return to != null ? to : LocalDate.now();
+    }
+
+    // Defaults to the last 30 days up to `to`; at most a year per request
+    private static LocalDate resolveFrom(LocalDate from, LocalDate to) {
+        LocalDate start = from != null ? from : to.minusDays(DEFAULT_RANGE_DAYS - 1);
+        if (start.isAfter(to)) {
+            throw new BadRequestException("from must not be after to");
+        }
+        if (ChronoUnit.DAYS.between(start, to) >= MAX_RANGE_DAYS) {
+            throw new BadRequestException("Date range is limited to " + MAX_RANGE_DAYS + " days");
+        }
+        return start;
+    }
+}
@@ -0,0 +1,204 @@
+package com.jayaa.ecommerce.analytics;
+
+import com.jayaa.ecommerce.model.Order;
+import com.jayaa.ecommerce.model.OrderItem;
+import com.jayaa.ecommerce.model.OrderStatus;
+import com.jayaa.ecommerce.util.ScheduledLocks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Write side of the daily sales rollups (sales_daily, product_sales_daily). Order changes add
+ * their deltas inside the caller's transaction, so the rollups commit or roll back with the
+ * order, like the rating summary. Days are bucketed by order_date: a cancellation moves the
+ * order out of its placement day's totals, whenever it happens.
+ *
+ * Each call writes to one random slot of app.sales-rollup.slots per row, so concurrent
+ * checkouts don't all queue on today's row lock. Rows are written in (date, product) order.
+ *
+ * rebuild() recomputes whole days from orders/order_items: the backfill for data that predates
+ * the rollups and the repair path if they ever drift. It is meant for closed days; rebuilding
+ * today while checkouts commit may have to retry on a lock conflict. The nightly rebuild runs
+ * on one node: the scheduler fires everywhere, but only the node that claims the job's lease
+ * in scheduled_locks does the work.
+ */
+@Component
+public class SalesRollup {
+
+    private static final String UPSERT_DAY =
+            "INSERT INTO sales_daily (sales_date, slot, order_count, cancelled_count, units_sold, revenue, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+            "order_count = order_count + ?, cancelled_count = cancelled_count + ?, units_sold = units_sold + ?, " +
+            "revenue = revenue + ?, updated_at = ?";
+    private static final String UPSERT_PRODUCT_DAY =
+            "INSERT INTO product_sales_daily (sales_date, product_id, slot, order_count, units_sold, revenue, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+            "order_count = order_count + ?, units_sold = units_sold + ?, revenue = revenue + ?, updated_at = ?";
+
+    private static final String DELETE_DAY = "DELETE FROM sales_daily WHERE sales_date = ?";
+    private static final String DELETE_PRODUCT_DAY = "DELETE FROM product_sales_daily WHERE sales_date = ?";
+    private static final String REBUILD_DAY =
+            "INSERT INTO sales_daily (sales_date, slot, order_count, cancelled_count, units_sold, revenue, updated_at) " +
+            "SELECT CAST(? AS DATE), 0, " +
+            "SUM(CASE WHEN o.status <> 'CANCELLED' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN o.status = 'CANCELLED' THEN 1 ELSE 0 END), " +
+            "COALESCE(SUM(CASE WHEN o.status <> 'CANCELLED' " +
+            "THEN (SELECT SUM(oi.quantity) FROM order_items oi WHERE oi.order_id = o.id) END), 0), " +
+            "COALESCE(SUM(CASE WHEN o.status <> 'CANCELLED' THEN o.total_amount END), 0), ? " +
+            "FROM orders o WHERE o.order_date >= ? AND o.order_date < ? HAVING COUNT(*) > 0";
+    private static final String REBUILD_PRODUCT_DAY =
+            "INSERT INTO product_sales_daily (sales_date, product_id, slot, order_count, units_sold, revenue, updated_at) " +
+            "SELECT CAST(? AS DATE), oi.product_id, 0, COUNT(DISTINCT o.id), SUM(oi.quantity), SUM(oi.subtotal), ? " +
+            "FROM orders o JOIN order_items oi ON oi.order_id = o.id " +
+            "WHERE o.order_date >= ? AND o.order_date < ? AND o.status <> 'CANCELLED' " +
+            "GROUP BY oi.product_id";
+
+    private static final String REBUILD_LOCK = "sales-rollup:rebuild";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ScheduledLocks scheduledLocks;
+
+    @Value("${app.sales-rollup.slots:8}")
+    private int slots;
+
+    @Value("${app.sales-rollup.rebuild-lease-ms:3600000}")
+    private long rebuildLeaseMs;
+
+    private final TransactionTemplate transaction;
+
+    @Autowired
+    public SalesRollup(PlatformTransactionManager transactionManager) {
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    // ========== INCREMENTAL UPDATES ==========
+
+    // One JDBC batch per table for all orders (group commit places a whole micro-batch at once)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordPlaced(Collection<Order> orders) {
+        apply(orders, 1, 0);
+    }
+
+    // Only a move into or out of CANCELLED changes the rollups
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordStatusChange(Order order, OrderStatus oldStatus) {
+        boolean wasCancelled = oldStatus == OrderStatus.CANCELLED;
+        boolean isCancelled = order.getStatus() == OrderStatus.CANCELLED;
+        if (wasCancelled != isCancelled) {
+            apply(List.of(order), isCancelled ? -1 : 1, isCancelled ? 1 : -1);
+        }
+    }
+
+    // sign +1 adds the orders to the sold totals, -1 takes them out; cancelled is the cancelled_count delta
+    private void apply(Collection<Order> orders, int sign, int cancelled) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        SortedMap<LocalDate, Totals> days = new TreeMap<>();
+        SortedMap<ProductDay, Totals> productDays = new TreeMap<>();
+        for (Order order : orders) {
+            LocalDate date = order.getOrderDate().toLocalDate();
+            Totals day = days.computeIfAbsent(date, d -> new Totals());
+            day.orders += sign;
+            day.cancelled += cancelled;
+            day.revenue = day.revenue.add(order.getTotalAmount().multiply(BigDecimal.valueOf(sign)));
+
+            Set<Long> productsInOrder = new HashSet<>();
+            for (OrderItem item : order.getItems()) {
+                Long productId = item.getProduct().getId();
+                Totals product = productDays.computeIfAbsent(new ProductDay(date, productId), k -> new Totals());
+                if (productsInOrder.add(productId)) {
+                    product.orders += sign;
+                }
+                product.units += (long) sign * item.getQuantity();
+                product.revenue = product.revenue.add(item.getSubtotal().multiply(BigDecimal.valueOf(sign)));
+                day.units += (long) sign * item.getQuantity();
+            }
+        }
+
+        int slot = ThreadLocalRandom.current().nextInt(slots);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> dayArgs = new ArrayList<>(days.size());
+        days.forEach((date, t) -> dayArgs.add(new Object[]{Date.valueOf(date), slot,
+                t.orders, t.cancelled, t.units, t.revenue, now,
+                t.orders, t.cancelled, t.units, t.revenue, now}));
+        List<Object[]> productArgs = new ArrayList<>(productDays.size());
+        productDays.forEach((key, t) -> productArgs.add(new Object[]{Date.valueOf(key.date()), key.productId(), slot,
+                t.orders, t.units, t.revenue, now,
+                t.orders, t.units, t.revenue, now}));
+        jdbcTemplate.batchUpdate(UPSERT_DAY, dayArgs);
+        jdbcTemplate.batchUpdate(UPSERT_PRODUCT_DAY, productArgs);
+    }
+
+    // ========== REBUILD ==========
+
+    /**
+     * Recomputes every day in [from, to] from the orders, one transaction per day.
+     * Returns the number of days rebuilt.
+     */
+    public int rebuild(LocalDate from, LocalDate to) {
+        int rebuilt = 0;
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            LocalDate day = date;
+            transaction.executeWithoutResult(status -> rebuildDay(day));
+            rebuilt++;
+        }
+        return rebuilt;
+    }
+
+    private void rebuildDay(LocalDate date) {
+        Date salesDate = Date.valueOf(date);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp start = Timestamp.valueOf(date.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(date.plusDays(1).atStartOfDay());
+        jdbcTemplate.update(DELETE_DAY, salesDate);
+        jdbcTemplate.update(DELETE_PRODUCT_DAY, salesDate);
+        jdbcTemplate.update(REBUILD_DAY, salesDate, now, start, end);
+        jdbcTemplate.update(REBUILD_PRODUCT_DAY, salesDate, now, start, end);
+    }
+
+    // Nightly repair of the day that just closed (late cancellations still update it incrementally)
+    @Scheduled(cron = "${app.sales-rollup.rebuild-cron:0 30 3 * * *}")
+    public void rebuildYesterday() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        try {
+            if (scheduledLocks.tryAcquire(REBUILD_LOCK, rebuildLeaseMs)) {
+                rebuild(yesterday, yesterday);
+            }
+        } catch (Exception e) {
+            System.err.println("Warning: Could not rebuild sales rollups for " + yesterday + ": " + e.getMessage());
+        }
+    }
+
+    private record ProductDay(LocalDate date, Long productId) implements Comparable<ProductDay> {
+        @Override
+        public int compareTo(ProductDay other) {
+            int byDate = date.compareTo(other.date);
+            return byDate != 0 ? byDate : productId.compareTo(other.productId);
+        }
+    }
+
+    private static final class Totals {
+        private long orders;
+        private long cancelled;
+        private long units;
+        private BigDecimal revenue = BigDecimal.ZERO;
+    }
+}
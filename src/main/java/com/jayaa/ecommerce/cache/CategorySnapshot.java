@@ -0,0 +1,132 @@
+package com.jayaa.ecommerce.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayaa.ecommerce.event.CategoryChangedEvent;
+import com.jayaa.ecommerce.event.ProductChangedEvent;
+import com.jayaa.ecommerce.service.CategoryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The whole category list (with product counts), pre-serialized to JSON bytes.
+ * Immutable and swapped atomically after every category change commits, so a read is one
+ * volatile read plus a byte copy to the response. Product changes only move the counts:
+ * they mark the snapshot stale and a burst of them (imports, bulk updates, stock writes)
+ * costs one rebuild per app.category-snapshot.publish-ms.
+ */
+@Component
+public class CategorySnapshot {
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private volatile Snapshots current;
+
+    // Set by product changes since the last rebuild
+    private final AtomicBoolean stale = new AtomicBoolean();
+
+    // ========== READ ==========
+
+    public Json get(boolean activeOnly) {
+        Snapshots snapshots = current;
+        if (snapshots == null) {
+            snapshots = rebuild();
+        }
+        return activeOnly ? snapshots.activeOnly() : snapshots.all();
+    }
+
+    // ========== BUILD / SYNC ==========
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        refresh();
+    }
+
+    // Picks up changes committed by other instances
+    @Scheduled(initialDelayString = "${app.category-snapshot.refresh-ms:60000}",
+            fixedDelayString = "${app.category-snapshot.refresh-ms:60000}")
+    public void refresh() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            System.err.println("Warning: Could not build category snapshot: " + e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        rebuild();
+    }
+
+    // Product create/delete/re-categorize/deactivate all move the counts
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        stale.set(true);
+    }
+
+    @Scheduled(initialDelayString = "${app.category-snapshot.publish-ms:1000}",
+            fixedDelayString = "${app.category-snapshot.publish-ms:1000}")
+    public void publishChanges() {
+        if (stale.get()) {
+            refresh();
+        }
+    }
+
+    // Serialized so that a slower, older rebuild can't overwrite a newer one
+    public synchronized Snapshots rebuild() {
+        // Every change committed before this point is in the counts read below
+        stale.set(false);
+        Snapshots previous = current;
+        Snapshots rebuilt = new Snapshots(
+                build(categoryService.getAllCategories(false), previous != null ? previous.all() : null),
+                build(categoryService.getAllCategories(true), previous != null ? previous.activeOnly() : null)
+        );
+        current = rebuilt;
+        return rebuilt;
+    }
+
+    private Json build(Object categories, Json previous) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(categories);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize categories", e);
+        }
+
+        String etag = "\"" + sha256(body) + "\"";
+        // Last-Modified only moves when the content does
+        if (previous != null && previous.etag().equals(etag)) {
+            return previous;
+        }
+        return new Json(body, etag, System.currentTimeMillis());
+    }
+
+    private static String sha256(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record Json(byte[] body, String etag, long lastModified) {
+    }
+
+    public record Snapshots(Json all, Json activeOnly) {
+    }
+}
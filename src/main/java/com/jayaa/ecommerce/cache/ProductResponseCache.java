@@ -0,0 +1,176 @@
+package com.jayaa.ecommerce.cache;
+
+import com.jayaa.ecommerce.dto.CacheStatsResponse;
+import com.jayaa.ecommerce.dto.ProductResponse;
+import com.jayaa.ecommerce.dto.VersionedProduct;
+import com.jayaa.ecommerce.event.CategoryChangedEvent;
+import com.jayaa.ecommerce.event.ProductChangedEvent;
+import com.jayaa.ecommerce.event.ReviewChangedEvent;
+import com.jayaa.ecommerce.event.StockChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded LRU + TTL cache of fully built ProductResponse objects, keyed by id with a slug alias.
+ * Each entry keeps the validators (ETag, Last-Modified) read with its response, so a conditional
+ * GET answered from the cache always describes the body it would send.
+ * Entries are dropped after commit of any product, stock, review or category change.
+ *
+ * A reader that started loading before an invalidation must not put its (possibly stale)
+ * result back: callers take a stamp() before loading and pass it to put().
+ */
+@Component
+public class ProductResponseCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<Long, Entry> byId;
+    private final Map<String, Long> idBySlug = new HashMap<>();
+
+    private long invalidationStamp;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    public ProductResponseCache(
+            @Value("${app.product-cache.max-size:10000}") int maxSize,
+            @Value("${app.product-cache.ttl-ms:300000}") long ttlMs
+    ) {
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.byId = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    // ========== READ ==========
+
+    public synchronized VersionedProduct get(Long id) {
+        Entry entry = byId.get(id);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.expiresAt - System.nanoTime() < 0) {
+            remove(id);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.product;
+    }
+
+    public synchronized VersionedProduct getBySlug(String slug) {
+        Long id = idBySlug.get(slug);
+        if (id == null) {
+            misses++;
+            return null;
+        }
+        return get(id);
+    }
+
+    public synchronized long stamp() {
+        return invalidationStamp;
+    }
+
+    // Ignored if anything was invalidated since the caller took its stamp
+    public synchronized void put(VersionedProduct product, long stamp) {
+        if (stamp != invalidationStamp || maxSize <= 0) {
+            return;
+        }
+        ProductResponse response = product.getResponse();
+        remove(response.getId());
+        byId.put(response.getId(), new Entry(product, System.nanoTime() + ttlNanos));
+        if (response.getSlug() != null) {
+            idBySlug.put(response.getSlug(), response.getId());
+        }
+
+        while (byId.size() > maxSize) {
+            Long eldest = byId.keySet().iterator().next();
+            remove(eldest);
+            evictions++;
+        }
+    }
+
+    // ========== INVALIDATION ==========
+
+    public synchronized void invalidate(Collection<Long> productIds) {
+        invalidationStamp++;
+        for (Long productId : productIds) {
+            if (remove(productId)) {
+                invalidations++;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        invalidationStamp++;
+        invalidations += byId.size();
+        byId.clear();
+        idBySlug.clear();
+    }
+
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidate(event.getProductIds());
+    }
+
+    @TransactionalEventListener
+    public void onStockChanged(StockChangedEvent event) {
+        invalidate(event.getProductIds());
+    }
+
+    @TransactionalEventListener
+    public void onReviewChanged(ReviewChangedEvent event) {
+        invalidate(List.of(event.getProductId()));
+    }
+
+    // Category names are embedded in every response
+    @TransactionalEventListener
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        clear();
+    }
+
+    // ========== STATS ==========
+
+    public synchronized CacheStatsResponse stats() {
+        long lookups = hits + misses;
+        return new CacheStatsResponse(
+                "products",
+                byId.size(),
+                maxSize,
+                TimeUnit.NANOSECONDS.toMillis(ttlNanos),
+                hits,
+                misses,
+                lookups == 0 ? 0.0 : (double) hits / lookups,
+                evictions,
+                expirations,
+                invalidations
+        );
+    }
+
+    private boolean remove(Long id) {
+        Entry removed = byId.remove(id);
+        if (removed == null) {
+            return false;
+        }
+        String slug = removed.product.getResponse().getSlug();
+        if (slug != null && id.equals(idBySlug.get(slug))) {
+            idBySlug.remove(slug);
+        }
+        return true;
+    }
+
+    private record Entry(VersionedProduct product, long expiresAt) {
+    }
+}
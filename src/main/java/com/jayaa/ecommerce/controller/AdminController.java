@@ -0,0 +1,76 @@
+package com.jayaa.ecommerce.controller;
+
+import com.jayaa.ecommerce.analytics.SalesAnalyticsService;
+import com.jayaa.ecommerce.cache.ProductResponseCache;
+import com.jayaa.ecommerce.dto.CacheStatsResponse;
+import com.jayaa.ecommerce.dto.CategorySalesResponse;
+import com.jayaa.ecommerce.dto.ProductSalesResponse;
+import com.jayaa.ecommerce.dto.SalesDayResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin")
+@PreAuthorize("hasAuthority('ADMIN')")
+public class AdminController {
+
+    @Autowired
+    private ProductResponseCache productResponseCache;
+
+    @Autowired
+    private SalesAnalyticsService salesAnalyticsService;
+
+    // ⭐ Hit/miss/eviction counters for sizing the product cache
+    @GetMapping("/cache/products")
+    public ResponseEntity<CacheStatsResponse> getProductCacheStats() {
+        return ResponseEntity.ok(productResponseCache.stats());
+    }
+
+    @DeleteMapping("/cache/products")
+    public ResponseEntity<Void> clearProductCache() {
+        productResponseCache.clear();
+        return ResponseEntity.noContent().build();
+    }
+
+    // ========== SALES ANALYTICS (from the daily rollups; range defaults to the last 30 days) ==========
+
+    @GetMapping("/sales/daily")
+    public ResponseEntity<List<SalesDayResponse>> getDailySales(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        return ResponseEntity.ok(salesAnalyticsService.getDailySales(from, to));
+    }
+
+    @GetMapping("/sales/products")
+    public ResponseEntity<List<ProductSalesResponse>> getProductSales(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "revenue") String sortBy,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        return ResponseEntity.ok(salesAnalyticsService.getProductSales(from, to, sortBy, limit));
+    }
+
+    @GetMapping("/sales/categories")
+    public ResponseEntity<List<CategorySalesResponse>> getCategorySales(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        return ResponseEntity.ok(salesAnalyticsService.getCategorySales(from, to));
+    }
+
+    // ⭐ Backfill or repair the rollups of a date range from the orders
+    @PostMapping("/sales/rebuild")
+    public ResponseEntity<List<SalesDayResponse>> rebuildSales(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        return ResponseEntity.ok(salesAnalyticsService.rebuild(from, to));
+    }
+}
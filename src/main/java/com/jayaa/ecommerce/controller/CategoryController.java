@@ -1,15 +1,18 @@
 package com.jayaa.ecommerce.controller;
 
+import com.jayaa.ecommerce.cache.CategorySnapshot;
 import com.jayaa.ecommerce.dto.CategoryRequest;
 import com.jayaa.ecommerce.dto.CategoryResponse;
+import com.jayaa.ecommerce.dto.ResourceVersion;
 import com.jayaa.ecommerce.service.CategoryService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/categories")
@@ -19,14 +22,41 @@ public class CategoryController {
     @Autowired
     private CategoryService categoryService;
 
+    @Autowired
+    private CategorySnapshot categorySnapshot;
+
+    // ⭐ activeOnly=true counts only active products
+    // ⭐ Served from a pre-serialized in-memory snapshot; 304 when the client's ETag still matches
     @GetMapping
-    public ResponseEntity<List<CategoryResponse>> getAllCategories() {
-        return ResponseEntity.ok(categoryService.getAllCategories());
+    public ResponseEntity<byte[]> getAllCategories(
+            @RequestParam(defaultValue = "false") boolean activeOnly,
+            WebRequest request
+    ) {
+        CategorySnapshot.Json snapshot = categorySnapshot.get(activeOnly);
+        if (request.checkNotModified(snapshot.etag(), snapshot.lastModified())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(snapshot.etag())
+                .lastModified(snapshot.lastModified())
+                .body(snapshot.body());
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<CategoryResponse> getCategoryById(@PathVariable Long id) {
-        return ResponseEntity.ok(categoryService.getCategoryById(id));
+    public ResponseEntity<CategoryResponse> getCategoryById(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "false") boolean activeOnly,
+            WebRequest request
+    ) {
+        ResourceVersion version = categoryService.getCategoryVersion(id, activeOnly);
+        if (request.checkNotModified(version.getEtag(), version.getLastModified())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(version.getEtag())
+                .lastModified(version.getLastModified())
+                .body(categoryService.getCategoryById(id, activeOnly));
     }
 
     @PostMapping
@@ -2,11 +2,14 @@ package com.jayaa.ecommerce.controller;
 
 import com.jayaa.ecommerce.dto.*;
 import com.jayaa.ecommerce.model.OrderStatus;
+import com.jayaa.ecommerce.service.CheckoutService;
+import com.jayaa.ecommerce.service.IdempotencyService;
 import com.jayaa.ecommerce.service.OrderService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -21,11 +24,21 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     // ========== CUSTOMER ENDPOINTS ==========
 
+    // ⭐ Retries with the same Idempotency-Key get the first order back instead of a new one
     @PostMapping
-    public ResponseEntity<OrderResponse> placeOrder(@Valid @RequestBody PlaceOrderRequest request) {
-        OrderResponse order = orderService.placeOrder(request);
+    public ResponseEntity<OrderResponse> placeOrder(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Valid @RequestBody PlaceOrderRequest request
+    ) {
+        OrderResponse order = idempotencyService.placeOrder(idempotencyKey, request);
         return ResponseEntity.status(HttpStatus.CREATED).body(order);
     }
 
@@ -36,6 +49,23 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getMyOrders(pageable));
     }
 
+    // ⭐ Infinite scroll: same page shape without the total count query
+    @GetMapping("/slice")
+    public ResponseEntity<Slice<OrderResponse>> getMyOrdersSlice(
+            @PageableDefault(size = 10, sort = "orderDate") Pageable pageable
+    ) {
+        return ResponseEntity.ok(orderService.getMyOrdersSlice(pageable));
+    }
+
+    // ⭐ Keyset pagination: pass back nextCursor from the previous response
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<OrderResponse>> getMyOrdersByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size
+    ) {
+        return ResponseEntity.ok(orderService.getMyOrdersByCursor(cursor, size));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<OrderResponse> getOrderById(@PathVariable Long id) {
         return ResponseEntity.ok(orderService.getOrderById(id));
@@ -57,6 +87,23 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getAllOrders(pageable));
     }
 
+    @GetMapping("/admin/all/slice")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Slice<OrderResponse>> getAllOrdersSlice(
+            @PageableDefault(size = 20, sort = "orderDate") Pageable pageable
+    ) {
+        return ResponseEntity.ok(orderService.getAllOrdersSlice(pageable));
+    }
+
+    @GetMapping("/admin/all/cursor")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<CursorPage<OrderResponse>> getAllOrdersByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        return ResponseEntity.ok(orderService.getAllOrdersByCursor(cursor, size));
+    }
+
     @GetMapping("/admin/status/{status}")
     @PreAuthorize("hasAuthority('ADMIN')")
     public ResponseEntity<Page<OrderResponse>> getOrdersByStatus(
@@ -1,20 +1,43 @@
 package com.jayaa.ecommerce.controller;
 
+import com.jayaa.ecommerce.dto.BulkProductPatchRequest;
+import com.jayaa.ecommerce.dto.BulkProductPatchResponse;
+import com.jayaa.ecommerce.dto.CursorPage;
+import com.jayaa.ecommerce.dto.ProductFilterRequest;
+import com.jayaa.ecommerce.dto.ProductFileFormat;
+import com.jayaa.ecommerce.dto.ProductFilterResponse;
+import com.jayaa.ecommerce.dto.ProductImportResponse;
 import com.jayaa.ecommerce.dto.ProductRequest;
 import com.jayaa.ecommerce.dto.ProductResponse;
+import com.jayaa.ecommerce.dto.ResourceVersion;
+import com.jayaa.ecommerce.dto.SuggestionResponse;
+import com.jayaa.ecommerce.dto.VersionedProduct;
+import com.jayaa.ecommerce.inventory.StockShardService;
+import com.jayaa.ecommerce.search.ProductSuggestIndex;
+import com.jayaa.ecommerce.service.ProductBulkUpdateService;
+import com.jayaa.ecommerce.service.ProductExportService;
+import com.jayaa.ecommerce.service.ProductImportService;
 import com.jayaa.ecommerce.service.ProductService;
 import com.jayaa.ecommerce.util.FileStorageUtil;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/products")
@@ -24,9 +47,24 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ProductExportService productExportService;
+
+    @Autowired
+    private ProductBulkUpdateService productBulkUpdateService;
+
+    @Autowired
+    private StockShardService stockShardService;
+
     @Autowired
     private FileStorageUtil fileStorageUtil;
 
+    @Autowired
+    private ProductSuggestIndex suggestIndex;
+
     // ========== PUBLIC ENDPOINTS ==========
 
     @GetMapping
@@ -36,14 +74,32 @@ public class ProductController {
         return ResponseEntity.ok(productService.getAllActiveProducts(pageable));
     }
 
+    // ⭐ Infinite scroll: same page shape without the total count query
+    @GetMapping("/slice")
+    public ResponseEntity<Slice<ProductResponse>> getAllProductsSlice(
+            @PageableDefault(size = 12, sort = "createdAt") Pageable pageable
+    ) {
+        return ResponseEntity.ok(productService.getAllActiveProductsSlice(pageable));
+    }
+
+    // ⭐ Keyset pagination: pass back nextCursor from the previous response
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<ProductResponse>> getAllProductsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "12") int size
+    ) {
+        return ResponseEntity.ok(productService.getAllActiveProductsByCursor(cursor, size));
+    }
+
+    // ⭐ Conditional GET: validators are cached with the response, so a 304 matches the body a 200 would send
     @GetMapping("/{id}")
-    public ResponseEntity<ProductResponse> getProductById(@PathVariable Long id) {
-        return ResponseEntity.ok(productService.getProductById(id));
+    public ResponseEntity<ProductResponse> getProductById(@PathVariable Long id, WebRequest request) {
+        return conditional(productService.getVersionedProductById(id), request);
     }
 
     @GetMapping("/slug/{slug}")
-    public ResponseEntity<ProductResponse> getProductBySlug(@PathVariable String slug) {
-        return ResponseEntity.ok(productService.getProductBySlug(slug));
+    public ResponseEntity<ProductResponse> getProductBySlug(@PathVariable String slug, WebRequest request) {
+        return conditional(productService.getVersionedProductBySlug(slug), request);
     }
 
     @GetMapping("/search")
@@ -54,6 +110,15 @@ public class ProductController {
         return ResponseEntity.ok(productService.searchProducts(q, pageable));
     }
 
+    // ⭐ Search-as-you-type: served from memory, never touches the database
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionResponse>> suggest(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        return ResponseEntity.ok(suggestIndex.suggest(prefix, limit));
+    }
+
     @GetMapping("/category/{categoryId}")
     public ResponseEntity<Page<ProductResponse>> getProductsByCategory(
             @PathVariable Long categoryId,
@@ -62,6 +127,23 @@ public class ProductController {
         return ResponseEntity.ok(productService.getProductsByCategory(categoryId, pageable));
     }
 
+    @GetMapping("/category/{categoryId}/slice")
+    public ResponseEntity<Slice<ProductResponse>> getProductsByCategorySlice(
+            @PathVariable Long categoryId,
+            @PageableDefault(size = 12) Pageable pageable
+    ) {
+        return ResponseEntity.ok(productService.getProductsByCategorySlice(categoryId, pageable));
+    }
+
+    @GetMapping("/category/{categoryId}/cursor")
+    public ResponseEntity<CursorPage<ProductResponse>> getProductsByCategoryByCursor(
+            @PathVariable Long categoryId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "12") int size
+    ) {
+        return ResponseEntity.ok(productService.getProductsByCategoryByCursor(categoryId, cursor, size));
+    }
+
     @GetMapping("/filter")
     public ResponseEntity<Page<ProductResponse>> filterByPrice(
             @RequestParam BigDecimal minPrice,
@@ -71,6 +153,15 @@ public class ProductController {
         return ResponseEntity.ok(productService.getProductsByPriceRange(minPrice, maxPrice, pageable));
     }
 
+    // ⭐ Faceted browsing: /browse?categoryIds=1,2&minPrice=10&maxPrice=100&minRating=4&inStock=true&q=...
+    @GetMapping("/browse")
+    public ResponseEntity<ProductFilterResponse> browseProducts(
+            @Valid ProductFilterRequest filter,
+            @PageableDefault(size = 12) Pageable pageable
+    ) {
+        return ResponseEntity.ok(productService.filterProducts(filter, pageable));
+    }
+
     // ========== ADMIN ENDPOINTS ==========
 
     @PostMapping
@@ -80,6 +171,44 @@ public class ProductController {
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
+    // ⭐ Bulk import: streams text/csv or application/x-ndjson, reports failures per row
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<ProductImportResponse> importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body
+    ) {
+        return ResponseEntity.ok(productImportService.importProducts(body, ProductFileFormat.of(contentType)));
+    }
+
+    // ⭐ Full catalog export (inactive products included), streamed row by row
+    @GetMapping("/export")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = "csv") String format) {
+        ProductFileFormat fileFormat = ProductFileFormat.of(format);
+        StreamingResponseBody body = output -> productExportService.export(output, fileFormat);
+        return ResponseEntity.ok()
+                .contentType(fileFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("products." + fileFormat.getExtension()).build().toString())
+                .body(body);
+    }
+
+    // ⭐ Bulk price / stock / active updates by id or SKU (ERP sync)
+    @PatchMapping("/bulk")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<BulkProductPatchResponse> bulkUpdateProducts(@Valid @RequestBody BulkProductPatchRequest request) {
+        return ResponseEntity.ok(productBulkUpdateService.applyPatches(request.getPatches()));
+    }
+
+    // ⭐ Flash sales: split a hot product's stock across N rows (0 = back to a single row)
+    @PutMapping("/{id}/stock-shards")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<ProductResponse> setStockShards(@PathVariable Long id, @RequestParam int shards) {
+        stockShardService.reshard(id, shards);
+        return ResponseEntity.ok(productService.getProductById(id));
+    }
+
     @PutMapping("/{id}")
     @PreAuthorize("hasAuthority('ADMIN')")
     public ResponseEntity<ProductResponse> updateProduct(
@@ -106,4 +235,16 @@ public class ProductController {
         ProductResponse updated = productService.updateProductImage(id, filename);
         return ResponseEntity.ok(updated);
     }
+
+    // null = 304 already written by checkNotModified
+    private static ResponseEntity<ProductResponse> conditional(VersionedProduct product, WebRequest request) {
+        ResourceVersion version = product.getVersion();
+        if (request.checkNotModified(version.getEtag(), version.getLastModified())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(version.getEtag())
+                .lastModified(version.getLastModified())
+                .body(product.getResponse());
+    }
 }
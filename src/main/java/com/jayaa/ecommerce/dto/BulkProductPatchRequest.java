@@ -0,0 +1,15 @@
+package com.jayaa.ecommerce.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class BulkProductPatchRequest {
+
+    @NotEmpty(message = "At least one patch is required")
+    @Size(max = 20000, message = "At most 20000 patches per request")
+    private List<@Valid ProductPatchRequest> patches;
+}
@@ -0,0 +1,29 @@
+package com.jayaa.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BulkProductPatchResponse {
+
+    private long requested;
+    private long updated;
+    private long failed;
+
+    // ⭐ Capped like the import report
+    private List<PatchError> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PatchError {
+        private int index;    // position in the request's patches list
+        private Long id;
+        private String sku;
+        private String message;
+    }
+}
@@ -0,0 +1,20 @@
+package com.jayaa.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CacheStatsResponse {
+
+    private String name;
+    private int size;
+    private int maxSize;
+    private long ttlMs;
+    private long hits;
+    private long misses;
+    private double hitRate;
+    private long evictions;     // dropped to stay under maxSize
+    private long expirations;   // dropped after ttlMs
+    private long invalidations; // dropped because the product changed
+}
@@ -0,0 +1,16 @@
+package com.jayaa.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+public class CategorySalesResponse {
+
+    private Long categoryId;
+    private String name;
+    private long productOrderCount;  // sum of the products' order counts: an order with two of its products counts twice
+    private long unitsSold;
+    private BigDecimal revenue;
+}
@@ -0,0 +1,16 @@
+package com.jayaa.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+// ⭐ Keyset page: no total count, pass nextCursor back to get the following page
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private String nextCursor;
+    private boolean hasNext;
+}
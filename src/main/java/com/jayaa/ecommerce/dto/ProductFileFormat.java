@@ -0,0 +1,40 @@
+package com.jayaa.ecommerce.dto;
+
+import com.jayaa.ecommerce.exception.BadRequestException;
+import org.springframework.http.MediaType;
+import java.util.Locale;
+
+// ⭐ Bulk import / export file formats; CSV category ids are "|"-separated
+public enum ProductFileFormat {
+
+    CSV(new MediaType("text", "csv"), "csv"),
+    NDJSON(MediaType.APPLICATION_NDJSON, "ndjson");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    ProductFileFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static ProductFileFormat of(MediaType contentType) {
+        return contentType.isCompatibleWith(NDJSON.mediaType) ? NDJSON : CSV;
+    }
+
+    public static ProductFileFormat of(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Unsupported format: " + name + " (use csv or ndjson)");
+        }
+    }
+}
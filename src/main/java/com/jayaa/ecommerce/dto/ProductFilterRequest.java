@@ -0,0 +1,30 @@
+package com.jayaa.ecommerce.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.Data;
+import java.math.BigDecimal;
+import java.util.Set;
+
+@Data
+public class ProductFilterRequest {
+
+    private Set<Long> categoryIds; // match ANY of these categories
+
+    @DecimalMin(value = "0.00", message = "Minimum price cannot be negative")
+    private BigDecimal minPrice;
+
+    @DecimalMin(value = "0.00", message = "Maximum price cannot be negative")
+    private BigDecimal maxPrice;
+
+    @DecimalMin(value = "0.0", message = "Rating must be between 0 and 5")
+    @DecimalMax(value = "5.0", message = "Rating must be between 0 and 5")
+    private Double minRating;
+
+    private Boolean inStock = false;
+
+    private String q; // optional search text
+
+    @Pattern(regexp = "newest|price_asc|price_desc|rating|relevance",
+            message = "Sort must be one of: newest, price_asc, price_desc, rating, relevance")
+    private String sort; // default: relevance when q is given, otherwise newest
+}
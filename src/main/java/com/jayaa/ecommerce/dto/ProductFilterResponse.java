@@ -0,0 +1,28 @@
+package com.jayaa.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Page;
+import java.util.List;
+
+@Data
+public class ProductFilterResponse {
+
+    private Page<ProductResponse> products;
+
+    // ⭐ Facet counts - each dimension is counted with all OTHER filters applied
+    private List<FacetCount> categories;
+    private List<FacetCount> priceRanges;
+    private List<FacetCount> ratings;
+    private FacetCount inStock;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FacetCount {
+        private String value;
+        private String label;
+        private long count;
+    }
+}
@@ -0,0 +1,28 @@
+package com.jayaa.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ProductImportResponse {
+
+    private long totalRows;
+    private long imported;
+    private long failed;
+
+    // ⭐ One entry per rejected row, capped so a bad file can't blow up the response
+    private List<RowError> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long row;     // 1-based data row (header excluded)
+        private String sku;
+        private String message;
+    }
+}
@@ -0,0 +1,23 @@
+package com.jayaa.ecommerce.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import java.math.BigDecimal;
+
+// ⭐ One bulk-update entry: identify by id or sku, null fields are left unchanged
+@Data
+public class ProductPatchRequest {
+
+    private Long id;
+
+    private String sku;
+
+    @DecimalMin(value = "0.01", message = "Price must be greater than 0")
+    private BigDecimal price;
+
+    @Min(value = 0, message = "Stock cannot be negative")
+    private Integer stockQuantity;
+
+    private Boolean isActive;
+}
@@ -0,0 +1,17 @@
+package com.jayaa.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+public class ProductSalesResponse {
+
+    private Long productId;
+    private String name;
+    private String sku;
+    private long orderCount;  // non-cancelled orders containing the product
+    private long unitsSold;
+    private BigDecimal revenue;
+}
@@ -0,0 +1,44 @@
+package com.jayaa.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+// ⭐ HTTP validators (ETag + Last-Modified) for conditional GETs
+@Data
+@AllArgsConstructor
+public class ResourceVersion {
+
+    private String etag;
+    private long lastModified; // epoch millis, -1 if unknown
+
+    /**
+     * Weak ETag = hash of every value the response depends on;
+     * Last-Modified = newest timestamp among them.
+     * Example: of("product", 42, updatedAt, 7) -> W/"product-9f2c1a0b3e4d5f60"
+     */
+    public static ResourceVersion of(String prefix, Object... parts) {
+        String joined = Arrays.stream(parts).map(String::valueOf).collect(Collectors.joining("|"));
+
+        // 64-bit FNV-1a
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : joined.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+
+        long lastModified = -1;
+        for (Object part : parts) {
+            if (part instanceof LocalDateTime dateTime) {
+                lastModified = Math.max(lastModified,
+                        dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            }
+        }
+
+        return new ResourceVersion("W/\"" + prefix + "-" + Long.toHexString(hash) + "\"", lastModified);
+    }
+}
@@ -0,0 +1,17 @@
+package com.jayaa.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+public class SalesDayResponse {
+
+    private LocalDate date;
+    private long orderCount;      // non-cancelled orders placed that day
+    private long cancelledCount;  // orders placed that day and cancelled since
+    private long unitsSold;
+    private BigDecimal revenue;
+}
@@ -0,0 +1,14 @@
+package com.jayaa.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class SuggestionResponse {
+
+    private String text;
+    private String type; // PRODUCT, CATEGORY
+    private Long id;
+    private String slug;
+}
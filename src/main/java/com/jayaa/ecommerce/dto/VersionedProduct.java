@@ -0,0 +1,13 @@
+package com.jayaa.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// ⭐ A product response with the validators of exactly that state (cached together)
+@Data
+@AllArgsConstructor
+public class VersionedProduct {
+
+    private ProductResponse response;
+    private ResourceVersion version;
+}
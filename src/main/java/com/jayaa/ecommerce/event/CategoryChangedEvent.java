@@ -0,0 +1,22 @@
+package com.jayaa.ecommerce.event;
+
+import lombok.Getter;
+
+// ⭐ Published inside category write transactions; listeners react AFTER_COMMIT
+@Getter
+public class CategoryChangedEvent {
+
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Long categoryId;
+    private final ChangeType type;
+
+    public CategoryChangedEvent(Long categoryId, ChangeType type) {
+        this.categoryId = categoryId;
+        this.type = type;
+    }
+}
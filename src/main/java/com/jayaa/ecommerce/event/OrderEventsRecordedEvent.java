@@ -0,0 +1,5 @@
+package com.jayaa.ecommerce.event;
+
+// ⭐ Published when order_events rows are written; AFTER_COMMIT it wakes the dispatcher early
+public class OrderEventsRecordedEvent {
+}
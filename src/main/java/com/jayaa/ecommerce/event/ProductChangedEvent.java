@@ -0,0 +1,28 @@
+package com.jayaa.ecommerce.event;
+
+import lombok.Getter;
+import java.util.Collection;
+import java.util.List;
+
+// ⭐ Published inside product write transactions; listeners react AFTER_COMMIT
+@Getter
+public class ProductChangedEvent {
+
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final List<Long> productIds;
+    private final ChangeType type;
+
+    public ProductChangedEvent(Long productId, ChangeType type) {
+        this(List.of(productId), type);
+    }
+
+    public ProductChangedEvent(Collection<Long> productIds, ChangeType type) {
+        this.productIds = List.copyOf(productIds);
+        this.type = type;
+    }
+}
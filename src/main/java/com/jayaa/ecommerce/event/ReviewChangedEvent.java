@@ -0,0 +1,14 @@
+package com.jayaa.ecommerce.event;
+
+import lombok.Getter;
+
+// ⭐ Published when a product's rating summary changes; listeners react AFTER_COMMIT
+@Getter
+public class ReviewChangedEvent {
+
+    private final Long productId;
+
+    public ReviewChangedEvent(Long productId) {
+        this.productId = productId;
+    }
+}
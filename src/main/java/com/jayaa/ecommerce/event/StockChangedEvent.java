@@ -0,0 +1,16 @@
+package com.jayaa.ecommerce.event;
+
+import lombok.Getter;
+import java.util.Collection;
+import java.util.List;
+
+// ⭐ Published when checkout/cancellation moves stock; listeners react AFTER_COMMIT
+@Getter
+public class StockChangedEvent {
+
+    private final List<Long> productIds;
+
+    public StockChangedEvent(Collection<Long> productIds) {
+        this.productIds = List.copyOf(productIds);
+    }
+}
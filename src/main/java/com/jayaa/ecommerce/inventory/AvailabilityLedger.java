@@ -0,0 +1,148 @@
+package com.jayaa.ecommerce.inventory;
+
+import com.jayaa.ecommerce.exception.InsufficientStockException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+
+/**
+ * In-memory view of per-product availability: units on hand minus units held by carts.
+ * Holds are admitted here under a lock stripe (productId -> one of STRIPES locks), so
+ * carts competing for the same hot product queue on a JVM lock instead of on the
+ * product row. Entries load lazily and are evicted whenever stock moves on this node;
+ * the database (stock_reservations + conditional decrement at checkout) stays the
+ * source of truth.
+ *
+ * Other nodes take and free holds too, and nothing tells this one. So an entry is reloaded
+ * once it is older than app.reservations.ledger-max-age-ms, and a refusal re-checks against
+ * the database (at most once per app.reservations.ledger-recheck-ms per product) before it
+ * turns a cart away: holds swept or consumed elsewhere never block a quiet product for long.
+ */
+@Component
+public class AvailabilityLedger {
+
+    private static final int STRIPES = 64;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final Map<Long, Availability> entries = new ConcurrentHashMap<>();
+    private final long maxAgeNanos;
+    private final long recheckNanos;
+
+    @Autowired
+    public AvailabilityLedger(
+            @Value("${app.reservations.ledger-max-age-ms:5000}") long maxAgeMs,
+            @Value("${app.reservations.ledger-recheck-ms:1000}") long recheckMs
+    ) {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.maxAgeNanos = maxAgeMs * 1_000_000;
+        this.recheckNanos = recheckMs * 1_000_000;
+    }
+
+    /**
+     * Changes one holder's hold on a product from {@code held} to {@code wanted} units.
+     * Throws InsufficientStockException if the other holds leave fewer than {@code wanted}.
+     * The returned Hold undoes exactly this change (e.g. when the transaction rolls back).
+     */
+    public Hold hold(long productId, int held, int wanted, LongFunction<Availability> loader) {
+        ReentrantLock lock = stripe(productId);
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            Availability entry = entries.get(productId);
+            if (entry == null || now - entry.loadedAt >= maxAgeNanos) {
+                entry = loader.apply(productId);
+                entries.put(productId, entry);
+            }
+
+            int available = entry.onHand - entry.reserved + held;
+            if (wanted > available && now - entry.loadedAt >= recheckNanos) {
+                // The units may have been freed on another node since the load
+                entry = loader.apply(productId);
+                entries.put(productId, entry);
+                available = entry.onHand - entry.reserved + held;
+            }
+            if (wanted > available) {
+                throw new InsufficientStockException("Insufficient stock. Available: " + Math.max(0, available));
+            }
+            entry.reserved += wanted - held;
+            return new Hold(productId, entry, wanted - held);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void undo(Hold hold) {
+        ReentrantLock lock = stripe(hold.productId());
+        lock.lock();
+        try {
+            // A no-op if the entry was evicted meanwhile: the reload already reflects the database
+            hold.entry().reserved -= hold.delta();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(long productId, int quantity) {
+        ReentrantLock lock = stripe(productId);
+        lock.lock();
+        try {
+            Availability entry = entries.get(productId);
+            if (entry != null) {
+                entry.reserved = Math.max(0, entry.reserved - quantity);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Reloaded from the database on next use
+    public void evict(Collection<Long> productIds) {
+        for (Long productId : productIds) {
+            ReentrantLock lock = stripe(productId);
+            lock.lock();
+            try {
+                entries.remove(productId);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Units not held by anyone, or null if the product isn't loaded
+    public Integer available(long productId) {
+        ReentrantLock lock = stripe(productId);
+        lock.lock();
+        try {
+            Availability entry = entries.get(productId);
+            return entry != null ? entry.onHand - entry.reserved : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock stripe(long productId) {
+        return stripes[Math.floorMod(Long.hashCode(productId) * 0x9E3779B9, STRIPES)];
+    }
+
+    // Guarded by the product's stripe lock
+    public static final class Availability {
+        private final int onHand;
+        private int reserved;
+        private final long loadedAt = System.nanoTime();
+
+        public Availability(int onHand, int reserved) {
+            this.onHand = onHand;
+            this.reserved = reserved;
+        }
+    }
+
+    public record Hold(long productId, Availability entry, int delta) {
+    }
+}
@@ -0,0 +1,209 @@
+package com.jayaa.ecommerce.inventory;
+
+import com.jayaa.ecommerce.event.ProductChangedEvent;
+import com.jayaa.ecommerce.event.StockChangedEvent;
+import com.jayaa.ecommerce.exception.InsufficientStockException;
+import com.jayaa.ecommerce.exception.ResourceNotFoundException;
+import com.jayaa.ecommerce.model.StockReservation;
+import com.jayaa.ecommerce.repository.ProductRepository;
+import com.jayaa.ecommerce.repository.StockReservationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongFunction;
+
+/**
+ * Cart-time stock holds. Adding to the cart reserves the units for app.reservations.ttl-ms;
+ * admission is decided by the AvailabilityLedger and recorded as a stock_reservations row.
+ * Checkout converts the holds into the final decrement, the sweeper frees expired ones.
+ */
+@Service
+public class StockReservationService {
+
+    private static final int SWEEP_BATCH_SIZE = 500;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private AvailabilityLedger ledger;
+
+    @Value("${app.reservations.ttl-ms:900000}")
+    private long ttlMs;
+
+    private final TransactionTemplate sweepTransaction;
+
+    @Autowired
+    public StockReservationService(PlatformTransactionManager transactionManager) {
+        this.sweepTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    // ========== HOLDS ==========
+
+    /**
+     * Sets this user's hold on a product to exactly {@code quantity} units and restarts its TTL.
+     * Throws InsufficientStockException if other carts hold too much of the rest.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(Long userId, Long productId, int quantity) {
+        StockReservation reservation = reservationRepository.findByUserIdAndProductId(userId, productId)
+                .orElse(null);
+        int held = reservation != null ? reservation.getQuantity() : 0;
+
+        AvailabilityLedger.Hold hold = ledger.hold(productId, held, quantity, this::loadAvailability);
+        undoOnRollback(hold);
+
+        if (reservation == null) {
+            reservation = new StockReservation();
+            reservation.setUserId(userId);
+            reservation.setProductId(productId);
+        }
+        reservation.setQuantity(quantity);
+        reservation.setExpiresAt(LocalDateTime.now().plusNanos(ttlMs * 1_000_000));
+        reservationRepository.save(reservation);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Long userId, Long productId) {
+        reservationRepository.findByUserIdAndProductId(userId, productId)
+                .ifPresent(this::delete);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void releaseAll(Long userId) {
+        reservationRepository.findByUserId(userId).forEach(this::delete);
+    }
+
+    /**
+     * Checkout: makes sure the user holds exactly the units being bought (topping up an
+     * expired or short hold if stock allows), then drops the holds. The caller performs the
+     * stock decrement in the same transaction; its StockChangedEvent reloads the ledger.
+     * The rows are read once and deleted in one statement; only the ledger is touched per line.
+     * A shortfall is detected before anything is written, so it leaves the transaction usable
+     * (group commit rejects that one order and commits the rest of its batch); the ledger holds
+     * already taken for earlier lines are given back before it is thrown.
+     */
+    @Transactional(propagation = Propagation.MANDATORY, noRollbackFor = InsufficientStockException.class)
+    public void consume(Long userId, Map<Long, Integer> quantities) {
+        List<StockReservation> reservations = reservationRepository.findByUserIdAndProductIdIn(userId, quantities.keySet());
+        Map<Long, Integer> held = new HashMap<>();
+        reservations.forEach(r -> held.put(r.getProductId(), r.getQuantity()));
+
+        Map<Long, AvailabilityLedger.Availability> preloaded = preloadAvailability(quantities.keySet());
+        LongFunction<AvailabilityLedger.Availability> loader = productId -> {
+            AvailabilityLedger.Availability availability = preloaded.get(productId);
+            return availability != null ? availability : loadAvailability(productId);
+        };
+
+        // Same product order as the decrement that follows
+        List<AvailabilityLedger.Hold> holds = new ArrayList<>(quantities.size());
+        try {
+            for (Map.Entry<Long, Integer> line : new TreeMap<>(quantities).entrySet()) {
+                holds.add(ledger.hold(line.getKey(), held.getOrDefault(line.getKey(), 0), line.getValue(), loader));
+            }
+        } catch (InsufficientStockException e) {
+            // The transaction may still commit, so rollback can't be relied on to undo these
+            holds.forEach(ledger::undo);
+            throw e;
+        }
+        holds.forEach(this::undoOnRollback);
+        if (!reservations.isEmpty()) {
+            reservationRepository.deleteAllInBatch(reservations);
+        }
+    }
+
+    private void delete(StockReservation reservation) {
+        reservationRepository.delete(reservation);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                ledger.release(reservation.getProductId(), reservation.getQuantity());
+            }
+        });
+    }
+
+    private void undoOnRollback(AvailabilityLedger.Hold hold) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    ledger.undo(hold);
+                }
+            }
+        });
+    }
+
+    // Every checkout evicts its products, so the next one usually finds them all unloaded
+    private Map<Long, AvailabilityLedger.Availability> preloadAvailability(Collection<Long> productIds) {
+        List<Long> unloaded = productIds.stream().filter(id -> ledger.available(id) == null).toList();
+        if (unloaded.size() < 2) {
+            return Map.of();
+        }
+        Map<Long, AvailabilityLedger.Availability> preloaded = new HashMap<>();
+        for (StockReservationRepository.ProductAvailability row : reservationRepository.findAvailabilityByProductIdIn(unloaded)) {
+            preloaded.put(row.getProductId(),
+                    new AvailabilityLedger.Availability(row.getOnHand(), row.getReserved().intValue()));
+        }
+        return preloaded;
+    }
+
+    private AvailabilityLedger.Availability loadAvailability(long productId) {
+        int onHand = productRepository.findStockQuantityById(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+        return new AvailabilityLedger.Availability(onHand, (int) reservationRepository.sumQuantityByProductId(productId));
+    }
+
+    // ========== EXPIRY / SYNC ==========
+
+    @Scheduled(initialDelayString = "${app.reservations.sweep-ms:30000}",
+            fixedDelayString = "${app.reservations.sweep-ms:30000}")
+    public void sweepExpired() {
+        try {
+            int swept;
+            do {
+                swept = sweepTransaction.execute(status -> sweepBatch(LocalDateTime.now()));
+            } while (swept == SWEEP_BATCH_SIZE);
+        } catch (Exception e) {
+            System.err.println("Warning: Could not sweep expired stock reservations: " + e.getMessage());
+        }
+    }
+
+    // Returns the number of reservations removed
+    int sweepBatch(LocalDateTime now) {
+        List<StockReservation> expired = reservationRepository.findExpired(now, PageRequest.of(0, SWEEP_BATCH_SIZE));
+        for (StockReservation reservation : expired) {
+            delete(reservation);
+        }
+        return expired.size();
+    }
+
+    // On-hand changed somewhere else (checkout, cancellation, admin edits): reload lazily
+    @TransactionalEventListener
+    public void onStockChanged(StockChangedEvent event) {
+        ledger.evict(event.getProductIds());
+    }
+
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        ledger.evict(event.getProductIds());
+    }
+}
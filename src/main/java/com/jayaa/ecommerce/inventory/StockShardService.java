@@ -0,0 +1,310 @@
+package com.jayaa.ecommerce.inventory;
+
+import com.jayaa.ecommerce.event.ProductChangedEvent;
+import com.jayaa.ecommerce.event.StockChangedEvent;
+import com.jayaa.ecommerce.exception.BadRequestException;
+import com.jayaa.ecommerce.exception.ResourceNotFoundException;
+import com.jayaa.ecommerce.util.ScheduledLocks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sharded stock for flash-sale products. A product with stock_shards = N keeps its units in
+ * N product_stock_shards rows; each checkout takes its units from one randomly chosen shard,
+ * so up to N concurrent orders for the product lock different rows instead of queueing on
+ * the products row. products.stock_quantity is kept as the sum by a frequent roll-up, run by
+ * one node at a time (the holder of the roll-up lease) so nodes don't race on the product rows.
+ * Lock order is products rows (StockService), then shards in product id / shard order.
+ */
+@Service
+public class StockShardService {
+
+    public static final int MAX_SHARDS = 64;
+
+    private static final String SELECT_LEVELS =
+            "SELECT product_id, shard_no, quantity FROM product_stock_shards WHERE product_id IN (:productIds)";
+    private static final String TAKE_FROM_SHARD =
+            "UPDATE product_stock_shards SET quantity = quantity - ?, updated_at = ? " +
+            "WHERE product_id = ? AND shard_no = ? AND quantity >= ?";
+    private static final String ADD_TO_SHARD =
+            "UPDATE product_stock_shards SET quantity = quantity + ?, updated_at = ? WHERE product_id = ? AND shard_no = ?";
+    private static final String SET_SHARD =
+            "UPDATE product_stock_shards SET quantity = ?, updated_at = ? WHERE product_id = ? AND shard_no = ?";
+    private static final String LOCK_SHARDS =
+            "SELECT shard_no, quantity FROM product_stock_shards WHERE product_id = ? ORDER BY shard_no FOR UPDATE";
+    private static final String LOCK_PRODUCT =
+            "SELECT stock_quantity, stock_shards FROM products WHERE id = ? FOR UPDATE";
+    private static final String SELECT_SHARD_COUNTS =
+            "SELECT id, stock_shards FROM products WHERE id IN (:productIds) AND stock_shards > 0";
+    private static final String DELETE_SHARDS = "DELETE FROM product_stock_shards WHERE product_id = ?";
+    private static final String INSERT_SHARD =
+            "INSERT INTO product_stock_shards (product_id, shard_no, quantity, updated_at) VALUES (?, ?, ?, ?)";
+    private static final String UPDATE_PRODUCT =
+            "UPDATE products SET stock_shards = ?, stock_quantity = ?, updated_at = ?, version = version + 1 " +
+            "WHERE id = ?";
+    private static final String SELECT_STALE_TOTALS =
+            "SELECT p.id, SUM(s.quantity) AS total FROM products p " +
+            "JOIN product_stock_shards s ON s.product_id = p.id " +
+            "WHERE p.stock_shards > 0 GROUP BY p.id, p.stock_quantity HAVING SUM(s.quantity) <> p.stock_quantity ORDER BY p.id";
+    private static final String SYNC_LOCK = "stock-shards:sync";
+    private static final String UPDATE_TOTAL =
+            "UPDATE products SET stock_quantity = ?, updated_at = ?, version = version + 1 " +
+            "WHERE id = ? AND stock_shards > 0";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ScheduledLocks scheduledLocks;
+
+    @Value("${app.stock-shards.sync-lease-ms:10000}")
+    private long syncLeaseMs;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final TransactionTemplate syncTransaction;
+
+    @Autowired
+    public StockShardService(PlatformTransactionManager transactionManager) {
+        this.syncTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    // ========== CHECKOUT / CANCELLATION ==========
+
+    /**
+     * Takes each line's units from one shard of its product: a random shard that had enough
+     * at the time of the (non-locking) level read, then its siblings, and finally - when no
+     * single shard has enough - from several shards at once under a lock on all of them.
+     * Lines come in product id order and each product is settled, retries included, before the
+     * next one is touched, so shard locks are always taken in product id order.
+     * Returns the lines that could not be filled; the caller rolls back.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Map.Entry<Long, Integer>> decrement(List<Map.Entry<Long, Integer>> lines) {
+        Map<Long, List<Level>> levels = readLevels(lines);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        List<Map.Entry<Long, Integer>> unfilled = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : lines) {
+            long productId = line.getKey();
+            int quantity = line.getValue();
+            List<Level> shards = levels.getOrDefault(productId, List.of());
+
+            Level pick = pickShard(shards, quantity);
+            int failedShard = -1;
+            if (pick != null) {
+                if (jdbcTemplate.update(TAKE_FROM_SHARD, quantity, now, productId, pick.shardNo(), quantity) == 1) {
+                    continue;
+                }
+                // Another checkout drained the chosen shard since the level read
+                failedShard = pick.shardNo();
+            }
+            if (!takeFromSibling(productId, quantity, failedShard, shards, now)
+                    && !takeFromSeveral(productId, quantity, now)) {
+                unfilled.add(line);
+            }
+        }
+        return unfilled;
+    }
+
+    /**
+     * Puts units back on a random shard. Returns the lines of products that have no shards
+     * (any more), for the caller to put back on the products row instead.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Map.Entry<Long, Integer>> increment(List<Map.Entry<Long, Integer>> lines) {
+        Map<Long, Integer> shardCounts = shardCounts(lines.stream().map(Map.Entry::getKey).toList());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        List<Object[]> args = new ArrayList<>(lines.size());
+        List<Map.Entry<Long, Integer>> unsharded = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : lines) {
+            Integer shards = shardCounts.get(line.getKey());
+            if (shards == null) {
+                unsharded.add(line);
+            } else {
+                int shardNo = ThreadLocalRandom.current().nextInt(shards);
+                args.add(new Object[]{line.getValue(), now, line.getKey(), shardNo});
+            }
+        }
+        if (!args.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD_TO_SHARD, args);
+        }
+        return unsharded;
+    }
+
+    private Map<Long, List<Level>> readLevels(List<Map.Entry<Long, Integer>> lines) {
+        Map<Long, List<Level>> levels = new HashMap<>();
+        namedJdbcTemplate.query(SELECT_LEVELS, Map.of("productIds", lines.stream().map(Map.Entry::getKey).toList()),
+                rs -> {
+                    levels.computeIfAbsent(rs.getLong("product_id"), id -> new ArrayList<>())
+                            .add(new Level(rs.getInt("shard_no"), rs.getInt("quantity")));
+                });
+        return levels;
+    }
+
+    // Random among the shards that can cover the whole line; null if none can
+    private static Level pickShard(List<Level> shards, int quantity) {
+        List<Level> candidates = shards.stream().filter(level -> level.quantity() >= quantity).toList();
+        return candidates.isEmpty() ? null : candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+    }
+
+    private boolean takeFromSibling(long productId, int quantity, int failedShard, List<Level> shards, Timestamp now) {
+        for (Level sibling : shards) {
+            if (sibling.shardNo() != failedShard && sibling.quantity() >= quantity
+                    && jdbcTemplate.update(TAKE_FROM_SHARD, quantity, now, productId, sibling.shardNo(), quantity) == 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Last resort near sell-out: lock every shard of the product and take from each in turn
+    private boolean takeFromSeveral(long productId, int quantity, Timestamp now) {
+        List<Level> shards = jdbcTemplate.query(LOCK_SHARDS,
+                (rs, rowNum) -> new Level(rs.getInt("shard_no"), rs.getInt("quantity")), productId);
+        if (shards.stream().mapToInt(Level::quantity).sum() < quantity) {
+            return false;
+        }
+
+        List<Object[]> args = new ArrayList<>();
+        int remaining = quantity;
+        for (Level shard : shards) {
+            int take = Math.min(remaining, shard.quantity());
+            if (take > 0) {
+                args.add(new Object[]{shard.quantity() - take, now, productId, shard.shardNo()});
+                remaining -= take;
+            }
+            if (remaining == 0) {
+                break;
+            }
+        }
+        jdbcTemplate.batchUpdate(SET_SHARD, args);
+        return true;
+    }
+
+    // ========== ADMIN ==========
+
+    /**
+     * Splits a product's stock across {@code shards} rows (0 merges it back into the products
+     * row). The current total is preserved; works on already sharded products too.
+     */
+    @Transactional
+    public void reshard(Long productId, int shards) {
+        if (shards < 0 || shards > MAX_SHARDS) {
+            throw new BadRequestException("Shard count must be between 0 and " + MAX_SHARDS);
+        }
+        int[] current = jdbcTemplate.query(LOCK_PRODUCT, rs -> rs.next()
+                ? new int[]{rs.getInt("stock_quantity"), rs.getInt("stock_shards")}
+                : null, productId);
+        if (current == null) {
+            throw new ResourceNotFoundException("Product not found");
+        }
+
+        int total = current[1] > 0
+                ? jdbcTemplate.query(LOCK_SHARDS, (rs, rowNum) -> rs.getInt("quantity"), productId)
+                        .stream().mapToInt(Integer::intValue).sum()
+                : current[0];
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        jdbcTemplate.update(DELETE_SHARDS, productId);
+        if (shards > 0) {
+            List<Object[]> args = new ArrayList<>(shards);
+            for (int shardNo = 0; shardNo < shards; shardNo++) {
+                args.add(new Object[]{productId, shardNo, share(total, shards, shardNo), now});
+            }
+            jdbcTemplate.batchUpdate(INSERT_SHARD, args);
+        }
+        jdbcTemplate.update(UPDATE_PRODUCT, shards, total, now, productId);
+
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.ChangeType.UPDATED));
+    }
+
+    /**
+     * Admin stock edits (product form, bulk patch) set an absolute total: spread it over the
+     * existing shards. Products without shards are ignored - their stock_quantity is the total.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void setTotals(Map<Long, Integer> totals) {
+        if (totals.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> shardCounts = shardCounts(totals.keySet());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        List<Object[]> args = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : new TreeMap<>(shardCounts).entrySet()) {
+            int total = totals.get(entry.getKey());
+            for (int shardNo = 0; shardNo < entry.getValue(); shardNo++) {
+                args.add(new Object[]{share(total, entry.getValue(), shardNo), now, entry.getKey(), shardNo});
+            }
+        }
+        if (!args.isEmpty()) {
+            jdbcTemplate.batchUpdate(SET_SHARD, args);
+        }
+    }
+
+    private Map<Long, Integer> shardCounts(Collection<Long> productIds) {
+        Map<Long, Integer> counts = new HashMap<>();
+        namedJdbcTemplate.query(SELECT_SHARD_COUNTS, Map.of("productIds", productIds),
+                rs -> { counts.put(rs.getLong("id"), rs.getInt("stock_shards")); });
+        return counts;
+    }
+
+    // Even split; the first (total % shards) shards get one extra unit
+    static int share(int total, int shards, int shardNo) {
+        return total / shards + (shardNo < total % shards ? 1 : 0);
+    }
+
+    // ========== ROLL-UP ==========
+
+    // products.stock_quantity of sharded products trails the shards by at most this delay
+    @Scheduled(initialDelayString = "${app.stock-shards.sync-ms:1000}",
+            fixedDelayString = "${app.stock-shards.sync-ms:1000}")
+    public void syncTotals() {
+        try {
+            if (!scheduledLocks.tryAcquire(SYNC_LOCK, syncLeaseMs)) {
+                return;
+            }
+            syncTransaction.executeWithoutResult(status -> syncStaleTotals());
+        } catch (Exception e) {
+            System.err.println("Warning: Could not roll up sharded stock totals: " + e.getMessage());
+        }
+    }
+
+    // Returns the number of products whose stock_quantity was brought up to date
+    int syncStaleTotals() {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> productIds = new ArrayList<>();
+        List<Object[]> args = new ArrayList<>();
+        jdbcTemplate.query(SELECT_STALE_TOTALS, rs -> {
+            productIds.add(rs.getLong("id"));
+            args.add(new Object[]{rs.getInt("total"), now, rs.getLong("id")});
+        });
+        if (!args.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_TOTAL, args);
+            eventPublisher.publishEvent(new StockChangedEvent(productIds));
+        }
+        return args.size();
+    }
+
+    private record Level(int shardNo, int quantity) {
+    }
+}
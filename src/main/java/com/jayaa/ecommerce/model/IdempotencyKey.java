@@ -0,0 +1,54 @@
+package com.jayaa.ecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import java.time.LocalDateTime;
+
+// ⭐ Outcome of one Idempotency-Key per user; written with plain SQL by IdempotencyService
+@Entity
+@Table(
+        name = "idempotency_keys",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "idempotency_key"})
+)
+@Getter
+@Setter
+public class IdempotencyKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    // IN_PROGRESS or COMPLETED
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    // OrderResponse as JSON
+    @Column(columnDefinition = "TEXT")
+    private String response;
+
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    // Fences the claim: only its holder can complete the key
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
@@ -0,0 +1,24 @@
+package com.jayaa.ecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import java.time.LocalDateTime;
+
+// ⭐ Block-allocated counter row; written with plain SQL by SequenceAllocator
+@Entity
+@Table(name = "sequences")
+@Getter
+@Setter
+public class NamedSequence {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = LocalDateTime.now();
+}
@@ -12,8 +12,11 @@ import java.util.List;
 @Data
 public class Order {
 
+    // ⭐ Pooled ids (not IDENTITY) so Hibernate can batch the inserts; see V7__pooled_order_ids.sql
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_ids")
+    @TableGenerator(name = "order_ids", table = "sequences", pkColumnName = "name",
+            valueColumnName = "next_value", pkColumnValue = "orders.id", allocationSize = 50)
     private Long id;
 
     @Column(name = "order_number", unique = true, nullable = false)
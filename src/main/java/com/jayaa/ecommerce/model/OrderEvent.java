@@ -0,0 +1,55 @@
+package com.jayaa.ecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import java.time.LocalDateTime;
+
+// ⭐ Outbox row for one order change; written with plain SQL by OrderOutbox, delivered by OrderEventDispatcher
+@Entity
+@Table(name = "order_events")
+@Getter
+@Setter
+public class OrderEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 30)
+    private OrderEventType eventType;
+
+    // Order status as of this change
+    @Enumerated(EnumType.STRING)
+    @Column(name = "order_status", nullable = false, length = 20)
+    private OrderStatus orderStatus;
+
+    // PENDING, DONE or FAILED
+    @Column(nullable = false, length = 20)
+    private String state = "PENDING";
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+}
@@ -0,0 +1,7 @@
+package com.jayaa.ecommerce.model;
+
+public enum OrderEventType {
+    ORDER_PLACED,
+    ORDER_CANCELLED,
+    ORDER_STATUS_CHANGED
+}
@@ -9,8 +9,11 @@ import java.math.BigDecimal;
 @Data
 public class OrderItem {
 
+    // ⭐ Pooled ids (not IDENTITY) so Hibernate can batch the inserts; see V7__pooled_order_ids.sql
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_item_ids")
+    @TableGenerator(name = "order_item_ids", table = "sequences", pkColumnName = "name",
+            valueColumnName = "next_value", pkColumnValue = "order_items.id", allocationSize = 50)
     private Long id;
 
     // ⭐ RELATIONSHIP: Many order items belong to one order
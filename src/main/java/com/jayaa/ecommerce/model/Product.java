@@ -33,9 +33,21 @@ public class Product {
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal price;
 
-    @Column(name = "stock_quantity", nullable = false)
+    // ⭐ Insert-only for Hibernate: checkouts change stock with conditional UPDATEs (StockService), so
+    // saving a product loaded earlier must not write back the quantity it read (lost decrements)
+    @Column(name = "stock_quantity", nullable = false, updatable = false)
     private Integer stockQuantity = 0;
 
+    // ⭐ 0 = stock lives in stock_quantity; N = split across N product_stock_shards rows
+    // (stock_quantity is then their sum, rolled up by StockShardService). Changed by SQL only, like stock_quantity
+    @Column(name = "stock_shards", nullable = false, updatable = false, columnDefinition = "INT DEFAULT 0")
+    private Integer stockShards = 0;
+
+    // ⭐ Row version for HTTP validators: every write bumps it in SQL (version = version + 1),
+    // including entity saves (ProductRepository.bumpVersion), so Hibernate never writes it
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version = 0L;
+
     @Column(unique = true, nullable = false, length = 50)
     private String sku;
 
@@ -0,0 +1,51 @@
+package com.jayaa.ecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import java.time.LocalDateTime;
+
+// ⭐ Pre-aggregated review statistics, one row per reviewed product
+@Entity
+@Table(name = "product_rating_summary")
+@Getter
+@Setter
+public class ProductRatingSummary {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "review_count", nullable = false)
+    private Long reviewCount = 0L;
+
+    @Column(name = "rating_sum", nullable = false)
+    private Long ratingSum = 0L;
+
+    // Per-star histogram
+    @Column(name = "rating_1", nullable = false)
+    private Long rating1 = 0L;
+
+    @Column(name = "rating_2", nullable = false)
+    private Long rating2 = 0L;
+
+    @Column(name = "rating_3", nullable = false)
+    private Long rating3 = 0L;
+
+    @Column(name = "rating_4", nullable = false)
+    private Long rating4 = 0L;
+
+    @Column(name = "rating_5", nullable = false)
+    private Long rating5 = 0L;
+
+    // Bumped on every change
+    @Column(nullable = false)
+    private Long version = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    public double getAverageRating() {
+        return reviewCount > 0 ? (double) ratingSum / reviewCount : 0.0;
+    }
+}
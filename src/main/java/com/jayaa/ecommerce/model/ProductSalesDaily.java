@@ -0,0 +1,56 @@
+package com.jayaa.ecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// ⭐ One slot of a product's sales on one day (non-cancelled orders only); written by SalesRollup
+@Entity
+@Table(name = "product_sales_daily",
+        indexes = @Index(name = "idx_product_sales_daily_product", columnList = "product_id, sales_date"))
+@IdClass(ProductSalesDaily.Key.class)
+@Getter
+@Setter
+public class ProductSalesDaily {
+
+    @Id
+    @Column(name = "sales_date")
+    private LocalDate salesDate;
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Id
+    @Column(name = "slot")
+    private Integer slot;
+
+    // Orders containing the product
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount = 0L;
+
+    @Column(name = "units_sold", nullable = false)
+    private Long unitsSold = 0L;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate salesDate;
+        private Long productId;
+        private Integer slot;
+    }
+}
@@ -0,0 +1,41 @@
+package com.jayaa.ecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// ⭐ One slice of a hot product's stock (products.stock_shards > 0); written with plain SQL by StockShardService
+@Entity
+@Table(name = "product_stock_shards")
+@IdClass(ProductStockShard.Key.class)
+@Getter
+@Setter
+public class ProductStockShard {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Id
+    @Column(name = "shard_no")
+    private Integer shardNo;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long productId;
+        private Integer shardNo;
+    }
+}
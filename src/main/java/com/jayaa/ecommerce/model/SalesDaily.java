@@ -0,0 +1,53 @@
+package com.jayaa.ecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// ⭐ One slot of a day's sales totals; written with plain SQL by SalesRollup, readers sum the slots
+@Entity
+@Table(name = "sales_daily")
+@IdClass(SalesDaily.Key.class)
+@Getter
+@Setter
+public class SalesDaily {
+
+    @Id
+    @Column(name = "sales_date")
+    private LocalDate salesDate;
+
+    @Id
+    @Column(name = "slot")
+    private Integer slot;
+
+    // Non-cancelled orders placed that day
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount = 0L;
+
+    @Column(name = "cancelled_count", nullable = false)
+    private Long cancelledCount = 0L;
+
+    @Column(name = "units_sold", nullable = false)
+    private Long unitsSold = 0L;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate salesDate;
+        private Integer slot;
+    }
+}
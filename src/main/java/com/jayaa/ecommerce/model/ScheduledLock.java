@@ -0,0 +1,27 @@
+package com.jayaa.ecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import java.time.LocalDateTime;
+
+// ⭐ Lease on a cluster-wide scheduled job; claimed with plain SQL by ScheduledLocks
+@Entity
+@Table(name = "scheduled_locks")
+@Getter
+@Setter
+public class ScheduledLock {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(name = "locked_until", nullable = false)
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "locked_by", nullable = false, length = 36)
+    private String lockedBy;
+
+    @Column(name = "locked_at", nullable = false)
+    private LocalDateTime lockedAt;
+}
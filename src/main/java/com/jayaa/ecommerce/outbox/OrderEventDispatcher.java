@@ -0,0 +1,279 @@
+package com.jayaa.ecommerce.outbox;
+
+import com.jayaa.ecommerce.event.OrderEventsRecordedEvent;
+import com.jayaa.ecommerce.model.OrderEventType;
+import com.jayaa.ecommerce.model.OrderStatus;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read side of the order event outbox. One virtual thread per node polls order_events and
+ * claims up to app.outbox.batch-size due events with a lease (claim_token, available_at =
+ * now + lease), so nodes never deliver the same batch twice while it is being handled and a
+ * batch abandoned by a dead node comes back once the lease runs out.
+ *
+ * Each order's events in the batch run in id order on their own virtual thread; different
+ * orders run concurrently. A failed event is retried with exponential backoff up to
+ * app.outbox.max-attempts, then parked as FAILED. An order's later events wait behind its
+ * pending earlier one, so handlers see one order's changes in the order they happened.
+ */
+@Component
+public class OrderEventDispatcher {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+    private static final long MAX_BACKOFF_MS = 600_000;
+
+    // Skips events whose order has an earlier event that is not due yet (backing off or leased elsewhere)
+    private static final String SELECT_DUE =
+            "SELECT e.id FROM order_events e WHERE e.state = 'PENDING' AND e.available_at <= :now " +
+            "AND NOT EXISTS (SELECT 1 FROM order_events p WHERE p.order_id = e.order_id AND p.state = 'PENDING' " +
+            "AND p.id < e.id AND p.available_at > :now) " +
+            "ORDER BY e.id LIMIT :limit";
+    private static final String CLAIM =
+            "UPDATE order_events SET claim_token = :token, available_at = :leaseEnd " +
+            "WHERE id IN (:ids) AND state = 'PENDING' AND available_at <= :now";
+    private static final String SELECT_CLAIMED =
+            "SELECT id, order_id, user_id, event_type, order_status, attempts, created_at FROM order_events " +
+            "WHERE claim_token = ? AND state = 'PENDING' ORDER BY id";
+    private static final String MARK_DONE =
+            "UPDATE order_events SET state = 'DONE', processed_at = :now, claim_token = NULL " +
+            "WHERE id IN (:ids) AND claim_token = :token";
+    private static final String MARK_FAILED =
+            "UPDATE order_events SET state = ?, attempts = ?, available_at = ?, last_error = ?, claim_token = NULL " +
+            "WHERE id = ? AND claim_token = ?";
+    private static final String RELEASE =
+            "UPDATE order_events SET available_at = :now, claim_token = NULL WHERE id IN (:ids) AND claim_token = :token";
+    private static final String PURGE = "DELETE FROM order_events WHERE state = 'DONE' AND processed_at <= ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired(required = false)
+    private List<OrderEventHandler> handlers = List.of();
+
+    @Value("${app.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.outbox.poll-ms:1000}")
+    private long pollMs;
+
+    @Value("${app.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.outbox.lease-ms:60000}")
+    private long leaseMs;
+
+    @Value("${app.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.outbox.retry-delay-ms:1000}")
+    private long retryDelayMs;
+
+    @Value("${app.outbox.retention-ms:604800000}")
+    private long retentionMs;
+
+    private final TransactionTemplate transaction;
+    private final ExecutorService handlerThreads = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore wakeups = new Semaphore(0);
+    private volatile Thread poller;
+
+    @Autowired
+    public OrderEventDispatcher(PlatformTransactionManager transactionManager) {
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    // ========== POLLING ==========
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (enabled && poller == null) {
+            poller = Thread.ofVirtual().name("order-event-dispatcher").start(this::poll);
+        }
+    }
+
+    // An order committed on this node: deliver now instead of at the next poll
+    @TransactionalEventListener
+    public void onEventsRecorded(OrderEventsRecordedEvent event) {
+        wakeups.release();
+    }
+
+    private void poll() {
+        while (!Thread.currentThread().isInterrupted()) {
+            int dispatched = 0;
+            try {
+                dispatched = dispatchBatch();
+            } catch (Exception e) {
+                System.err.println("Warning: Could not dispatch order events: " + e.getMessage());
+            }
+            if (dispatched < batchSize) {
+                try {
+                    wakeups.tryAcquire(pollMs, TimeUnit.MILLISECONDS);
+                    wakeups.drainPermits();
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Claims one batch of due events, runs the handlers and records the outcomes.
+     * Returns the number of events claimed (0 when nothing is due).
+     */
+    public int dispatchBatch() throws InterruptedException {
+        String token = UUID.randomUUID().toString();
+        List<OrderEventHandler.Event> events = transaction.execute(status -> claim(token));
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, List<OrderEventHandler.Event>> byOrder = new LinkedHashMap<>();
+        events.forEach(event -> byOrder.computeIfAbsent(event.orderId(), id -> new ArrayList<>()).add(event));
+        List<Callable<Outcome>> tasks = new ArrayList<>(byOrder.size());
+        byOrder.values().forEach(orderEvents -> tasks.add(() -> deliver(orderEvents)));
+
+        Outcome total = new Outcome();
+        for (Future<Outcome> future : handlerThreads.invokeAll(tasks)) {
+            try {
+                total.add(future.get());
+            } catch (ExecutionException e) {
+                // deliver() catches handler failures itself; the lease brings these events back
+                System.err.println("Warning: Order event delivery crashed: " + e.getCause());
+            }
+        }
+        transaction.executeWithoutResult(status -> record(token, total));
+        return events.size();
+    }
+
+    private List<OrderEventHandler.Event> claim(String token) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = namedJdbcTemplate.queryForList(SELECT_DUE, new MapSqlParameterSource()
+                .addValue("now", Timestamp.valueOf(now))
+                .addValue("limit", batchSize), Long.class);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        namedJdbcTemplate.update(CLAIM, new MapSqlParameterSource()
+                .addValue("token", token)
+                .addValue("leaseEnd", Timestamp.valueOf(now.plusNanos(leaseMs * 1_000_000)))
+                .addValue("ids", ids)
+                .addValue("now", Timestamp.valueOf(now)));
+        return jdbcTemplate.query(SELECT_CLAIMED, (rs, rowNum) -> new OrderEventHandler.Event(
+                rs.getLong("id"),
+                rs.getLong("order_id"),
+                rs.getLong("user_id"),
+                OrderEventType.valueOf(rs.getString("event_type")),
+                OrderStatus.valueOf(rs.getString("order_status")),
+                rs.getInt("attempts"),
+                rs.getTimestamp("created_at").toLocalDateTime()
+        ), token);
+    }
+
+    // One order's events in id order; stops at the first failure so later ones wait their turn
+    private Outcome deliver(List<OrderEventHandler.Event> orderEvents) {
+        Outcome outcome = new Outcome();
+        Iterator<OrderEventHandler.Event> it = orderEvents.iterator();
+        while (it.hasNext()) {
+            OrderEventHandler.Event event = it.next();
+            try {
+                for (OrderEventHandler handler : handlers) {
+                    if (handler.supports(event.type())) {
+                        handler.handle(event);
+                    }
+                }
+                outcome.done.add(event.id());
+            } catch (Exception e) {
+                outcome.failed.put(event, e);
+                it.forEachRemaining(later -> outcome.released.add(later.id()));
+            }
+        }
+        return outcome;
+    }
+
+    private void record(String token, Outcome outcome) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        if (!outcome.done.isEmpty()) {
+            namedJdbcTemplate.update(MARK_DONE, new MapSqlParameterSource()
+                    .addValue("now", now).addValue("ids", outcome.done).addValue("token", token));
+        }
+        if (!outcome.released.isEmpty()) {
+            namedJdbcTemplate.update(RELEASE, new MapSqlParameterSource()
+                    .addValue("now", now).addValue("ids", outcome.released).addValue("token", token));
+        }
+        if (!outcome.failed.isEmpty()) {
+            List<Object[]> args = new ArrayList<>(outcome.failed.size());
+            outcome.failed.forEach((event, error) -> {
+                int attempts = event.attempts() + 1;
+                String state = attempts >= maxAttempts ? "FAILED" : "PENDING";
+                long backoffMs = Math.min(MAX_BACKOFF_MS, retryDelayMs << Math.min(attempts - 1, 20));
+                args.add(new Object[]{state, attempts,
+                        Timestamp.valueOf(LocalDateTime.now().plusNanos(backoffMs * 1_000_000)),
+                        truncate(String.valueOf(error)), event.id(), token});
+                System.err.println("Warning: Order event " + event.id() + " (" + event.type() + ") failed, attempt "
+                        + attempts + "/" + maxAttempts + ": " + error);
+            });
+            jdbcTemplate.batchUpdate(MARK_FAILED, args);
+        }
+    }
+
+    // ========== HOUSEKEEPING ==========
+
+    @Scheduled(initialDelayString = "${app.outbox.purge-ms:3600000}",
+            fixedDelayString = "${app.outbox.purge-ms:3600000}")
+    public void purgeDelivered() {
+        try {
+            transaction.executeWithoutResult(status -> jdbcTemplate.update(PURGE,
+                    Timestamp.valueOf(LocalDateTime.now().minusNanos(retentionMs * 1_000_000))));
+        } catch (Exception e) {
+            System.err.println("Warning: Could not purge delivered order events: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    synchronized void stop() {
+        if (poller != null) {
+            poller.interrupt();
+        }
+        handlerThreads.shutdownNow();
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    private static final class Outcome {
+        private final List<Long> done = new ArrayList<>();
+        private final List<Long> released = new ArrayList<>();
+        private final Map<OrderEventHandler.Event, Exception> failed = new LinkedHashMap<>();
+
+        void add(Outcome other) {
+            done.addAll(other.done);
+            released.addAll(other.released);
+            failed.putAll(other.failed);
+        }
+    }
+}
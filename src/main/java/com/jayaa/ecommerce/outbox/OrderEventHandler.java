@@ -0,0 +1,26 @@
+package com.jayaa.ecommerce.outbox;
+
+import com.jayaa.ecommerce.model.OrderEventType;
+import com.jayaa.ecommerce.model.OrderStatus;
+import java.time.LocalDateTime;
+
+/**
+ * In-process consumer of order events. Every Spring bean implementing this interface is
+ * called by OrderEventDispatcher, off the request thread and after the order committed.
+ *
+ * Delivery is at least once: an event is redelivered (to every handler) when any handler
+ * throws or the node dies mid-batch, so handlers must be idempotent. Events of one order
+ * arrive in the order they were written; events of different orders run concurrently.
+ */
+public interface OrderEventHandler {
+
+    default boolean supports(OrderEventType type) {
+        return true;
+    }
+
+    void handle(Event event) throws Exception;
+
+    record Event(Long id, Long orderId, Long userId, OrderEventType type, OrderStatus orderStatus,
+                 int attempts, LocalDateTime createdAt) {
+    }
+}
@@ -0,0 +1,56 @@
+package com.jayaa.ecommerce.outbox;
+
+import com.jayaa.ecommerce.event.OrderEventsRecordedEvent;
+import com.jayaa.ecommerce.model.Order;
+import com.jayaa.ecommerce.model.OrderEventType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Write side of the order event outbox. Events go into order_events inside the caller's
+ * transaction, so they commit or roll back with the order change they describe; nothing
+ * is delivered here. Rows are thin (order id, user id, type, status): handlers read
+ * whatever else they need when the event is delivered.
+ */
+@Component
+public class OrderOutbox {
+
+    private static final String INSERT_EVENT =
+            "INSERT INTO order_events (order_id, user_id, event_type, order_status, state, attempts, available_at, created_at) " +
+            "VALUES (?, ?, ?, ?, 'PENDING', 0, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Order order, OrderEventType type) {
+        record(List.of(order), type);
+    }
+
+    // One JDBC batch for all orders (group commit writes a whole micro-batch at once)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Collection<Order> orders, OrderEventType type) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            args.add(new Object[]{order.getId(), order.getUser().getId(), type.name(), order.getStatus().name(), now, now});
+        }
+        jdbcTemplate.batchUpdate(INSERT_EVENT, args);
+        eventPublisher.publishEvent(new OrderEventsRecordedEvent());
+    }
+}
@@ -1,11 +1,13 @@
 package com.jayaa.ecommerce.repository;
 
 import com.jayaa.ecommerce.model.CartItem;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.math.BigDecimal;
@@ -15,8 +17,16 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
 
     List<CartItem> findByUserId(Long userId);
 
+    // ⭐ Checkout reads every line's product: one join instead of one select per line
+    @EntityGraph(attributePaths = "product")
+    List<CartItem> findWithProductByUserId(Long userId);
+
     Optional<CartItem> findByUserIdAndProductId(Long userId, Long productId);
 
+    // Group commit: which of the cart lines read before queueing are still there
+    @Query("SELECT c.id FROM CartItem c WHERE c.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
     @Modifying
     @Query("DELETE FROM CartItem c WHERE c.user.id = :userId")
     void deleteByUserId(@Param("userId") Long userId);
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +17,18 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
 
     Optional<Category> findBySlug(String slug);
 
+    boolean existsBySlug(String slug);
+
+    // ⭐ Every taken "base" / "base-*" slug in one query (unique slug allocation)
+    @Query("SELECT c.slug FROM Category c WHERE c.slug = :base OR c.slug LIKE :pattern ESCAPE '!'")
+    List<String> findSlugsWithPrefix(@Param("base") String base, @Param("pattern") String pattern);
+
+    @Query("SELECT c.slug FROM Category c WHERE c.slug IN :slugs")
+    List<String> findExistingSlugs(@Param("slugs") Collection<String> slugs);
+
+    @Query("SELECT c.id FROM Category c")
+    List<Long> findAllIds();
+
     // Fetch categories with product count
     @Query("SELECT c FROM Category c LEFT JOIN FETCH c.products")
     List<Category> findAllWithProducts();
@@ -23,4 +36,20 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     // Get product count for a category
     @Query("SELECT COUNT(p) FROM Product p JOIN p.categories c WHERE c.id = :categoryId")
     Long countProductsByCategoryId(@Param("categoryId") Long categoryId);
+
+    @Query("SELECT COUNT(p) FROM Product p JOIN p.categories c WHERE c.id = :categoryId AND p.isActive = true")
+    Long countActiveProductsByCategoryId(@Param("categoryId") Long categoryId);
+
+    // ⭐ Product count for every category in one grouped query
+    @Query("SELECT c.id AS categoryId, COUNT(p) AS productCount FROM Product p JOIN p.categories c GROUP BY c.id")
+    List<CategoryProductCount> countProductsGroupedByCategory();
+
+    @Query("SELECT c.id AS categoryId, COUNT(p) AS productCount FROM Product p JOIN p.categories c " +
+            "WHERE p.isActive = true GROUP BY c.id")
+    List<CategoryProductCount> countActiveProductsGroupedByCategory();
+
+    interface CategoryProductCount {
+        Long getCategoryId();
+        Long getProductCount();
+    }
 }
\ No newline at end of file
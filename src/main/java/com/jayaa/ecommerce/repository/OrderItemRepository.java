@@ -2,11 +2,45 @@ package com.jayaa.ecommerce.repository;
 
 import com.jayaa.ecommerce.model.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
 
     List<OrderItem> findByOrderId(Long orderId);
-}
\ No newline at end of file
+
+    // ⭐ Items of a page of orders with the product summary fields, as read-only rows in one statement
+    @Query("SELECT oi.order.id AS orderId, oi.id AS id, oi.quantity AS quantity, oi.priceAtPurchase AS priceAtPurchase, " +
+            "oi.subtotal AS subtotal, p.id AS productId, p.name AS productName, p.slug AS productSlug, " +
+            "p.imageUrl AS productImageUrl FROM OrderItem oi JOIN oi.product p " +
+            "WHERE oi.order.id IN :orderIds ORDER BY oi.id")
+    List<OrderItemSummary> findSummariesByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    // ⭐ Units sold per product (popularity signal for suggestions)
+    @Query("SELECT oi.product.id AS productId, SUM(oi.quantity) AS unitsSold " +
+            "FROM OrderItem oi WHERE oi.order.status <> com.jayaa.ecommerce.model.OrderStatus.CANCELLED " +
+            "GROUP BY oi.product.id")
+    List<ProductUnitsSold> sumUnitsSoldByProduct();
+
+    interface OrderItemSummary {
+        Long getOrderId();
+        Long getId();
+        Integer getQuantity();
+        BigDecimal getPriceAtPurchase();
+        BigDecimal getSubtotal();
+        Long getProductId();
+        String getProductName();
+        String getProductSlug();
+        String getProductImageUrl();
+    }
+
+    interface ProductUnitsSold {
+        Long getProductId();
+        Long getUnitsSold();
+    }
+}
@@ -2,30 +2,96 @@ package com.jayaa.ecommerce.repository;
 
 import com.jayaa.ecommerce.model.Order;
 import com.jayaa.ecommerce.model.OrderStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.math.BigDecimal;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
+    String SUMMARY_SELECT = "SELECT o.id AS id, o.orderNumber AS orderNumber, o.totalAmount AS totalAmount, " +
+            "o.status AS status, o.shippingAddress AS shippingAddress, o.paymentMethod AS paymentMethod, " +
+            "o.orderDate AS orderDate, o.deliveredDate AS deliveredDate, u.id AS userId, u.username AS username, " +
+            "u.email AS email, u.fullName AS fullName FROM Order o JOIN o.user u";
+
     Optional<Order> findByOrderNumber(String orderNumber);
 
+    // ⭐ Fetch plan for OrderResponse: user, items and their products in one statement
+    @EntityGraph(attributePaths = {"user", "items", "items.product"})
+    Optional<Order> findWithDetailsById(Long id);
+
+    // Second step after a paged query (a collection fetch join can't be paged in SQL)
+    @EntityGraph(attributePaths = {"user", "items", "items.product"})
+    List<Order> findWithDetailsByIdIn(Collection<Long> ids);
+
     Page<Order> findByUserId(Long userId, Pageable pageable);
 
+    // ⭐ Listings without the COUNT(*) query (infinite scroll)
+    Slice<Order> findSliceByUserId(Long userId, Pageable pageable);
+
+    @Query("SELECT o FROM Order o")
+    Slice<Order> findAllAsSlice(Pageable pageable);
+
+    // ⭐ Keyset scrolling: WHERE (sort keys) > (cursor keys), no OFFSET, no COUNT(*)
+    Window<Order> findByUserId(Long userId, ScrollPosition position, Limit limit, Sort sort);
+
+    Window<Order> findAllBy(ScrollPosition position, Limit limit, Sort sort);
+
     Page<Order> findByStatus(OrderStatus status, Pageable pageable);
 
-    // ⭐ Count orders created today (for order number generation)
-    @Query("SELECT COUNT(o) FROM Order o WHERE o.orderDate >= :startOfDay")
-    Long countOrdersCreatedToday(@Param("startOfDay") LocalDateTime startOfDay);
+    // ⭐ Order history pages as read-only rows (order + owner columns); items come from OrderItemRepository
+    @Query(value = SUMMARY_SELECT + " WHERE u.username = :username",
+            countQuery = "SELECT COUNT(o) FROM Order o WHERE o.user.username = :username")
+    Page<OrderSummary> findSummariesByUsername(@Param("username") String username, Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT, countQuery = "SELECT COUNT(o) FROM Order o")
+    Page<OrderSummary> findAllSummaries(Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + " WHERE o.status = :status",
+            countQuery = "SELECT COUNT(o) FROM Order o WHERE o.status = :status")
+    Page<OrderSummary> findSummariesByStatus(@Param("status") OrderStatus status, Pageable pageable);
+
+    // ⭐ Highest order number with this prefix (longest first, so "1000" beats "999"); seeds a new year's sequence
+    @Query("SELECT o.orderNumber FROM Order o WHERE o.orderNumber LIKE CONCAT(:prefix, '%') " +
+            "ORDER BY LENGTH(o.orderNumber) DESC, o.orderNumber DESC")
+    List<String> findHighestOrderNumbers(@Param("prefix") String prefix, Pageable pageable);
+
+    // ⭐ Compare-and-set status change: 0 rows means another transaction changed the order first
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :status WHERE o.id = :id AND o.status = :expected")
+    int updateStatusIf(@Param("id") Long id, @Param("expected") OrderStatus expected, @Param("status") OrderStatus status);
 
     // ⭐ Get total sales
     @Query("SELECT SUM(o.totalAmount) FROM Order o WHERE o.status != 'CANCELLED'")
     BigDecimal getTotalSales();
+
+    interface OrderSummary {
+        Long getId();
+        String getOrderNumber();
+        BigDecimal getTotalAmount();
+        OrderStatus getStatus();
+        String getShippingAddress();
+        String getPaymentMethod();
+        LocalDateTime getOrderDate();
+        LocalDateTime getDeliveredDate();
+        Long getUserId();
+        String getUsername();
+        String getEmail();
+        String getFullName();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.jayaa.ecommerce.repository;
+
+import com.jayaa.ecommerce.model.ProductRatingSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProductRatingSummaryRepository extends JpaRepository<ProductRatingSummary, Long> {
+
+    // ⭐ Add one rating (creates the summary row on the first review)
+    @Modifying
+    @Query(value = "INSERT INTO product_rating_summary " +
+            "(product_id, review_count, rating_sum, rating_1, rating_2, rating_3, rating_4, rating_5, version) " +
+            "VALUES (:productId, 1, :rating, " +
+            "CASE WHEN :rating = 1 THEN 1 ELSE 0 END, " +
+            "CASE WHEN :rating = 2 THEN 1 ELSE 0 END, " +
+            "CASE WHEN :rating = 3 THEN 1 ELSE 0 END, " +
+            "CASE WHEN :rating = 4 THEN 1 ELSE 0 END, " +
+            "CASE WHEN :rating = 5 THEN 1 ELSE 0 END, 1) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "review_count = review_count + 1, " +
+            "rating_sum = rating_sum + :rating, " +
+            "rating_1 = rating_1 + CASE WHEN :rating = 1 THEN 1 ELSE 0 END, " +
+            "rating_2 = rating_2 + CASE WHEN :rating = 2 THEN 1 ELSE 0 END, " +
+            "rating_3 = rating_3 + CASE WHEN :rating = 3 THEN 1 ELSE 0 END, " +
+            "rating_4 = rating_4 + CASE WHEN :rating = 4 THEN 1 ELSE 0 END, " +
+            "rating_5 = rating_5 + CASE WHEN :rating = 5 THEN 1 ELSE 0 END, " +
+            "version = version + 1",
+            nativeQuery = true)
+    void addRating(@Param("productId") Long productId, @Param("rating") Integer rating);
+
+    // ⭐ Remove one rating
+    @Modifying
+    @Query(value = "UPDATE product_rating_summary SET " +
+            "review_count = review_count - 1, " +
+            "rating_sum = rating_sum - :rating, " +
+            "rating_1 = rating_1 - CASE WHEN :rating = 1 THEN 1 ELSE 0 END, " +
+            "rating_2 = rating_2 - CASE WHEN :rating = 2 THEN 1 ELSE 0 END, " +
+            "rating_3 = rating_3 - CASE WHEN :rating = 3 THEN 1 ELSE 0 END, " +
+            "rating_4 = rating_4 - CASE WHEN :rating = 4 THEN 1 ELSE 0 END, " +
+            "rating_5 = rating_5 - CASE WHEN :rating = 5 THEN 1 ELSE 0 END, " +
+            "version = version + 1 " +
+            "WHERE product_id = :productId",
+            nativeQuery = true)
+    void removeRating(@Param("productId") Long productId, @Param("rating") Integer rating);
+}
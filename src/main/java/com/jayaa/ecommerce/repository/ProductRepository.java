@@ -1,13 +1,23 @@
 package com.jayaa.ecommerce.repository;
 
 import com.jayaa.ecommerce.model.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -15,11 +25,49 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     Optional<Product> findBySlug(String slug);
 
+    // ⭐ Fetch plans: load categories in the same statement instead of one lazy load per product
+    @EntityGraph(attributePaths = "categories")
+    Optional<Product> findWithCategoriesById(Long id);
+
+    @EntityGraph(attributePaths = "categories")
+    Optional<Product> findWithCategoriesBySlug(String slug);
+
+    // Second step after a paged query (a collection fetch join can't be paged in SQL)
+    @EntityGraph(attributePaths = "categories")
+    List<Product> findWithCategoriesByIdIn(Collection<Long> ids);
+
     boolean existsBySku(String sku);
 
+    boolean existsBySlug(String slug);
+
+    // ⭐ Every taken "base" / "base-*" slug in one query (unique slug allocation)
+    @Query("SELECT p.slug FROM Product p WHERE p.slug = :base OR p.slug LIKE :pattern ESCAPE '!'")
+    List<String> findSlugsWithPrefix(@Param("base") String base, @Param("pattern") String pattern);
+
+    @Query("SELECT p.slug FROM Product p WHERE p.slug IN :slugs")
+    List<String> findExistingSlugs(@Param("slugs") Collection<String> slugs);
+
+    // ⭐ Bulk import: which of these SKUs are already taken, one query per batch
+    @Query("SELECT p.sku FROM Product p WHERE p.sku IN :skus")
+    List<String> findExistingSkus(@Param("skus") Collection<String> skus);
+
     // Find active products only
     Page<Product> findByIsActive(Boolean isActive, Pageable pageable);
 
+    // ⭐ Same listing without the COUNT(*) query (infinite scroll)
+    Slice<Product> findSliceByIsActive(Boolean isActive, Pageable pageable);
+
+    // ⭐ Keyset scrolling: WHERE (sort keys) > (cursor keys), no OFFSET, no COUNT(*)
+    Window<Product> findByIsActive(Boolean isActive, ScrollPosition position, Limit limit, Sort sort);
+
+    Window<Product> findByCategoriesIdAndIsActive(
+            Long categoryId,
+            Boolean isActive,
+            ScrollPosition position,
+            Limit limit,
+            Sort sort
+    );
+
     // ⭐ Search by name or description
     @Query("SELECT p FROM Product p WHERE " +
             "LOWER(p.name) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
@@ -38,8 +86,107 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p FROM Product p JOIN p.categories c WHERE c.id = :categoryId AND p.isActive = true")
     Page<Product> findByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
 
+    @Query("SELECT p FROM Product p JOIN p.categories c WHERE c.id = :categoryId AND p.isActive = true")
+    Slice<Product> findSliceByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+
     // Check stock availability
     @Query("SELECT CASE WHEN p.stockQuantity >= :quantity THEN true ELSE false END " +
             "FROM Product p WHERE p.id = :productId")
     boolean hasEnoughStock(@Param("productId") Long productId, @Param("quantity") Integer quantity);
+
+    // ⭐ Exact on-hand units: sharded products are read from their shards, not the rolled-up column
+    @Query("SELECT CASE WHEN p.stockShards > 0 " +
+            "THEN CAST((SELECT COALESCE(SUM(s.quantity), 0) FROM ProductStockShard s WHERE s.productId = p.id) AS Integer) " +
+            "ELSE p.stockQuantity END FROM Product p WHERE p.id = :productId")
+    Optional<Integer> findStockQuantityById(@Param("productId") Long productId);
+
+    // ⭐ Lightweight text projection for the in-memory search index (keyset batches)
+    @Query("SELECT p.id AS id, p.name AS name, p.description AS description " +
+            "FROM Product p WHERE p.id > :afterId ORDER BY p.id")
+    List<SearchDocument> findSearchDocuments(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT p.id AS id, p.name AS name, p.description AS description " +
+            "FROM Product p WHERE p.id IN :ids")
+    List<SearchDocument> findSearchDocumentsByIds(@Param("ids") Collection<Long> ids);
+
+    // ⭐ Active product names for the prefix suggest index (keyset batches)
+    @Query("SELECT p.id AS id, p.name AS name, p.slug AS slug " +
+            "FROM Product p WHERE p.isActive = true AND p.id > :afterId ORDER BY p.id")
+    List<SuggestDocument> findSuggestDocuments(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT p.id AS id, p.name AS name, p.slug AS slug " +
+            "FROM Product p WHERE p.isActive = true AND p.id IN :ids")
+    List<SuggestDocument> findSuggestDocumentsByIds(@Param("ids") Collection<Long> ids);
+
+    // ⭐ Facet attributes of active products (keyset batches / by id)
+    @Query("SELECT p.id AS id, p.price AS price, p.stockQuantity AS stockQuantity " +
+            "FROM Product p WHERE p.isActive = true AND p.id > :afterId ORDER BY p.id")
+    List<FacetDocument> findFacetDocuments(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT p.id AS id, p.price AS price, p.stockQuantity AS stockQuantity " +
+            "FROM Product p WHERE p.isActive = true AND p.id IN :ids")
+    List<FacetDocument> findFacetDocumentsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p.id AS productId, c.id AS categoryId FROM Product p JOIN p.categories c WHERE p.id IN :ids")
+    List<ProductCategoryPair> findCategoryPairsByProductIds(@Param("ids") Collection<Long> ids);
+
+    // ⭐ Admin stock edit of an unsharded product (sharded ones go through StockShardService.setTotals);
+    // stock is never written back from a loaded entity, see Product.stockQuantity
+    @Modifying
+    @Query(value = "UPDATE products SET stock_quantity = :quantity, updated_at = :now, version = version + 1 " +
+            "WHERE id = :id AND stock_shards = 0",
+            nativeQuery = true)
+    int setStockQuantity(@Param("id") Long id, @Param("quantity") Integer quantity, @Param("now") LocalDateTime now);
+
+    // After an entity save: Product.version isn't written by Hibernate
+    @Modifying
+    @Query(value = "UPDATE products SET version = version + 1 WHERE id = :id", nativeQuery = true)
+    int bumpVersion(@Param("id") Long id);
+
+    // ⭐ Everything a product response depends on, without loading the product (conditional GET)
+    @Query("SELECT p.id AS id, p.version AS version, p.updatedAt AS updatedAt, s.version AS reviewVersion, s.updatedAt AS reviewUpdatedAt, " +
+            "COUNT(c) AS categoryCount, SUM(c.id) AS categoryIdSum, MAX(c.updatedAt) AS categoriesUpdatedAt " +
+            "FROM Product p LEFT JOIN ProductRatingSummary s ON s.productId = p.id LEFT JOIN p.categories c " +
+            "WHERE p.id = :id GROUP BY p.id, p.version, p.updatedAt, s.version, s.updatedAt")
+    Optional<ProductVersion> findVersionById(@Param("id") Long id);
+
+    @Query("SELECT p.id AS id, p.version AS version, p.updatedAt AS updatedAt, s.version AS reviewVersion, s.updatedAt AS reviewUpdatedAt, " +
+            "COUNT(c) AS categoryCount, SUM(c.id) AS categoryIdSum, MAX(c.updatedAt) AS categoriesUpdatedAt " +
+            "FROM Product p LEFT JOIN ProductRatingSummary s ON s.productId = p.id LEFT JOIN p.categories c " +
+            "WHERE p.slug = :slug GROUP BY p.id, p.version, p.updatedAt, s.version, s.updatedAt")
+    Optional<ProductVersion> findVersionBySlug(@Param("slug") String slug);
+
+    interface ProductVersion {
+        Long getId();
+        Long getVersion();
+        LocalDateTime getUpdatedAt();
+        Long getReviewVersion();
+        LocalDateTime getReviewUpdatedAt();
+        Long getCategoryCount();
+        Long getCategoryIdSum();
+        LocalDateTime getCategoriesUpdatedAt();
+    }
+
+    interface SearchDocument {
+        Long getId();
+        String getName();
+        String getDescription();
+    }
+
+    interface FacetDocument {
+        Long getId();
+        BigDecimal getPrice();
+        Integer getStockQuantity();
+    }
+
+    interface ProductCategoryPair {
+        Long getProductId();
+        Long getCategoryId();
+    }
+
+    interface SuggestDocument {
+        Long getId();
+        String getName();
+        String getSlug();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.jayaa.ecommerce.repository;
+
+import com.jayaa.ecommerce.model.StockReservation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    Optional<StockReservation> findByUserIdAndProductId(Long userId, Long productId);
+
+    List<StockReservation> findByUserId(Long userId);
+
+    List<StockReservation> findByUserIdAndProductIdIn(Long userId, Collection<Long> productIds);
+
+    // ⭐ Units held on a product by every cart (expired rows count until the sweeper removes them)
+    @Query("SELECT COALESCE(SUM(r.quantity), 0) FROM StockReservation r WHERE r.productId = :productId")
+    long sumQuantityByProductId(@Param("productId") Long productId);
+
+    // ⭐ On-hand and held units for many products in one statement (checkout after a ledger eviction)
+    @Query("SELECT p.id AS productId, CASE WHEN p.stockShards > 0 " +
+            "THEN CAST((SELECT COALESCE(SUM(s.quantity), 0) FROM ProductStockShard s WHERE s.productId = p.id) AS Integer) " +
+            "ELSE p.stockQuantity END AS onHand, COALESCE(SUM(r.quantity), 0) AS reserved " +
+            "FROM Product p LEFT JOIN StockReservation r ON r.productId = p.id " +
+            "WHERE p.id IN :productIds GROUP BY p.id, p.stockQuantity, p.stockShards")
+    List<ProductAvailability> findAvailabilityByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    @Query("SELECT r FROM StockReservation r WHERE r.expiresAt <= :now ORDER BY r.expiresAt")
+    List<StockReservation> findExpired(@Param("now") LocalDateTime now, Pageable pageable);
+
+    interface ProductAvailability {
+        Long getProductId();
+        Integer getOnHand();
+        Long getReserved();
+    }
+}
@@ -0,0 +1,643 @@
+package com.jayaa.ecommerce.search;
+
+import com.jayaa.ecommerce.dto.ProductFilterRequest;
+import com.jayaa.ecommerce.dto.ProductFilterResponse.FacetCount;
+import com.jayaa.ecommerce.event.CategoryChangedEvent;
+import com.jayaa.ecommerce.event.ProductChangedEvent;
+import com.jayaa.ecommerce.event.ReviewChangedEvent;
+import com.jayaa.ecommerce.event.StockChangedEvent;
+import com.jayaa.ecommerce.model.Category;
+import com.jayaa.ecommerce.model.ProductRatingSummary;
+import com.jayaa.ecommerce.repository.CategoryRepository;
+import com.jayaa.ecommerce.repository.ProductRatingSummaryRepository;
+import com.jayaa.ecommerce.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bitmap indexes over active products for combined filtering + facet counts.
+ * Products get dense ordinals so every bitmap is a compact BitSet; filters are
+ * bitmap intersections, and only the page's rows are loaded from the database.
+ * An update keeps the product's ordinal and a removed product's ordinal is reused,
+ * so the arrays and bitmaps stay as large as the catalog, not its change history.
+ *
+ * Kept in sync by this instance's events and rebuilt every app.facets.refresh-ms to pick up
+ * products, stock and ratings changed on other instances. Like ProductSearchIndex, a rebuild
+ * reads without the lock and re-reads whatever changed meanwhile once the new state is in place.
+ */
+@Component
+public class ProductFacetIndex {
+
+    private static final int BUILD_BATCH_SIZE = 1000;
+
+    // Price buckets in cents: [0-25), [25-50), ... [1000+)
+    private static final long[] PRICE_BOUNDS = {0, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000};
+    private static final int RATING_BUCKETS = 6; // floor(average rating) 0..5
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRatingSummaryRepository ratingSummaryRepository;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private State state = new State();
+    private Set<Long> changedDuringBuild;           // product ids; non-null while a rebuild runs
+    private Set<Long> categoriesChangedDuringBuild; // category ids; non-null while a rebuild runs
+    private volatile boolean ready;
+    private final AtomicBoolean building = new AtomicBoolean();
+
+    // ========== BUILD / SYNC ==========
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        refresh();
+    }
+
+    // Retries a failed startup build; filter requests get 503 until one succeeds
+    @Scheduled(initialDelayString = "${app.facets.retry-ms:30000}", fixedDelayString = "${app.facets.retry-ms:30000}")
+    public void buildIfNotReady() {
+        if (!ready) {
+            refresh();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.facets.refresh-ms:600000}",
+            fixedDelayString = "${app.facets.refresh-ms:600000}")
+    public void refresh() {
+        if (!building.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (Exception e) {
+            System.err.println("Warning: Could not build product facet index: " + e.getMessage());
+        } finally {
+            building.set(false);
+        }
+    }
+
+    // synchronized: one build at a time owns the changed-during-build sets. Not @Transactional,
+    // so the replay sees changes committed after the batches were read
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            changedDuringBuild = new HashSet<>();
+            categoriesChangedDuringBuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        State newState;
+        try {
+            newState = buildState();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changedDuringBuild = null;
+                categoriesChangedDuringBuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        Set<Long> missed;
+        Set<Long> missedCategories;
+        lock.writeLock().lock();
+        try {
+            state = newState;
+            ready = true;
+            missed = changedDuringBuild;
+            missedCategories = categoriesChangedDuringBuild;
+            changedDuringBuild = null;
+            categoriesChangedDuringBuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // The batches may have been read before these changes committed: re-read them
+        for (Long categoryId : missedCategories) {
+            applyCategory(categoryId, categoryRepository.findById(categoryId));
+        }
+        if (!missed.isEmpty()) {
+            applyProducts(missed, loadRows(productRepository.findFacetDocumentsByIds(missed)));
+        }
+    }
+
+    private State buildState() {
+        State newState = new State();
+        loadCategoryNames(newState);
+        long afterId = 0;
+        List<ProductRepository.FacetDocument> batch;
+        do {
+            batch = productRepository.findFacetDocuments(afterId, PageRequest.of(0, BUILD_BATCH_SIZE));
+            for (Row row : loadRows(batch)) {
+                newState.add(row);
+            }
+            if (!batch.isEmpty()) {
+                afterId = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == BUILD_BATCH_SIZE);
+        return newState;
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        List<Row> rows = event.getType() == ProductChangedEvent.ChangeType.DELETED
+                ? List.of()
+                : loadRows(productRepository.findFacetDocumentsByIds(event.getProductIds()));
+        applyProducts(event.getProductIds(), rows);
+    }
+
+    // Replaces the products' rows; ids without a row (deleted or deactivated) are removed
+    private void applyProducts(Collection<Long> productIds, List<Row> rows) {
+        Set<Long> stillActive = new HashSet<>();
+        for (Row row : rows) {
+            stillActive.add(row.productId());
+        }
+
+        lock.writeLock().lock();
+        try {
+            recordChanged(productIds);
+            // Deleted or deactivated products free their ordinal; the others are updated in place
+            for (Long productId : productIds) {
+                if (!stillActive.contains(productId)) {
+                    state.remove(productId);
+                }
+            }
+            for (Row row : rows) {
+                state.add(row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock
+    private void recordChanged(Collection<Long> productIds) {
+        if (changedDuringBuild != null) {
+            changedDuringBuild.addAll(productIds);
+        }
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onStockChanged(StockChangedEvent event) {
+        List<ProductRepository.FacetDocument> docs = productRepository.findFacetDocumentsByIds(event.getProductIds());
+
+        lock.writeLock().lock();
+        try {
+            recordChanged(event.getProductIds());
+            for (ProductRepository.FacetDocument doc : docs) {
+                Integer ordinal = state.ordinalById.get(doc.getId());
+                if (ordinal != null) {
+                    state.inStock.set(ordinal, doc.getStockQuantity() > 0);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onReviewChanged(ReviewChangedEvent event) {
+        double rating = ratingSummaryRepository.findById(event.getProductId())
+                .map(ProductRatingSummary::getAverageRating)
+                .orElse(0.0);
+
+        lock.writeLock().lock();
+        try {
+            recordChanged(List.of(event.getProductId()));
+            state.setRating(event.getProductId(), rating);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        Optional<Category> category = event.getType() == CategoryChangedEvent.ChangeType.DELETED
+                ? Optional.empty()
+                : categoryRepository.findById(event.getCategoryId());
+        applyCategory(event.getCategoryId(), category);
+    }
+
+    private void applyCategory(Long categoryId, Optional<Category> category) {
+        lock.writeLock().lock();
+        try {
+            if (categoriesChangedDuringBuild != null) {
+                categoriesChangedDuringBuild.add(categoryId);
+            }
+            if (category.isPresent()) {
+                state.categoryNames.put(categoryId, category.get().getName());
+            } else {
+                state.categoryNames.remove(categoryId);
+                state.byCategory.remove(categoryId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // High-water mark of ordinals, i.e. the length of every per-ordinal array and bitmap
+    int ordinalCount() {
+        lock.readLock().lock();
+        try {
+            return state.nextOrdinal;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void loadCategoryNames(State target) {
+        for (Category category : categoryRepository.findAll()) {
+            target.categoryNames.put(category.getId(), category.getName());
+        }
+    }
+
+    // Category links + rating summaries for a batch of products (two queries)
+    private List<Row> loadRows(List<ProductRepository.FacetDocument> docs) {
+        if (docs.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = docs.stream().map(ProductRepository.FacetDocument::getId).toList();
+
+        Map<Long, List<Long>> categoriesByProduct = new HashMap<>();
+        for (ProductRepository.ProductCategoryPair pair : productRepository.findCategoryPairsByProductIds(ids)) {
+            categoriesByProduct.computeIfAbsent(pair.getProductId(), id -> new ArrayList<>()).add(pair.getCategoryId());
+        }
+        Map<Long, Double> ratings = new HashMap<>();
+        for (ProductRatingSummary summary : ratingSummaryRepository.findAllById(ids)) {
+            ratings.put(summary.getProductId(), summary.getAverageRating());
+        }
+
+        List<Row> rows = new ArrayList<>(docs.size());
+        for (ProductRepository.FacetDocument doc : docs) {
+            rows.add(new Row(doc.getId(), doc.getPrice(), doc.getStockQuantity(),
+                    categoriesByProduct.getOrDefault(doc.getId(), List.of()),
+                    ratings.getOrDefault(doc.getId(), 0.0)));
+        }
+        return rows;
+    }
+
+    private record Row(Long productId, BigDecimal price, int stock, List<Long> categoryIds, double rating) {
+    }
+
+    // ========== QUERY ==========
+
+    public Result filter(ProductFilterRequest request) {
+        String text = request.getQ() != null && !request.getQ().isBlank() ? request.getQ() : null;
+        int[] rankedByText = text != null ? searchIndex.search(text) : null;
+
+        lock.readLock().lock();
+        try {
+            State s = state;
+
+            BitSet categoryBits = s.categoryFilter(request.getCategoryIds());
+            BitSet priceBits = s.priceFilter(toCents(request.getMinPrice()), toCents(request.getMaxPrice()));
+            BitSet ratingBits = s.ratingFilter(request.getMinRating());
+            BitSet stockBits = Boolean.TRUE.equals(request.getInStock()) ? s.inStock : null;
+            BitSet textBits = rankedByText != null ? s.toBits(rankedByText) : null;
+
+            BitSet matches = s.intersect(categoryBits, priceBits, ratingBits, stockBits, textBits);
+
+            Result result = new Result();
+            result.productIds = s.sortedIds(matches, request.getSort(), rankedByText);
+            result.categories = s.categoryFacets(s.intersect(priceBits, ratingBits, stockBits, textBits));
+            result.priceRanges = s.priceFacets(s.intersect(categoryBits, ratingBits, stockBits, textBits));
+            result.ratings = s.ratingFacets(s.intersect(categoryBits, priceBits, stockBits, textBits));
+            BitSet forStock = s.intersect(categoryBits, priceBits, ratingBits, textBits);
+            forStock.and(s.inStock);
+            result.inStock = new FacetCount("true", "In stock", forStock.cardinality());
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Long toCents(BigDecimal price) {
+        return price == null ? null : price.movePointRight(2).longValue();
+    }
+
+    public static class Result {
+        private long[] productIds;
+        private List<FacetCount> categories;
+        private List<FacetCount> priceRanges;
+        private List<FacetCount> ratings;
+        private FacetCount inStock;
+
+        public long[] getProductIds() { return productIds; }
+        public List<FacetCount> getCategories() { return categories; }
+        public List<FacetCount> getPriceRanges() { return priceRanges; }
+        public List<FacetCount> getRatings() { return ratings; }
+        public FacetCount getInStock() { return inStock; }
+    }
+
+    // ========== BITMAP STATE (guarded by lock) ==========
+
+    private static final class State {
+        private static final long[] NO_CATEGORIES = new long[0];
+
+        private final Map<Long, Integer> ordinalById = new HashMap<>();
+        private long[] idByOrdinal = new long[1024];
+        private long[] priceCents = new long[1024];
+        private float[] rating = new float[1024];
+        private long[][] categoryIds = new long[1024][]; // so remove() only touches the product's categories
+        private int nextOrdinal;
+
+        private final BitSet alive = new BitSet();
+        private final BitSet free = new BitSet(); // ordinals of removed products, taken lowest first
+        private final BitSet inStock = new BitSet();
+        private final Map<Long, BitSet> byCategory = new HashMap<>();
+        private final BitSet[] byPriceBucket = newBitSets(PRICE_BOUNDS.length);
+        private final BitSet[] byRatingBucket = newBitSets(RATING_BUCKETS);
+        private final Map<Long, String> categoryNames = new HashMap<>();
+
+        private static BitSet[] newBitSets(int n) {
+            BitSet[] sets = new BitSet[n];
+            for (int i = 0; i < n; i++) {
+                sets[i] = new BitSet();
+            }
+            return sets;
+        }
+
+        // Adds the product, or re-indexes it under its current ordinal
+        void add(Row row) {
+            Long productId = row.productId();
+            double avgRating = row.rating();
+            Integer existing = ordinalById.get(productId);
+            int ordinal;
+            if (existing != null) {
+                ordinal = existing;
+                clearBits(ordinal);
+            } else {
+                ordinal = takeOrdinal();
+                ordinalById.put(productId, ordinal);
+            }
+            idByOrdinal[ordinal] = productId;
+            priceCents[ordinal] = toCents(row.price());
+            rating[ordinal] = (float) avgRating;
+            categoryIds[ordinal] = row.categoryIds().stream().mapToLong(Long::longValue).toArray();
+
+            alive.set(ordinal);
+            inStock.set(ordinal, row.stock() > 0);
+            byPriceBucket[priceBucket(priceCents[ordinal])].set(ordinal);
+            byRatingBucket[ratingBucket(avgRating)].set(ordinal);
+            for (long categoryId : categoryIds[ordinal]) {
+                byCategory.computeIfAbsent(categoryId, id -> new BitSet()).set(ordinal);
+            }
+        }
+
+        void remove(Long productId) {
+            Integer ordinal = ordinalById.remove(productId);
+            if (ordinal == null) {
+                return;
+            }
+            clearBits(ordinal);
+            free.set(ordinal);
+        }
+
+        private int takeOrdinal() {
+            int ordinal = free.nextSetBit(0);
+            if (ordinal >= 0) {
+                free.clear(ordinal);
+                return ordinal;
+            }
+            ordinal = nextOrdinal++;
+            if (ordinal == idByOrdinal.length) {
+                idByOrdinal = Arrays.copyOf(idByOrdinal, ordinal * 2);
+                priceCents = Arrays.copyOf(priceCents, ordinal * 2);
+                rating = Arrays.copyOf(rating, ordinal * 2);
+                categoryIds = Arrays.copyOf(categoryIds, ordinal * 2);
+            }
+            return ordinal;
+        }
+
+        private void clearBits(int ordinal) {
+            alive.clear(ordinal);
+            inStock.clear(ordinal);
+            byPriceBucket[priceBucket(priceCents[ordinal])].clear(ordinal);
+            byRatingBucket[ratingBucket(rating[ordinal])].clear(ordinal);
+            for (long categoryId : categoryIds[ordinal]) {
+                BitSet bits = byCategory.get(categoryId);
+                if (bits != null) {
+                    bits.clear(ordinal);
+                }
+            }
+            categoryIds[ordinal] = NO_CATEGORIES;
+        }
+
+        void setRating(Long productId, double avgRating) {
+            Integer ordinal = ordinalById.get(productId);
+            if (ordinal == null) {
+                return;
+            }
+            byRatingBucket[ratingBucket(rating[ordinal])].clear(ordinal);
+            rating[ordinal] = (float) avgRating;
+            byRatingBucket[ratingBucket(avgRating)].set(ordinal);
+        }
+
+        // ----- filters (null = dimension not filtered) -----
+
+        BitSet categoryFilter(Set<Long> categoryIds) {
+            if (categoryIds == null || categoryIds.isEmpty()) {
+                return null;
+            }
+            BitSet bits = new BitSet();
+            for (Long categoryId : categoryIds) {
+                BitSet categoryBits = byCategory.get(categoryId);
+                if (categoryBits != null) {
+                    bits.or(categoryBits);
+                }
+            }
+            return bits;
+        }
+
+        BitSet priceFilter(Long minCents, Long maxCents) {
+            if (minCents == null && maxCents == null) {
+                return null;
+            }
+            long min = minCents != null ? minCents : 0;
+            long max = maxCents != null ? maxCents : Long.MAX_VALUE;
+
+            BitSet bits = new BitSet();
+            for (int bucket = 0; bucket < PRICE_BOUNDS.length; bucket++) {
+                long lower = PRICE_BOUNDS[bucket];
+                long upper = bucket + 1 < PRICE_BOUNDS.length ? PRICE_BOUNDS[bucket + 1] - 1 : Long.MAX_VALUE;
+                if (upper < min || lower > max) {
+                    continue;
+                }
+                if (lower >= min && upper <= max) {
+                    bits.or(byPriceBucket[bucket]);
+                } else {
+                    // Boundary bucket: check exact prices
+                    BitSet candidates = byPriceBucket[bucket];
+                    for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                        if (priceCents[i] >= min && priceCents[i] <= max) {
+                            bits.set(i);
+                        }
+                    }
+                }
+            }
+            return bits;
+        }
+
+        BitSet ratingFilter(Double minRating) {
+            if (minRating == null || minRating <= 0) {
+                return null;
+            }
+            BitSet bits = new BitSet();
+            int boundary = ratingBucket(minRating);
+            for (int bucket = boundary + 1; bucket < RATING_BUCKETS; bucket++) {
+                bits.or(byRatingBucket[bucket]);
+            }
+            BitSet candidates = byRatingBucket[boundary];
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                if (rating[i] >= minRating) {
+                    bits.set(i);
+                }
+            }
+            return bits;
+        }
+
+        BitSet toBits(int[] productIds) {
+            BitSet bits = new BitSet();
+            for (int productId : productIds) {
+                Integer ordinal = ordinalById.get((long) productId);
+                if (ordinal != null) {
+                    bits.set(ordinal);
+                }
+            }
+            return bits;
+        }
+
+        BitSet intersect(BitSet... filters) {
+            BitSet bits = (BitSet) alive.clone();
+            for (BitSet filter : filters) {
+                if (filter != null) {
+                    bits.and(filter);
+                }
+            }
+            return bits;
+        }
+
+        // ----- facets -----
+
+        List<FacetCount> categoryFacets(BitSet base) {
+            List<FacetCount> facets = new ArrayList<>();
+            for (Map.Entry<Long, BitSet> entry : byCategory.entrySet()) {
+                BitSet bits = (BitSet) entry.getValue().clone();
+                bits.and(base);
+                int count = bits.cardinality();
+                String name = categoryNames.get(entry.getKey());
+                if (count > 0 && name != null) {
+                    facets.add(new FacetCount(String.valueOf(entry.getKey()), name, count));
+                }
+            }
+            facets.sort(Comparator.comparingLong(FacetCount::getCount).reversed()
+                    .thenComparing(FacetCount::getLabel));
+            return facets;
+        }
+
+        List<FacetCount> priceFacets(BitSet base) {
+            List<FacetCount> facets = new ArrayList<>();
+            for (int bucket = 0; bucket < PRICE_BOUNDS.length; bucket++) {
+                BitSet bits = (BitSet) byPriceBucket[bucket].clone();
+                bits.and(base);
+                long lower = PRICE_BOUNDS[bucket] / 100;
+                String value = bucket + 1 < PRICE_BOUNDS.length
+                        ? lower + "-" + PRICE_BOUNDS[bucket + 1] / 100
+                        : lower + "+";
+                facets.add(new FacetCount(value, value, bits.cardinality()));
+            }
+            return facets;
+        }
+
+        // Cumulative "N stars & up" counts
+        List<FacetCount> ratingFacets(BitSet base) {
+            List<FacetCount> facets = new ArrayList<>();
+            BitSet atLeast = new BitSet();
+            for (int stars = RATING_BUCKETS - 1; stars >= 1; stars--) {
+                atLeast.or(byRatingBucket[stars]);
+                if (stars < RATING_BUCKETS - 1) {
+                    BitSet bits = (BitSet) atLeast.clone();
+                    bits.and(base);
+                    facets.add(new FacetCount(String.valueOf(stars), stars + " stars & up", bits.cardinality()));
+                }
+            }
+            return facets;
+        }
+
+        // ----- ordering -----
+
+        long[] sortedIds(BitSet matches, String sort, int[] rankedByText) {
+            String order = sort != null ? sort : (rankedByText != null ? "relevance" : "newest");
+
+            if ("relevance".equals(order) && rankedByText != null) {
+                long[] ids = new long[matches.cardinality()];
+                int n = 0;
+                for (int productId : rankedByText) {
+                    Integer ordinal = ordinalById.get((long) productId);
+                    if (ordinal != null && matches.get(ordinal)) {
+                        ids[n++] = productId;
+                    }
+                }
+                return ids;
+            }
+
+            Integer[] ordinals = matches.stream().boxed().toArray(Integer[]::new);
+            Comparator<Integer> newest = Comparator.comparingLong((Integer o) -> idByOrdinal[o]).reversed();
+            Comparator<Integer> comparator = switch (order) {
+                case "price_asc" -> Comparator.comparingLong((Integer o) -> priceCents[o]).thenComparing(newest);
+                case "price_desc" -> Comparator.comparingLong((Integer o) -> -priceCents[o]).thenComparing(newest);
+                case "rating" -> Comparator.comparingDouble((Integer o) -> -rating[o]).thenComparing(newest);
+                default -> newest;
+            };
+            Arrays.sort(ordinals, comparator);
+
+            long[] ids = new long[ordinals.length];
+            for (int i = 0; i < ordinals.length; i++) {
+                ids[i] = idByOrdinal[ordinals[i]];
+            }
+            return ids;
+        }
+
+        private static int priceBucket(long cents) {
+            int bucket = 0;
+            while (bucket + 1 < PRICE_BOUNDS.length && cents >= PRICE_BOUNDS[bucket + 1]) {
+                bucket++;
+            }
+            return bucket;
+        }
+
+        private static int ratingBucket(double avgRating) {
+            return Math.max(0, Math.min(RATING_BUCKETS - 1, (int) Math.floor(avgRating)));
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.jayaa.ecommerce.search;
+
+import com.jayaa.ecommerce.event.ProductChangedEvent;
+import com.jayaa.ecommerce.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over product name + description.
+ * term -> posting list (sorted int product ids + weighted term frequency),
+ * ranked with BM25. Built at startup, kept in sync via ProductChangedEvent and
+ * rebuilt periodically to pick up changes committed by other instances.
+ *
+ * A rebuild reads the catalog without holding the lock. Products changed while it
+ * runs are recorded and re-read after the swap, so those events are not lost.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final int BUILD_BATCH_SIZE = 1000;
+    private static final int NAME_WEIGHT = 3;          // a name hit counts like 3 description hits
+    private static final int MAX_PREFIX_EXPANSIONS = 256;
+    private static final float PREFIX_MATCH_FACTOR = 0.5f;
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private TreeMap<String, PostingList> postings = new TreeMap<>();
+    private Map<Integer, Document> documents = new HashMap<>();
+    private long totalLength;
+    private Set<Long> changedDuringBuild; // non-null while a rebuild runs
+    private volatile boolean ready;
+
+    // ========== BUILD / SYNC ==========
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        refresh();
+    }
+
+    @Scheduled(initialDelayString = "${app.search.refresh-ms:600000}",
+            fixedDelayString = "${app.search.refresh-ms:600000}")
+    public void refresh() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            System.err.println("Warning: Could not build product search index: " + e.getMessage());
+        }
+    }
+
+    // synchronized: one build at a time owns changedDuringBuild. Deliberately not @Transactional:
+    // the replay must see changes committed after the batches were read, not the build's snapshot
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            changedDuringBuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        TreeMap<String, PostingList> newPostings = new TreeMap<>();
+        Map<Integer, Document> newDocuments = new HashMap<>();
+        long newTotalLength = 0;
+
+        long afterId = 0;
+        List<ProductRepository.SearchDocument> batch;
+        do {
+            batch = productRepository.findSearchDocuments(afterId, PageRequest.of(0, BUILD_BATCH_SIZE));
+            for (ProductRepository.SearchDocument doc : batch) {
+                newTotalLength += addDocument(newPostings, newDocuments, doc);
+                afterId = doc.getId();
+            }
+        } while (batch.size() == BUILD_BATCH_SIZE);
+
+        Set<Long> missed;
+        lock.writeLock().lock();
+        try {
+            postings = newPostings;
+            documents = newDocuments;
+            totalLength = newTotalLength;
+            missed = changedDuringBuild;
+            changedDuringBuild = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // The batches may have been read before these changes committed: re-read them
+        if (!missed.isEmpty()) {
+            apply(missed, productRepository.findSearchDocumentsByIds(missed));
+        }
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        List<ProductRepository.SearchDocument> docs = event.getType() == ProductChangedEvent.ChangeType.DELETED
+                ? List.of()
+                : productRepository.findSearchDocumentsByIds(event.getProductIds());
+        apply(event.getProductIds(), docs);
+    }
+
+    // Replaces the products' documents; ids without a document are removed
+    private void apply(Collection<Long> productIds, List<ProductRepository.SearchDocument> docs) {
+        lock.writeLock().lock();
+        try {
+            if (changedDuringBuild != null) {
+                changedDuringBuild.addAll(productIds);
+            }
+            for (Long productId : productIds) {
+                totalLength -= removeDocument(Math.toIntExact(productId));
+            }
+            for (ProductRepository.SearchDocument doc : docs) {
+                totalLength += addDocument(postings, documents, doc);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // ========== QUERY ==========
+
+    /**
+     * Returns matching product ids, best match first.
+     * Every query term must match an indexed term exactly or as a prefix; exact hits score higher.
+     */
+    public int[] search(String query) {
+        List<String> queryTerms = TextTokenizer.tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return new int[0];
+        }
+
+        lock.readLock().lock();
+        try {
+            float avgLength = documents.isEmpty() ? 1f : (float) totalLength / documents.size();
+
+            long[] matches = null;
+            for (String term : new LinkedHashSet<>(queryTerms)) {
+                long[] termMatches = scoreTerm(term, avgLength);
+                matches = matches == null ? termMatches : intersect(matches, termMatches);
+                if (matches.length == 0) {
+                    return new int[0];
+                }
+            }
+            return rank(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Each match is packed as (docId << 32 | floatBits(score)), sorted by docId
+    private long[] scoreTerm(String term, float avgLength) {
+        List<PostingList> lists = new ArrayList<>();
+        List<Float> factors = new ArrayList<>();
+
+        PostingList exact = postings.get(term);
+        if (exact != null) {
+            lists.add(exact);
+            factors.add(1f);
+        }
+        for (Map.Entry<String, PostingList> entry : postings.tailMap(term, false).entrySet()) {
+            if (!entry.getKey().startsWith(term) || lists.size() >= MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+            lists.add(entry.getValue());
+            factors.add(PREFIX_MATCH_FACTOR);
+        }
+
+        int total = 0;
+        for (PostingList list : lists) {
+            total += list.size;
+        }
+
+        long[] packed = new long[total];
+        int n = 0;
+        for (int i = 0; i < lists.size(); i++) {
+            PostingList list = lists.get(i);
+            float idf = idf(list.size);
+            for (int j = 0; j < list.size; j++) {
+                int docId = list.docIds[j];
+                float tf = list.freqs[j];
+                float norm = K1 * (1 - B + B * documents.get(docId).length / avgLength);
+                float score = factors.get(i) * idf * (tf * (K1 + 1)) / (tf + norm);
+                packed[n++] = pack(docId, score);
+            }
+        }
+        Arrays.sort(packed);
+
+        // Merge duplicate doc ids coming from several prefix expansions
+        int out = 0;
+        for (int i = 0; i < n; i++) {
+            if (out > 0 && docId(packed[out - 1]) == docId(packed[i])) {
+                packed[out - 1] = pack(docId(packed[i]), score(packed[out - 1]) + score(packed[i]));
+            } else {
+                packed[out++] = packed[i];
+            }
+        }
+        return Arrays.copyOf(packed, out);
+    }
+
+    private long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            int docA = docId(a[i]);
+            int docB = docId(b[j]);
+            if (docA == docB) {
+                result[n++] = pack(docA, score(a[i]) + score(b[j]));
+                i++;
+                j++;
+            } else if (docA < docB) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private int[] rank(long[] matches) {
+        Integer[] order = new Integer[matches.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (x, y) -> {
+            int byScore = Float.compare(score(matches[y]), score(matches[x]));
+            return byScore != 0 ? byScore : Integer.compare(docId(matches[x]), docId(matches[y]));
+        });
+
+        int[] ranked = new int[matches.length];
+        for (int i = 0; i < order.length; i++) {
+            ranked[i] = docId(matches[order[i]]);
+        }
+        return ranked;
+    }
+
+    private float idf(int docFrequency) {
+        int n = documents.size();
+        return (float) Math.log(1 + (n - docFrequency + 0.5) / (docFrequency + 0.5));
+    }
+
+    private static long pack(int docId, float score) {
+        return ((long) docId << 32) | (Float.floatToIntBits(score) & 0xFFFFFFFFL);
+    }
+
+    private static int docId(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    private static float score(long packed) {
+        return Float.intBitsToFloat((int) packed);
+    }
+
+    // ========== INDEX MAINTENANCE (caller holds write lock or owns the maps) ==========
+
+    private static int addDocument(
+            TreeMap<String, PostingList> postings,
+            Map<Integer, Document> documents,
+            ProductRepository.SearchDocument doc
+    ) {
+        int docId = Math.toIntExact(doc.getId());
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : TextTokenizer.tokenize(doc.getName())) {
+            frequencies.merge(term, NAME_WEIGHT, Integer::sum);
+        }
+        for (String term : TextTokenizer.tokenize(doc.getDescription())) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+
+        int length = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), t -> new PostingList()).put(docId, entry.getValue());
+            length += entry.getValue();
+        }
+        documents.put(docId, new Document(frequencies.keySet().toArray(new String[0]), length));
+        return length;
+    }
+
+    private int removeDocument(int docId) {
+        Document doc = documents.remove(docId);
+        if (doc == null) {
+            return 0;
+        }
+        for (String term : doc.terms) {
+            PostingList list = postings.get(term);
+            if (list != null && list.remove(docId) && list.size == 0) {
+                postings.remove(term);
+            }
+        }
+        return doc.length;
+    }
+
+    private record Document(String[] terms, int length) {
+    }
+
+    // Sorted primitive arrays; appends during a full build are O(1)
+    private static final class PostingList {
+        private int[] docIds = new int[4];
+        private int[] freqs = new int[4];
+        private int size;
+
+        void put(int docId, int freq) {
+            int i = Arrays.binarySearch(docIds, 0, size, docId);
+            if (i >= 0) {
+                freqs[i] = freq;
+                return;
+            }
+            i = -i - 1;
+            if (size == docIds.length) {
+                docIds = Arrays.copyOf(docIds, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            System.arraycopy(docIds, i, docIds, i + 1, size - i);
+            System.arraycopy(freqs, i, freqs, i + 1, size - i);
+            docIds[i] = docId;
+            freqs[i] = freq;
+            size++;
+        }
+
+        boolean remove(int docId) {
+            int i = Arrays.binarySearch(docIds, 0, size, docId);
+            if (i < 0) {
+                return false;
+            }
+            System.arraycopy(docIds, i + 1, docIds, i, size - i - 1);
+            System.arraycopy(freqs, i + 1, freqs, i, size - i - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.jayaa.ecommerce.search;
+
+import com.jayaa.ecommerce.dto.SuggestionResponse;
+import com.jayaa.ecommerce.event.CategoryChangedEvent;
+import com.jayaa.ecommerce.event.ProductChangedEvent;
+import com.jayaa.ecommerce.model.Category;
+import com.jayaa.ecommerce.repository.CategoryRepository;
+import com.jayaa.ecommerce.repository.OrderItemRepository;
+import com.jayaa.ecommerce.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.util.*;
+
+/**
+ * Search-as-you-type completions over active product names and category names.
+ * Immutable sorted-array snapshot (one key per word start of each name), swapped
+ * atomically; reads never touch the database or take a lock.
+ * Popularity = units sold for products, active product count for categories.
+ *
+ * Change events only patch the entry map. A background job rebuilds the snapshot
+ * at most once per app.suggest.publish-ms, however many changes arrived, so a bulk
+ * import doesn't sort the whole catalog once per product on the committing thread.
+ * A full rebuild (popularity refresh) reads without the lock; products and categories
+ * changed meanwhile are re-read after its entries are swapped in, so those events survive.
+ */
+@Component
+public class ProductSuggestIndex {
+
+    public static final int MAX_LIMIT = 20;
+
+    private static final int BUILD_BATCH_SIZE = 1000;
+    private static final int PRECOMPUTED_PREFIX_LENGTH = 2;
+    private static final String PRODUCT = "PRODUCT";
+    private static final String CATEGORY = "CATEGORY";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    // Source of truth for snapshots, guarded by "this"
+    private Map<String, Entry> entries = new HashMap<>();
+    private long changes;   // bumped on every change to entries, guarded by "this"
+    private long published; // value of changes the current snapshot was built from, guarded by "this"
+    private Set<Long> changedDuringBuild; // product ids; non-null while a rebuild runs, guarded by "this"
+    private boolean categoriesChangedDuringBuild; // guarded by "this"
+    private final Object rebuildLock = new Object(); // one rebuild at a time
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    // ========== BUILD / SYNC ==========
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        refresh();
+    }
+
+    // Re-reads popularity (sales move constantly) every few minutes
+    @Scheduled(initialDelayString = "${app.suggest.refresh-ms:600000}",
+            fixedDelayString = "${app.suggest.refresh-ms:600000}")
+    public void refresh() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            System.err.println("Warning: Could not build suggestion index: " + e.getMessage());
+        }
+    }
+
+    // Not @Transactional: the replay must see changes committed after the batches were read
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                changedDuringBuild = new HashSet<>();
+                categoriesChangedDuringBuild = false;
+            }
+            try {
+                rebuildEntries();
+            } finally {
+                synchronized (this) {
+                    changedDuringBuild = null;
+                }
+            }
+        }
+        publishChanges();
+    }
+
+    private void rebuildEntries() {
+        Map<Long, Long> unitsSold = new HashMap<>();
+        for (OrderItemRepository.ProductUnitsSold row : orderItemRepository.sumUnitsSoldByProduct()) {
+            unitsSold.put(row.getProductId(), row.getUnitsSold());
+        }
+
+        Map<String, Entry> newEntries = new HashMap<>();
+        long afterId = 0;
+        List<ProductRepository.SuggestDocument> batch;
+        do {
+            batch = productRepository.findSuggestDocuments(afterId, PageRequest.of(0, BUILD_BATCH_SIZE));
+            for (ProductRepository.SuggestDocument doc : batch) {
+                Entry entry = productEntry(doc, unitsSold.getOrDefault(doc.getId(), 0L));
+                newEntries.put(entry.key(), entry);
+                afterId = doc.getId();
+            }
+        } while (batch.size() == BUILD_BATCH_SIZE);
+
+        for (Entry entry : loadCategoryEntries()) {
+            newEntries.put(entry.key(), entry);
+        }
+
+        Set<Long> missed;
+        boolean missedCategories;
+        synchronized (this) {
+            entries = newEntries;
+            changes++;
+            missed = changedDuringBuild;
+            missedCategories = categoriesChangedDuringBuild;
+            changedDuringBuild = null;
+        }
+
+        // The batches may have been read before these changes committed: re-read them
+        if (!missed.isEmpty()) {
+            applyProducts(missed, productRepository.findSuggestDocumentsByIds(missed));
+        }
+        if (missedCategories) {
+            applyCategories(loadCategoryEntries());
+        }
+    }
+
+    // Coalesces every change since the last run into one snapshot build (outside the lock)
+    @Scheduled(initialDelayString = "${app.suggest.publish-ms:1000}",
+            fixedDelayString = "${app.suggest.publish-ms:1000}")
+    public void publishChanges() {
+        List<Entry> current;
+        long version;
+        synchronized (this) {
+            if (published == changes) {
+                return;
+            }
+            current = new ArrayList<>(entries.values());
+            version = changes;
+        }
+
+        Snapshot built = Snapshot.build(current);
+        synchronized (this) {
+            // A concurrent publish may already have swapped in a newer snapshot
+            if (version > published) {
+                snapshot = built;
+                published = version;
+            }
+        }
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        List<ProductRepository.SuggestDocument> docs = event.getType() == ProductChangedEvent.ChangeType.DELETED
+                ? List.of()
+                : productRepository.findSuggestDocumentsByIds(event.getProductIds());
+        applyProducts(event.getProductIds(), docs);
+    }
+
+    // Replaces the products' entries (keeping their popularity); ids without a document are removed
+    private void applyProducts(Collection<Long> productIds, List<ProductRepository.SuggestDocument> docs) {
+        synchronized (this) {
+            if (changedDuringBuild != null) {
+                changedDuringBuild.addAll(productIds);
+            }
+            Map<Long, Long> popularity = new HashMap<>();
+            for (Long productId : productIds) {
+                Entry previous = entries.remove(PRODUCT + ":" + productId);
+                if (previous != null) {
+                    popularity.put(productId, previous.popularity());
+                }
+            }
+            for (ProductRepository.SuggestDocument doc : docs) {
+                Entry entry = productEntry(doc, popularity.getOrDefault(doc.getId(), 0L));
+                entries.put(entry.key(), entry);
+            }
+            changes++;
+        }
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        applyCategories(loadCategoryEntries());
+    }
+
+    private void applyCategories(List<Entry> categoryEntries) {
+        synchronized (this) {
+            if (changedDuringBuild != null) {
+                categoriesChangedDuringBuild = true;
+            }
+            entries.values().removeIf(entry -> CATEGORY.equals(entry.type()));
+            for (Entry entry : categoryEntries) {
+                entries.put(entry.key(), entry);
+            }
+            changes++;
+        }
+    }
+
+    private List<Entry> loadCategoryEntries() {
+        Map<Long, Long> productCounts = new HashMap<>();
+        for (CategoryRepository.CategoryProductCount row : categoryRepository.countActiveProductsGroupedByCategory()) {
+            productCounts.put(row.getCategoryId(), row.getProductCount());
+        }
+
+        List<Entry> categoryEntries = new ArrayList<>();
+        for (Category category : categoryRepository.findAll()) {
+            categoryEntries.add(new Entry(CATEGORY, category.getId(), category.getName(), category.getSlug(),
+                    productCounts.getOrDefault(category.getId(), 0L)));
+        }
+        return categoryEntries;
+    }
+
+    private static Entry productEntry(ProductRepository.SuggestDocument doc, long popularity) {
+        return new Entry(PRODUCT, doc.getId(), doc.getName(), doc.getSlug(), popularity);
+    }
+
+    // ========== QUERY ==========
+
+    public List<SuggestionResponse> suggest(String prefix, int limit) {
+        String normalized = String.join(" ", TextTokenizer.tokenize(prefix));
+        int k = Math.max(1, Math.min(limit, MAX_LIMIT));
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+
+        Snapshot current = snapshot;
+        Entry[] top = normalized.length() <= PRECOMPUTED_PREFIX_LENGTH
+                ? current.shortPrefixTop.getOrDefault(normalized, Snapshot.NO_ENTRIES)
+                : current.topK(normalized, k);
+
+        List<SuggestionResponse> suggestions = new ArrayList<>(Math.min(k, top.length));
+        for (int i = 0; i < top.length && i < k; i++) {
+            Entry entry = top[i];
+            suggestions.add(new SuggestionResponse(entry.text(), entry.type(), entry.id(), entry.slug()));
+        }
+        return suggestions;
+    }
+
+    // ========== SNAPSHOT ==========
+
+    private record Entry(String type, Long id, String text, String slug, long popularity) {
+
+        String key() {
+            return type + ":" + id;
+        }
+    }
+
+    private static final Comparator<Entry> BY_POPULARITY = Comparator
+            .comparingLong(Entry::popularity).reversed()
+            .thenComparing(Entry::text)
+            .thenComparing(Entry::key);
+
+    private static final class Snapshot {
+
+        static final Entry[] NO_ENTRIES = new Entry[0];
+        static final Snapshot EMPTY = new Snapshot(new String[0], NO_ENTRIES, Map.of());
+
+        // keys[i] is a normalized name suffix starting at a word boundary, owned by owners[i]
+        private final String[] keys;
+        private final Entry[] owners;
+        private final Map<String, Entry[]> shortPrefixTop;
+
+        private Snapshot(String[] keys, Entry[] owners, Map<String, Entry[]> shortPrefixTop) {
+            this.keys = keys;
+            this.owners = owners;
+            this.shortPrefixTop = shortPrefixTop;
+        }
+
+        static Snapshot build(Collection<Entry> entries) {
+            List<Map.Entry<String, Entry>> pairs = new ArrayList<>();
+            for (Entry entry : entries) {
+                List<String> words = TextTokenizer.tokenize(entry.text());
+                for (int i = 0; i < words.size(); i++) {
+                    pairs.add(Map.entry(String.join(" ", words.subList(i, words.size())), entry));
+                }
+            }
+            pairs.sort(Map.Entry.comparingByKey());
+
+            String[] keys = new String[pairs.size()];
+            Entry[] owners = new Entry[pairs.size()];
+            for (int i = 0; i < pairs.size(); i++) {
+                keys[i] = pairs.get(i).getKey();
+                owners[i] = pairs.get(i).getValue();
+            }
+
+            // Precompute answers for the very short prefixes whose ranges are huge
+            Map<String, Set<Entry>> byShortPrefix = new HashMap<>();
+            for (int i = 0; i < keys.length; i++) {
+                for (int len = 1; len <= PRECOMPUTED_PREFIX_LENGTH && len <= keys[i].length(); len++) {
+                    byShortPrefix.computeIfAbsent(keys[i].substring(0, len), p -> new HashSet<>()).add(owners[i]);
+                }
+            }
+            Map<String, Entry[]> shortPrefixTop = new HashMap<>();
+            byShortPrefix.forEach((prefix, candidates) -> shortPrefixTop.put(prefix, candidates.stream()
+                    .sorted(BY_POPULARITY)
+                    .limit(MAX_LIMIT)
+                    .toArray(Entry[]::new)));
+
+            return new Snapshot(keys, owners, shortPrefixTop);
+        }
+
+        Entry[] topK(String prefix, int k) {
+            int from = lowerBound(prefix);
+            PriorityQueue<Entry> heap = new PriorityQueue<>(k + 1, BY_POPULARITY.reversed());
+            Set<Entry> inHeap = new HashSet<>();
+
+            for (int i = from; i < keys.length && keys[i].startsWith(prefix); i++) {
+                Entry candidate = owners[i];
+                if (inHeap.contains(candidate)) {
+                    continue;
+                }
+                if (heap.size() < k) {
+                    heap.add(candidate);
+                    inHeap.add(candidate);
+                } else if (BY_POPULARITY.compare(candidate, heap.peek()) < 0) {
+                    inHeap.remove(heap.poll());
+                    heap.add(candidate);
+                    inHeap.add(candidate);
+                }
+            }
+
+            Entry[] top = heap.toArray(NO_ENTRIES);
+            Arrays.sort(top, BY_POPULARITY);
+            return top;
+        }
+
+        private int lowerBound(String prefix) {
+            int lo = 0;
+            int hi = keys.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid].compareTo(prefix) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.jayaa.ecommerce.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits text into lowercase, accent-free alphanumeric terms.
+ * Example: "Café Crème 2-in-1" -> [cafe, creme, 2, in, 1]
+ */
+public final class TextTokenizer {
+
+    private TextTokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+
+        String normalized = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                term.append(c);
+            } else if (Character.getType(c) != Character.NON_SPACING_MARK && term.length() > 0) {
+                terms.add(term.toString());
+                term.setLength(0);
+            }
+        }
+        if (term.length() > 0) {
+            terms.add(term.toString());
+        }
+        return terms;
+    }
+}
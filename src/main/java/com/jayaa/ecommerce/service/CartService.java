@@ -2,6 +2,7 @@ package com.jayaa.ecommerce.service;
 
 import com.jayaa.ecommerce.dto.*;
 import com.jayaa.ecommerce.exception.*;
+import com.jayaa.ecommerce.inventory.StockReservationService;
 import com.jayaa.ecommerce.model.*;
 import com.jayaa.ecommerce.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,6 +27,9 @@ public class CartService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private StockReservationService stockReservationService;
+
     // ⭐ GET CART
     @Transactional(readOnly = true)
     public CartResponse getMyCart() {
@@ -52,7 +56,7 @@ public class CartService {
         return response;
     }
 
-    // ⭐ ADD TO CART (with stock check)
+    // ⭐ ADD TO CART (reserves the stock for a while)
     public CartItemResponse addToCart(AddToCartRequest request) {
         Long userId = getCurrentUserId();
 
@@ -64,13 +68,6 @@ public class CartService {
             throw new BadRequestException("Product is not available");
         }
 
-        // Check stock availability
-        if (product.getStockQuantity() < request.getQuantity()) {
-            throw new InsufficientStockException(
-                    "Insufficient stock. Available: " + product.getStockQuantity()
-            );
-        }
-
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
@@ -80,21 +77,16 @@ public class CartService {
                 .orElse(null);
 
         if (cartItem != null) {
-            // Update quantity
+            // Update quantity; the hold grows with it (throws InsufficientStockException)
             int newQuantity = cartItem.getQuantity() + request.getQuantity();
-
-            // Check stock again for new quantity
-            if (product.getStockQuantity() < newQuantity) {
-                throw new InsufficientStockException(
-                        "Insufficient stock. Available: " + product.getStockQuantity() +
-                                ", Already in cart: " + cartItem.getQuantity()
-                );
-            }
+            stockReservationService.reserve(userId, product.getId(), newQuantity);
 
             cartItem.setQuantity(newQuantity);
             CartItem updated = cartItemRepository.save(cartItem);
             return convertToCartItemResponse(updated);
         } else {
+            stockReservationService.reserve(userId, product.getId(), request.getQuantity());
+
             // Add new item
             CartItem newItem = new CartItem();
             newItem.setUser(user);
@@ -113,14 +105,8 @@ public class CartService {
         CartItem cartItem = cartItemRepository.findByUserIdAndProductId(userId, productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Item not found in cart"));
 
-        Product product = cartItem.getProduct();
-
-        // Check stock for new quantity
-        if (product.getStockQuantity() < request.getQuantity()) {
-            throw new InsufficientStockException(
-                    "Insufficient stock. Available: " + product.getStockQuantity()
-            );
-        }
+        // Resize the hold (throws InsufficientStockException)
+        stockReservationService.reserve(userId, productId, request.getQuantity());
 
         cartItem.setQuantity(request.getQuantity());
         CartItem updated = cartItemRepository.save(cartItem);
@@ -135,12 +121,14 @@ public class CartService {
                 .orElseThrow(() -> new ResourceNotFoundException("Item not found in cart"));
 
         cartItemRepository.delete(cartItem);
+        stockReservationService.release(userId, productId);
     }
 
     // ⭐ CLEAR CART
     public void clearCart() {
         Long userId = getCurrentUserId();
         cartItemRepository.deleteByUserId(userId);
+        stockReservationService.releaseAll(userId);
     }
 
     // ========== HELPER METHODS ==========
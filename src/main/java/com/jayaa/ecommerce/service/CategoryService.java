@@ -2,14 +2,19 @@ package com.jayaa.ecommerce.service;
 
 import com.jayaa.ecommerce.dto.CategoryRequest;
 import com.jayaa.ecommerce.dto.CategoryResponse;
+import com.jayaa.ecommerce.dto.ResourceVersion;
+import com.jayaa.ecommerce.event.CategoryChangedEvent;
 import com.jayaa.ecommerce.exception.*;
 import com.jayaa.ecommerce.model.Category;
 import com.jayaa.ecommerce.repository.CategoryRepository;
-import com.jayaa.ecommerce.util.SlugUtil;
+import com.jayaa.ecommerce.util.SlugAllocator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,66 +25,111 @@ public class CategoryService {
     private CategoryRepository categoryRepository;
 
     @Autowired
-    private SlugUtil slugUtil;
+    private SlugAllocator slugAllocator;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // ⭐ Two queries total: categories + one grouped product count (was 1 + 1 per category)
     @Transactional(readOnly = true)
-    public List<CategoryResponse> getAllCategories() {
+    public List<CategoryResponse> getAllCategories(boolean activeOnly) {
+        Map<Long, Long> productCounts = getProductCounts(activeOnly);
         return categoryRepository.findAll().stream()
-                .map(this::convertToResponse)
+                .map(category -> convertToResponse(category, productCounts.getOrDefault(category.getId(), 0L)))
                 .collect(Collectors.toList());
     }
 
+    // Category id -> number of products in it (only active products if activeOnly)
+    @Transactional(readOnly = true)
+    public Map<Long, Long> getProductCounts(boolean activeOnly) {
+        List<CategoryRepository.CategoryProductCount> rows = activeOnly
+                ? categoryRepository.countActiveProductsGroupedByCategory()
+                : categoryRepository.countProductsGroupedByCategory();
+        return rows.stream().collect(Collectors.toMap(
+                CategoryRepository.CategoryProductCount::getCategoryId,
+                CategoryRepository.CategoryProductCount::getProductCount));
+    }
+
+    @Transactional(readOnly = true)
+    public ResourceVersion getCategoryVersion(Long id, boolean activeOnly) {
+        Category category = categoryRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Category not found"));
+        return ResourceVersion.of("category", id, activeOnly, category.getUpdatedAt(), countProducts(id, activeOnly));
+    }
+
     @Transactional(readOnly = true)
-    public CategoryResponse getCategoryById(Long id) {
+    public CategoryResponse getCategoryById(Long id, boolean activeOnly) {
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found"));
-        return convertToResponse(category);
+        return convertToResponse(category, countProducts(category.getId(), activeOnly));
     }
 
+    // ⭐ Slug writes run in their own transaction, retried if another writer takes the slug first
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public CategoryResponse createCategory(CategoryRequest request) {
         if (categoryRepository.existsByName(request.getName())) {
             throw new BadRequestException("Category name already exists");
         }
 
-        Category category = new Category();
-        category.setName(request.getName());
-        category.setSlug(slugUtil.generateSlug(request.getName()));
-        category.setDescription(request.getDescription());
+        return slugAllocator.insertWithUniqueSlug(SlugAllocator.Scope.CATEGORY, request.getName(), slug -> {
+            Category category = new Category();
+            category.setName(request.getName());
+            category.setSlug(slug);
+            category.setDescription(request.getDescription());
 
-        Category saved = categoryRepository.save(category);
-        return convertToResponse(saved);
+            Category saved = categoryRepository.saveAndFlush(category);
+            eventPublisher.publishEvent(new CategoryChangedEvent(saved.getId(), CategoryChangedEvent.ChangeType.CREATED));
+            return convertToResponse(saved);
+        });
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public CategoryResponse updateCategory(Long id, CategoryRequest request) {
+        String currentSlug = categoryRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Category not found"))
+                .getSlug();
+
+        return slugAllocator.saveWithUniqueSlug(SlugAllocator.Scope.CATEGORY, request.getName(), currentSlug, slug -> {
+            Category category = categoryRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Category not found"));
+
+            category.setName(request.getName());
+            category.setSlug(slug);
+            category.setDescription(request.getDescription());
+
+            Category updated = categoryRepository.saveAndFlush(category);
+            eventPublisher.publishEvent(new CategoryChangedEvent(updated.getId(), CategoryChangedEvent.ChangeType.UPDATED));
+            return convertToResponse(updated);
+        });
+    }
+
+    public void deleteCategory(Long id) {
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found"));
-
-        category.setName(request.getName());
-        category.setSlug(slugUtil.generateSlug(request.getName()));
-        category.setDescription(request.getDescription());
-
-        Category updated = categoryRepository.save(category);
-        return convertToResponse(updated);
+        categoryRepository.delete(category);
+        slugAllocator.releaseAfterCommit(SlugAllocator.Scope.CATEGORY, category.getSlug());
+        eventPublisher.publishEvent(new CategoryChangedEvent(id, CategoryChangedEvent.ChangeType.DELETED));
     }
 
-    public void deleteCategory(Long id) {
-        if (!categoryRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Category not found");
-        }
-        categoryRepository.deleteById(id);
+    private long countProducts(Long categoryId, boolean activeOnly) {
+        Long productCount = activeOnly
+                ? categoryRepository.countActiveProductsByCategoryId(categoryId)
+                : categoryRepository.countProductsByCategoryId(categoryId);
+        return productCount != null ? productCount : 0L;
     }
 
     private CategoryResponse convertToResponse(Category category) {
+        // FIXED: Get product count using repository query instead of lazy loading
+        return convertToResponse(category, countProducts(category.getId(), false));
+    }
+
+    private CategoryResponse convertToResponse(Category category, long productCount) {
         CategoryResponse response = new CategoryResponse();
         response.setId(category.getId());
         response.setName(category.getName());
         response.setSlug(category.getSlug());
         response.setDescription(category.getDescription());
-
-        // FIXED: Get product count using repository query instead of lazy loading
-        Long productCount = categoryRepository.countProductsByCategoryId(category.getId());
-        response.setProductCount(productCount != null ? productCount.intValue() : 0);
-
+        response.setProductCount((int) productCount);
         response.setCreatedAt(category.getCreatedAt());
         return response;
     }
@@ -0,0 +1,337 @@
+package com.jayaa.ecommerce.service;
+
+import com.jayaa.ecommerce.analytics.SalesRollup;
+import com.jayaa.ecommerce.dto.OrderResponse;
+import com.jayaa.ecommerce.dto.PlaceOrderRequest;
+import com.jayaa.ecommerce.event.StockChangedEvent;
+import com.jayaa.ecommerce.exception.BadRequestException;
+import com.jayaa.ecommerce.exception.InsufficientStockException;
+import com.jayaa.ecommerce.exception.ServiceUnavailableException;
+import com.jayaa.ecommerce.inventory.StockReservationService;
+import com.jayaa.ecommerce.model.CartItem;
+import com.jayaa.ecommerce.model.Order;
+import com.jayaa.ecommerce.model.OrderEventType;
+import com.jayaa.ecommerce.outbox.OrderOutbox;
+import com.jayaa.ecommerce.repository.CartItemRepository;
+import com.jayaa.ecommerce.repository.OrderRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Checkout entry point. In app.checkout.mode=direct every order is its own transaction
+ * (OrderService.placeOrder). In mode=group the cart is read on the caller's thread and the
+ * order is queued for a single writer per product partition; each writer drains whatever has
+ * queued up meanwhile and commits the whole micro-batch in one transaction: one lock on the
+ * products involved, one stock decrement, batched order inserts, one cart delete. The caller
+ * still blocks for its own OrderResponse or exception.
+ */
+@Service
+public class CheckoutService {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private OrderOutbox orderOutbox;
+
+    @Autowired
+    private SalesRollup salesRollup;
+
+    // direct = one transaction per order, group = group commit through the partition writers
+    @Value("${app.checkout.mode:direct}")
+    private String mode;
+
+    @Value("${app.checkout.max-batch:64}")
+    private int maxBatch;
+
+    @Value("${app.checkout.timeout-ms:10000}")
+    private long timeoutMs;
+
+    private final TransactionTemplate batchTransaction;
+    private final List<BlockingQueue<PendingOrder>> partitions = new ArrayList<>();
+    private final List<Thread> writers = new ArrayList<>();
+    private volatile boolean started;
+
+    @Autowired
+    public CheckoutService(
+            PlatformTransactionManager transactionManager,
+            @Value("${app.checkout.partitions:4}") int partitionCount,
+            @Value("${app.checkout.queue-capacity:1000}") int queueCapacity
+    ) {
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(new ArrayBlockingQueue<>(queueCapacity));
+        }
+    }
+
+    public OrderResponse placeOrder(PlaceOrderRequest request) {
+        return placeOrder(request, null);
+    }
+
+    /**
+     * Same, and runs {@code inTransaction} with the placed order inside the transaction that
+     * commits it (direct, batch or fallback alike): if it throws, that order rolls back.
+     */
+    public OrderResponse placeOrder(PlaceOrderRequest request, Consumer<OrderResponse> inTransaction) {
+        if (isGroupCommit()) {
+            return placeOrderGrouped(request, inTransaction);
+        }
+        return inTransaction == null
+                ? orderService.placeOrder(request)
+                : placeOrderDirect(() -> orderService.placeOrder(request), inTransaction);
+    }
+
+    private OrderResponse placeOrderDirect(Supplier<OrderResponse> checkout, Consumer<OrderResponse> inTransaction) {
+        return batchTransaction.execute(status -> {
+            OrderResponse placed = checkout.get();
+            if (inTransaction != null) {
+                inTransaction.accept(placed);
+            }
+            return placed;
+        });
+    }
+
+    // In group mode the order commits on a writer thread, outside any transaction of the caller
+    public boolean isGroupCommit() {
+        return "group".equalsIgnoreCase(mode);
+    }
+
+    OrderResponse placeOrderGrouped(PlaceOrderRequest request) {
+        return placeOrderGrouped(request, null);
+    }
+
+    /**
+     * Queues the order for its writer and waits up to app.checkout.timeout-ms for the batch to commit.
+     * A timeout answers 503 (ServiceUnavailableException), not a client error: an order a writer
+     * already picked up may still commit, so the client should check its orders (or retry with
+     * the same Idempotency-Key) rather than place it again.
+     */
+    OrderResponse placeOrderGrouped(PlaceOrderRequest request, Consumer<OrderResponse> inTransaction) {
+        if (!started) {
+            startWriters();
+        }
+        OrderService.PreparedCheckout checkout = orderService.prepareCheckout(request);
+        PendingOrder pending = new PendingOrder(checkout, inTransaction, new CompletableFuture<>());
+
+        if (!partitionOf(checkout).offer(pending)) {
+            // Queue full: this order pays for its own transaction rather than waiting
+            return placeOrderDirect(() -> orderService.placeOrder(checkout.userId(), request), inTransaction);
+        }
+        try {
+            return pending.result().get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Dropped if no writer has picked it up yet; otherwise it may still go through
+            pending.result().cancel(false);
+            throw new ServiceUnavailableException(
+                    "Checkout is taking longer than expected. Please check your orders before retrying.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Checkout interrupted. Please check your orders before retrying.");
+        }
+    }
+
+    // Orders for the same (lowest-id) product meet in the same writer and share its batches
+    private BlockingQueue<PendingOrder> partitionOf(OrderService.PreparedCheckout checkout) {
+        long productId = Collections.min(checkout.quantities().keySet());
+        return partitions.get(Math.floorMod(Long.hashCode(productId), partitions.size()));
+    }
+
+    // ========== WRITERS ==========
+
+    private synchronized void startWriters() {
+        if (started) {
+            return;
+        }
+        for (int i = 0; i < partitions.size(); i++) {
+            BlockingQueue<PendingOrder> queue = partitions.get(i);
+            writers.add(Thread.ofPlatform().name("checkout-writer-" + i).daemon().start(() -> drain(queue)));
+        }
+        started = true;
+    }
+
+    private void drain(BlockingQueue<PendingOrder> queue) {
+        List<PendingOrder> batch = new ArrayList<>(maxBatch);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, maxBatch - 1);
+            batch.removeIf(pending -> pending.result().isCancelled());
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+            }
+            batch.clear();
+        }
+        queue.forEach(pending -> pending.result().completeExceptionally(
+                new ServiceUnavailableException("Checkout is shutting down. Please retry.")));
+    }
+
+    void writeBatch(List<PendingOrder> batch) {
+        Map<PendingOrder, Object> outcomes;
+        try {
+            outcomes = batchTransaction.execute(status -> commitBatch(batch));
+        } catch (RuntimeException e) {
+            // Something unexpected failed the whole batch: give each order its own transaction
+            System.err.println("Warning: Group commit of " + batch.size() + " orders failed, retrying one by one: "
+                    + e.getMessage());
+            outcomes = new HashMap<>();
+            for (PendingOrder pending : batch) {
+                try {
+                    outcomes.put(pending, placeOrderDirect(() -> orderService.placeOrder(
+                            pending.checkout().userId(), pending.checkout().request()), pending.inTransaction()));
+                } catch (RuntimeException orderFailure) {
+                    outcomes.put(pending, orderFailure);
+                }
+            }
+        }
+
+        // Only after commit: a caller never sees an order that could still roll back
+        outcomes.forEach((pending, outcome) -> {
+            if (outcome instanceof OrderResponse response) {
+                pending.result().complete(response);
+            } else {
+                pending.result().completeExceptionally((RuntimeException) outcome);
+            }
+        });
+    }
+
+    // Returns each order's OrderResponse or the RuntimeException that rejected it
+    private Map<PendingOrder, Object> commitBatch(List<PendingOrder> batch) {
+        Map<PendingOrder, Object> outcomes = new HashMap<>();
+
+        // Carts that changed hands meanwhile (double submit, checkout in another batch) are rejected
+        Set<Long> cartItemIds = new HashSet<>();
+        batch.forEach(pending -> pending.checkout().cartItems().forEach(item -> cartItemIds.add(item.getId())));
+        Set<Long> unclaimed = new HashSet<>(cartItemRepository.findExistingIds(cartItemIds));
+
+        Set<Long> productIds = new TreeSet<>();
+        batch.forEach(pending -> productIds.addAll(pending.checkout().quantities().keySet()));
+        Map<Long, StockService.StockLevel> stock = stockService.lockStock(productIds);
+        Map<Long, Integer> remaining = new HashMap<>();
+        stock.forEach((productId, level) -> remaining.put(productId, level.onHand()));
+
+        // ⭐ Admit in arrival order against the locked stock, all or nothing per order
+        Map<Long, Integer> totals = new HashMap<>();
+        Set<Long> shardedProductIds = new HashSet<>();
+        List<PendingOrder> admitted = new ArrayList<>();
+        List<Long> cartItemsToDelete = new ArrayList<>();
+        for (PendingOrder pending : batch) {
+            OrderService.PreparedCheckout checkout = pending.checkout();
+            List<Long> lines = checkout.cartItems().stream().map(CartItem::getId).toList();
+            if (!unclaimed.containsAll(lines)) {
+                outcomes.put(pending, new BadRequestException("Cart changed during checkout. Please review it and retry."));
+                continue;
+            }
+            RuntimeException shortfall = shortfall(checkout.quantities(), stock, remaining);
+            if (shortfall == null) {
+                try {
+                    stockReservationService.consume(checkout.userId(), checkout.quantities());
+                } catch (InsufficientStockException e) {
+                    shortfall = e;
+                }
+            }
+            if (shortfall != null) {
+                outcomes.put(pending, shortfall);
+                continue;
+            }
+
+            checkout.quantities().forEach((productId, quantity) -> {
+                remaining.merge(productId, -quantity, Integer::sum);
+                totals.merge(productId, quantity, Integer::sum);
+            });
+            shardedProductIds.addAll(checkout.shardedProductIds());
+            lines.forEach(unclaimed::remove);
+            cartItemsToDelete.addAll(lines);
+            admitted.add(pending);
+        }
+        if (admitted.isEmpty()) {
+            return outcomes;
+        }
+
+        stockService.decrement(totals, shardedProductIds);
+        List<Order> orders = new ArrayList<>(admitted.size());
+        for (PendingOrder pending : admitted) {
+            orders.add(orderService.buildOrder(pending.checkout()));
+        }
+        orderRepository.saveAll(orders);
+        cartItemRepository.deleteAllByIdInBatch(cartItemsToDelete);
+        salesRollup.recordPlaced(orders);
+        orderOutbox.record(orders, OrderEventType.ORDER_PLACED);
+        eventPublisher.publishEvent(new StockChangedEvent(productIds));
+
+        for (int i = 0; i < admitted.size(); i++) {
+            OrderResponse response = orderService.convertToOrderResponse(orders.get(i));
+            // A failing hook fails the batch; writeBatch then retries each order on its own
+            if (admitted.get(i).inTransaction() != null) {
+                admitted.get(i).inTransaction().accept(response);
+            }
+            outcomes.put(admitted.get(i), response);
+        }
+        return outcomes;
+    }
+
+    // Same message as StockService's conditional decrement, or null if the order fits
+    private static RuntimeException shortfall(Map<Long, Integer> quantities, Map<Long, StockService.StockLevel> stock,
+                                              Map<Long, Integer> remaining) {
+        for (Map.Entry<Long, Integer> line : new TreeMap<>(quantities).entrySet()) {
+            StockService.StockLevel level = stock.get(line.getKey());
+            if (level == null) {
+                return new InsufficientStockException("Product not found: " + line.getKey());
+            }
+            int available = remaining.get(line.getKey());
+            if (available < line.getValue()) {
+                return new InsufficientStockException(
+                        "Insufficient stock for: " + level.name() +
+                                ". Available: " + available +
+                                ", Requested: " + line.getValue()
+                );
+            }
+        }
+        return null;
+    }
+
+    @PreDestroy
+    void stopWriters() {
+        writers.forEach(Thread::interrupt);
+    }
+
+    record PendingOrder(OrderService.PreparedCheckout checkout, Consumer<OrderResponse> inTransaction,
+                        CompletableFuture<OrderResponse> result) {
+    }
+}
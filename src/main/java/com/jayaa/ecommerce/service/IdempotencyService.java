@@ -0,0 +1,323 @@
+package com.jayaa.ecommerce.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayaa.ecommerce.dto.OrderResponse;
+import com.jayaa.ecommerce.dto.PlaceOrderRequest;
+import com.jayaa.ecommerce.exception.*;
+import com.jayaa.ecommerce.model.User;
+import com.jayaa.ecommerce.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Idempotency-Key support for POST /api/orders. The first request with a key claims an
+ * idempotency_keys row, places the order and stores its OrderResponse; retries within
+ * app.idempotency.ttl-ms get that response back without running checkout again.
+ *
+ * Lookups go through an in-memory LRU of completed keys first. Duplicates arriving on this
+ * node while the first request is still running wait for its result (single-flight); on
+ * another node they find the claim and get 409 until it completes. A claim whose node died
+ * can be taken over once its lease (app.idempotency.lease-ms) has run out.
+ *
+ * The key is completed inside the transaction that commits the order (direct, group commit or
+ * its fallbacks), and only while the claim token still matches. A checkout still in flight
+ * after its claim was released or taken over fails that update and rolls back, so a key
+ * never ends up with two orders.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final String IN_PROGRESS = "IN_PROGRESS";
+    private static final String COMPLETED = "COMPLETED";
+
+    private static final String DELETE_EXPIRED_KEY =
+            "DELETE FROM idempotency_keys WHERE user_id = ? AND idempotency_key = ? AND expires_at <= ?";
+    private static final String CLAIM =
+            "INSERT INTO idempotency_keys (user_id, idempotency_key, request_hash, status, claim_token, locked_until, " +
+                    "expires_at, created_at) VALUES (?, ?, ?, 'IN_PROGRESS', ?, ?, ?, ?)";
+    private static final String READ =
+            "SELECT request_hash, status, response FROM idempotency_keys " +
+                    "WHERE user_id = ? AND idempotency_key = ?";
+    private static final String TAKE_OVER =
+            "UPDATE idempotency_keys SET claim_token = ?, locked_until = ? " +
+                    "WHERE user_id = ? AND idempotency_key = ? AND status = 'IN_PROGRESS' AND locked_until <= ?";
+    private static final String COMPLETE =
+            "UPDATE idempotency_keys SET status = 'COMPLETED', order_id = ?, response = ?, claim_token = NULL, " +
+                    "locked_until = NULL WHERE user_id = ? AND idempotency_key = ? AND status = 'IN_PROGRESS' AND claim_token = ?";
+    private static final String RELEASE =
+            "DELETE FROM idempotency_keys WHERE user_id = ? AND idempotency_key = ? AND status = 'IN_PROGRESS' " +
+                    "AND claim_token = ?";
+    private static final String PURGE = "DELETE FROM idempotency_keys WHERE expires_at <= ?";
+
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate newTransaction;
+    private final long ttlMs;
+    private final long leaseMs;
+    private final int cacheSize;
+
+    // Completed keys by user + key, access-ordered: iteration starts at the least recently used
+    private final LinkedHashMap<String, Completed> recent = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    public IdempotencyService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.idempotency.ttl-ms:86400000}") long ttlMs,
+            @Value("${app.idempotency.lease-ms:60000}") long leaseMs,
+            @Value("${app.idempotency.cache-size:10000}") int cacheSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ttlMs = ttlMs;
+        this.leaseMs = leaseMs;
+        this.cacheSize = cacheSize;
+    }
+
+    // ⭐ PLACE ORDER AT MOST ONCE PER KEY
+    public OrderResponse placeOrder(String key, PlaceOrderRequest request) {
+        if (key == null || key.isBlank()) {
+            return checkoutService.placeOrder(request);
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        String scope = getCurrentUsername() + "\n" + key;
+        String requestHash = hash(request);
+
+        OrderResponse cached = recall(scope, requestHash);
+        if (cached != null) {
+            return cached;
+        }
+
+        // ⭐ Single-flight: concurrent duplicates on this node wait for the first one
+        InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(scope, mine);
+        if (running != null) {
+            checkSameRequest(running.requestHash(), requestHash);
+            return await(running.result());
+        }
+        try {
+            // The previous leader may have finished between the LRU miss and the putIfAbsent
+            OrderResponse response = recall(scope, requestHash);
+            if (response == null) {
+                response = execute(scope, key, requestHash, request);
+            }
+            mine.result().complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(scope, mine);
+        }
+    }
+
+    private OrderResponse execute(String scope, String key, String requestHash, PlaceOrderRequest request) {
+        Long userId = getCurrentUserId();
+        String token = UUID.randomUUID().toString();
+        String stored = newTransaction.execute(status -> claim(userId, key, requestHash, token));
+        if (stored != null) {
+            OrderResponse response = fromJson(stored);
+            remember(scope, requestHash, response);
+            return response;
+        }
+
+        OrderResponse response;
+        try {
+            // Order and completion commit together, so a crash never leaves an order without its key
+            response = checkoutService.placeOrder(request, placed -> complete(userId, key, token, placed));
+        } catch (RuntimeException e) {
+            // Free the key for a retry. An order still in flight (group-commit timeout) can't complete
+            // it anymore and rolls back; if it completed first, this deletes nothing and the retry replays it
+            newTransaction.executeWithoutResult(status -> jdbcTemplate.update(RELEASE, userId, key, token));
+            throw e;
+        }
+        remember(scope, requestHash, response);
+        return response;
+    }
+
+    // Returns the stored response JSON, or null once this node holds the claim
+    private String claim(Long userId, String key, String requestHash, String token) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime lockedUntil = now.plusNanos(leaseMs * 1_000_000);
+        jdbcTemplate.update(DELETE_EXPIRED_KEY, userId, key, now);
+        try {
+            jdbcTemplate.update(CLAIM, userId, key, requestHash, token, lockedUntil, now.plusNanos(ttlMs * 1_000_000), now);
+            return null;
+        } catch (DuplicateKeyException e) {
+            // Used before: replay it, or wait for the node that is still running it
+        }
+
+        List<StoredKey> rows = jdbcTemplate.query(READ, (rs, rowNum) -> new StoredKey(
+                rs.getString("request_hash"),
+                rs.getString("status"),
+                rs.getString("response")
+        ), userId, key);
+        if (rows.isEmpty()) {
+            throw new ConflictException("Idempotency-Key is being released. Please retry.");
+        }
+        StoredKey row = rows.get(0);
+        checkSameRequest(row.requestHash(), requestHash);
+        if (COMPLETED.equals(row.status())) {
+            return row.response();
+        }
+        if (IN_PROGRESS.equals(row.status()) && jdbcTemplate.update(TAKE_OVER, token, lockedUntil, userId, key, now) == 1) {
+            return null;
+        }
+        throw new ConflictException("A request with this Idempotency-Key is still being processed. Please retry shortly.");
+    }
+
+    // Runs in the order's transaction: losing the claim rolls the order back
+    private void complete(Long userId, String key, String token, OrderResponse response) {
+        if (jdbcTemplate.update(COMPLETE, response.getId(), toJson(response), userId, key, token) == 0) {
+            throw new ConflictException("A request with this Idempotency-Key is still being processed. Please retry shortly.");
+        }
+    }
+
+    private OrderResponse await(CompletableFuture<OrderResponse> result) {
+        try {
+            return result.get(leaseMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ConflictException("A request with this Idempotency-Key is still being processed. Please retry shortly.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Checkout interrupted");
+        }
+    }
+
+    private static void checkSameRequest(String storedHash, String requestHash) {
+        if (!storedHash.equals(requestHash)) {
+            throw new BadRequestException("Idempotency-Key was already used with a different request");
+        }
+    }
+
+    // ========== HOT CACHE ==========
+
+    private synchronized OrderResponse recall(String scope, String requestHash) {
+        Completed completed = recent.get(scope);
+        if (completed == null) {
+            return null;
+        }
+        if (completed.expiresAt() - System.nanoTime() < 0) {
+            recent.remove(scope);
+            return null;
+        }
+        checkSameRequest(completed.requestHash(), requestHash);
+        return completed.response();
+    }
+
+    private synchronized void remember(String scope, String requestHash, OrderResponse response) {
+        if (cacheSize <= 0) {
+            return;
+        }
+        recent.put(scope, new Completed(requestHash, response, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMs)));
+        while (recent.size() > cacheSize) {
+            recent.remove(recent.keySet().iterator().next());
+        }
+    }
+
+    // ========== EXPIRY ==========
+
+    @Scheduled(initialDelayString = "${app.idempotency.sweep-ms:3600000}",
+            fixedDelayString = "${app.idempotency.sweep-ms:3600000}")
+    public void purgeExpired() {
+        try {
+            newTransaction.executeWithoutResult(status -> jdbcTemplate.update(PURGE, LocalDateTime.now()));
+        } catch (Exception e) {
+            System.err.println("Warning: Could not purge expired idempotency keys: " + e.getMessage());
+        }
+    }
+
+    // ========== HELPER METHODS ==========
+
+    // Cart contents are not part of the request body, so the fingerprint covers what the client sent
+    private static String hash(PlaceOrderRequest request) {
+        String body = request.getShippingAddress() + "\n" + request.getPaymentMethod();
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(body.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String toJson(OrderResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not store order response", e);
+        }
+    }
+
+    private OrderResponse fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, OrderResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read stored order response", e);
+        }
+    }
+
+    private Long getCurrentUserId() {
+        return userRepository.findByUsername(getCurrentUsername())
+                .map(User::getId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    }
+
+    private String getCurrentUsername() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated()) {
+            throw new ForbiddenException("Not authenticated");
+        }
+        return auth.getName();
+    }
+
+    private record StoredKey(String requestHash, String status, String response) {
+    }
+
+    private record Completed(String requestHash, OrderResponse response, long expiresAt) {
+    }
+
+    private record InFlight(String requestHash, CompletableFuture<OrderResponse> result) {
+    }
+}
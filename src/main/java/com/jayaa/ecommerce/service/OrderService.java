@@ -1,13 +1,25 @@
 package com.jayaa.ecommerce.service;
 
+import com.jayaa.ecommerce.analytics.SalesRollup;
 import com.jayaa.ecommerce.dto.*;
+import com.jayaa.ecommerce.event.StockChangedEvent;
 import com.jayaa.ecommerce.exception.*;
+import com.jayaa.ecommerce.inventory.StockReservationService;
 import com.jayaa.ecommerce.model.*;
+import com.jayaa.ecommerce.outbox.OrderOutbox;
 import com.jayaa.ecommerce.repository.*;
+import com.jayaa.ecommerce.util.CursorCodec;
+import com.jayaa.ecommerce.util.SequenceAllocator;
 import com.jayaa.ecommerce.util.SkuGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -15,7 +27,11 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,56 +48,110 @@ public class OrderService {
     private CartItemRepository cartItemRepository;
 
     @Autowired
-    private ProductRepository productRepository;
+    private UserRepository userRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private StockService stockService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
 
     @Autowired
     private SkuGenerator skuGenerator;
 
+    @Autowired
+    private SequenceAllocator sequenceAllocator;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CursorCodec cursorCodec;
+
+    @Autowired
+    private OrderOutbox orderOutbox;
+
+    @Autowired
+    private SalesRollup salesRollup;
+
+    // Same order as the default offset listing; id breaks ties between equal timestamps
+    private static final Sort CURSOR_SORT = Sort.by("orderDate", "id");
+
     // ⭐ PLACE ORDER (Most Complex Transaction!)
     public OrderResponse placeOrder(PlaceOrderRequest request) {
-        Long userId = getCurrentUserId();
+        return placeOrder(getCurrentUserId(), request);
+    }
+
+    // One transaction per order; also the group-commit fallback, which runs without a security context
+    public OrderResponse placeOrder(Long userId, PlaceOrderRequest request) {
+        PreparedCheckout checkout = prepareCheckout(userId, request);
+
+        // ⭐ STEP 1: Reserve stock for ALL items BEFORE creating order
+        // Cart holds become the sale, then the atomic "stock >= qty" check-and-subtract
+        stockReservationService.consume(userId, checkout.quantities());
+        stockService.decrement(checkout.quantities(), checkout.shardedProductIds());
+
+        // ⭐ STEP 2-4: Create and save order (cascades to order items)
+        Order savedOrder = orderRepository.save(buildOrder(checkout));
+
+        // ⭐ STEP 5: Clear cart
+        cartItemRepository.deleteByUserId(userId);
+
+        // ⭐ STEP 6: Sales rollups commit with the order; everything else (notifications) runs from the outbox
+        salesRollup.recordPlaced(List.of(savedOrder));
+        orderOutbox.record(savedOrder, OrderEventType.ORDER_PLACED);
+
+        eventPublisher.publishEvent(new StockChangedEvent(checkout.quantities().keySet()));
+
+        return convertToOrderResponse(savedOrder);
+    }
+
+    // Group commit reads the cart on the caller's thread, before the order is queued
+    @Transactional(readOnly = true)
+    public PreparedCheckout prepareCheckout(PlaceOrderRequest request) {
+        return prepareCheckout(getCurrentUserId(), request);
+    }
+
+    private PreparedCheckout prepareCheckout(Long userId, PlaceOrderRequest request) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
         // Get cart items
-        List<CartItem> cartItems = cartItemRepository.findByUserId(userId);
+        List<CartItem> cartItems = cartItemRepository.findWithProductByUserId(userId);
 
         if (cartItems.isEmpty()) {
             throw new BadRequestException("Cart is empty");
         }
 
-        // ⭐ STEP 1: Validate stock for ALL items BEFORE creating order
+        Map<Long, Integer> quantities = new HashMap<>();
+        Set<Long> shardedProductIds = new HashSet<>();
         for (CartItem cartItem : cartItems) {
             Product product = cartItem.getProduct();
             if (!product.getIsActive()) {
                 throw new BadRequestException("Product is not available: " + product.getName());
             }
-            if (product.getStockQuantity() < cartItem.getQuantity()) {
-                throw new InsufficientStockException(
-                        "Insufficient stock for: " + product.getName() +
-                                ". Available: " + product.getStockQuantity() +
-                                ", Requested: " + cartItem.getQuantity()
-                );
+            quantities.merge(product.getId(), cartItem.getQuantity(), Integer::sum);
+            if (product.getStockShards() > 0) {
+                shardedProductIds.add(product.getId());
             }
         }
+        return new PreparedCheckout(userId, user, cartItems, quantities, shardedProductIds, request);
+    }
 
-        // ⭐ STEP 2: Create order
+    // The unsaved order for a checkout whose stock has been taken
+    Order buildOrder(PreparedCheckout checkout) {
         Order order = new Order();
         order.setOrderNumber(generateOrderNumber());
-        order.setUser(user);
+        order.setUser(checkout.user());
         order.setStatus(OrderStatus.PENDING);
-        order.setShippingAddress(request.getShippingAddress());
-        order.setPaymentMethod(request.getPaymentMethod());
+        order.setShippingAddress(checkout.request().getShippingAddress());
+        order.setPaymentMethod(checkout.request().getPaymentMethod());
         order.setOrderDate(LocalDateTime.now());
 
         BigDecimal totalAmount = BigDecimal.ZERO;
         List<OrderItem> orderItems = new ArrayList<>();
 
-        // ⭐ STEP 3: Create order items AND reduce stock
-        for (CartItem cartItem : cartItems) {
+        for (CartItem cartItem : checkout.cartItems()) {
             Product product = cartItem.getProduct();
 
             // Create order item
@@ -97,36 +167,41 @@ public class OrderService {
 
             orderItems.add(orderItem);
             totalAmount = totalAmount.add(subtotal);
-
-            // ⭐ REDUCE STOCK (Critical operation!)
-            product.setStockQuantity(product.getStockQuantity() - cartItem.getQuantity());
-            productRepository.save(product);
         }
 
         order.setItems(orderItems);
         order.setTotalAmount(totalAmount);
-
-        // ⭐ STEP 4: Save order (cascades to order items)
-        Order savedOrder = orderRepository.save(order);
-
-        // ⭐ STEP 5: Clear cart
-        cartItemRepository.deleteByUserId(userId);
-
-        return convertToOrderResponse(savedOrder);
+        return order;
     }
 
-    // ⭐ GET MY ORDERS
+    // ⭐ GET MY ORDERS - read-only projections: page + count + one items statement, no entities
     @Transactional(readOnly = true)
     public Page<OrderResponse> getMyOrders(Pageable pageable) {
+        return toHistoryPage(orderRepository.findSummariesByUsername(getCurrentUsername(), pageable));
+    }
+
+    // ⭐ GET MY ORDERS - no COUNT(*) (infinite scroll)
+    @Transactional(readOnly = true)
+    public Slice<OrderResponse> getMyOrdersSlice(Pageable pageable) {
         Long userId = getCurrentUserId();
-        Page<Order> orders = orderRepository.findByUserId(userId, pageable);
+        Slice<Order> orders = orderRepository.findSliceByUserId(userId, pageable);
+        fetchOrderDetails(orders.getContent());
         return orders.map(this::convertToOrderResponse);
     }
 
+    // ⭐ GET MY ORDERS - keyset cursor over (orderDate, id)
+    @Transactional(readOnly = true)
+    public CursorPage<OrderResponse> getMyOrdersByCursor(String cursor, int size) {
+        Long userId = getCurrentUserId();
+        Window<Order> orders = orderRepository.findByUserId(
+                userId, cursorCodec.decode(cursor, CURSOR_SORT), Limit.of(cursorCodec.clampSize(size)), CURSOR_SORT);
+        return toCursorPage(orders);
+    }
+
     // ⭐ GET ORDER BY ID
     @Transactional(readOnly = true)
     public OrderResponse getOrderById(Long orderId) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findWithDetailsById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
 
         // Check ownership
@@ -140,7 +215,7 @@ public class OrderService {
 
     // ⭐ CANCEL ORDER (with stock restoration)
     public OrderResponse cancelOrder(Long orderId) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findWithDetailsById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
 
         // Check ownership
@@ -156,15 +231,26 @@ public class OrderService {
             );
         }
 
-        // ⭐ RESTORE STOCK
+        // Only the transaction that moves the row out of PENDING restores the stock
+        // (a concurrent cancel of the same order waits on the row lock, then matches nothing)
+        if (orderRepository.updateStatusIf(orderId, OrderStatus.PENDING, OrderStatus.CANCELLED) == 0) {
+            throw new BadRequestException("Can only cancel pending orders. The order was changed concurrently");
+        }
+
+        // ⭐ RESTORE STOCK (atomic increments, same id order as checkout)
+        Map<Long, Integer> quantities = new HashMap<>();
         for (OrderItem item : order.getItems()) {
-            Product product = item.getProduct();
-            product.setStockQuantity(product.getStockQuantity() + item.getQuantity());
-            productRepository.save(product);
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
         }
+        stockService.increment(quantities);
 
         order.setStatus(OrderStatus.CANCELLED);
         Order updated = orderRepository.save(order);
+        salesRollup.recordStatusChange(updated, OrderStatus.PENDING);
+        orderOutbox.record(updated, OrderEventType.ORDER_CANCELLED);
+
+        eventPublisher.publishEvent(new StockChangedEvent(
+                order.getItems().stream().map(item -> item.getProduct().getId()).collect(Collectors.toList())));
 
         return convertToOrderResponse(updated);
     }
@@ -173,22 +259,47 @@ public class OrderService {
 
     @Transactional(readOnly = true)
     public Page<OrderResponse> getAllOrders(Pageable pageable) {
-        Page<Order> orders = orderRepository.findAll(pageable);
+        return toHistoryPage(orderRepository.findAllSummaries(pageable));
+    }
+
+    @Transactional(readOnly = true)
+    public Slice<OrderResponse> getAllOrdersSlice(Pageable pageable) {
+        Slice<Order> orders = orderRepository.findAllAsSlice(pageable);
+        fetchOrderDetails(orders.getContent());
         return orders.map(this::convertToOrderResponse);
     }
 
+    @Transactional(readOnly = true)
+    public CursorPage<OrderResponse> getAllOrdersByCursor(String cursor, int size) {
+        Window<Order> orders = orderRepository.findAllBy(
+                cursorCodec.decode(cursor, CURSOR_SORT), Limit.of(cursorCodec.clampSize(size)), CURSOR_SORT);
+        return toCursorPage(orders);
+    }
+
+    private CursorPage<OrderResponse> toCursorPage(Window<Order> orders) {
+        fetchOrderDetails(orders.getContent());
+        List<OrderResponse> responses = orders.getContent().stream()
+                .map(this::convertToOrderResponse)
+                .collect(Collectors.toList());
+        return new CursorPage<>(responses, cursorCodec.nextCursor(orders), orders.hasNext());
+    }
+
     @Transactional(readOnly = true)
     public Page<OrderResponse> getOrdersByStatus(OrderStatus status, Pageable pageable) {
-        Page<Order> orders = orderRepository.findByStatus(status, pageable);
-        return orders.map(this::convertToOrderResponse);
+        return toHistoryPage(orderRepository.findSummariesByStatus(status, pageable));
     }
 
     // ⭐ UPDATE ORDER STATUS (ADMIN)
     public OrderResponse updateOrderStatus(Long orderId, UpdateOrderStatusRequest request) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findWithDetailsById(orderId)
                 .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
 
         OrderStatus newStatus = OrderStatus.valueOf(request.getStatus().toUpperCase());
+        OrderStatus oldStatus = order.getStatus();
+        // Same compare-and-set as cancelOrder: of two racing changes only one is counted in the rollups and outbox
+        if (newStatus != oldStatus && orderRepository.updateStatusIf(orderId, oldStatus, newStatus) == 0) {
+            throw new ConflictException("Order status was changed concurrently, please retry");
+        }
         order.setStatus(newStatus);
 
         // Set delivered date when status changes to DELIVERED
@@ -197,16 +308,35 @@ public class OrderService {
         }
 
         Order updated = orderRepository.save(order);
+        if (newStatus != oldStatus) {
+            salesRollup.recordStatusChange(updated, oldStatus);
+            orderOutbox.record(updated, newStatus == OrderStatus.CANCELLED
+                    ? OrderEventType.ORDER_CANCELLED : OrderEventType.ORDER_STATUS_CHANGED);
+        }
         return convertToOrderResponse(updated);
     }
 
     // ========== HELPER METHODS ==========
 
+    // ⭐ One counter per year, handed out from blocks reserved in the sequences table
     private String generateOrderNumber() {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime startOfDay = now.toLocalDate().atStartOfDay();
-        Long count = orderRepository.countOrdersCreatedToday(startOfDay);
-        return skuGenerator.generateOrderNumber(now.getYear(), count);
+        int year = LocalDateTime.now().getYear();
+        long number = sequenceAllocator.next("order_number:" + year, () -> firstOrderNumberOfYear(year));
+        return skuGenerator.formatOrderNumber(year, number);
+    }
+
+    // Continue after numbers issued before this year's counter existed
+    private long firstOrderNumberOfYear(int year) {
+        String prefix = skuGenerator.orderNumberPrefix(year);
+        List<String> highest = orderRepository.findHighestOrderNumbers(prefix, PageRequest.of(0, 1));
+        if (highest.isEmpty()) {
+            return 1;
+        }
+        try {
+            return Long.parseLong(highest.get(0).substring(prefix.length())) + 1;
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Unexpected order number format: " + highest.get(0), e);
+        }
     }
 
     private Long getCurrentUserId() {
@@ -231,7 +361,65 @@ public class OrderService {
     }
 
     // ⭐ COMPLEX DTO CONVERSION
-    private OrderResponse convertToOrderResponse(Order order) {
+    // Loads user, items and item products for a whole page in one query instead of lazily per order
+    private void fetchOrderDetails(List<Order> orders) {
+        if (!orders.isEmpty()) {
+            orderRepository.findWithDetailsByIdIn(orders.stream().map(Order::getId).collect(Collectors.toList()));
+        }
+    }
+
+    // ⭐ Order history from projections: the items of the whole page come in one statement
+    private Page<OrderResponse> toHistoryPage(Page<OrderRepository.OrderSummary> orders) {
+        Map<Long, List<OrderItemResponse>> itemsByOrder = new HashMap<>();
+        if (!orders.isEmpty()) {
+            List<Long> orderIds = orders.getContent().stream().map(OrderRepository.OrderSummary::getId).toList();
+            for (OrderItemRepository.OrderItemSummary item : orderItemRepository.findSummariesByOrderIdIn(orderIds)) {
+                itemsByOrder.computeIfAbsent(item.getOrderId(), id -> new ArrayList<>()).add(convertToOrderItemResponse(item));
+            }
+        }
+        return orders.map(order -> convertToOrderResponse(order, itemsByOrder.getOrDefault(order.getId(), List.of())));
+    }
+
+    private OrderResponse convertToOrderResponse(OrderRepository.OrderSummary order, List<OrderItemResponse> items) {
+        OrderResponse response = new OrderResponse();
+        response.setId(order.getId());
+        response.setOrderNumber(order.getOrderNumber());
+        response.setTotalAmount(order.getTotalAmount());
+        response.setStatus(order.getStatus());
+        response.setShippingAddress(order.getShippingAddress());
+        response.setPaymentMethod(order.getPaymentMethod());
+        response.setOrderDate(order.getOrderDate());
+        response.setDeliveredDate(order.getDeliveredDate());
+
+        OrderResponse.UserInfo userInfo = new OrderResponse.UserInfo();
+        userInfo.setId(order.getUserId());
+        userInfo.setUsername(order.getUsername());
+        userInfo.setEmail(order.getEmail());
+        userInfo.setFullName(order.getFullName());
+        response.setUser(userInfo);
+
+        response.setItems(items);
+        return response;
+    }
+
+    private OrderItemResponse convertToOrderItemResponse(OrderItemRepository.OrderItemSummary item) {
+        OrderItemResponse response = new OrderItemResponse();
+        response.setId(item.getId());
+        response.setQuantity(item.getQuantity());
+        response.setPriceAtPurchase(item.getPriceAtPurchase());
+        response.setSubtotal(item.getSubtotal());
+
+        OrderItemResponse.ProductInfo productInfo = new OrderItemResponse.ProductInfo();
+        productInfo.setId(item.getProductId());
+        productInfo.setName(item.getProductName());
+        productInfo.setSlug(item.getProductSlug());
+        productInfo.setImageUrl(item.getProductImageUrl());
+        response.setProduct(productInfo);
+
+        return response;
+    }
+
+    OrderResponse convertToOrderResponse(Order order) {
         OrderResponse response = new OrderResponse();
         response.setId(order.getId());
         response.setOrderNumber(order.getOrderNumber());
@@ -277,4 +465,9 @@ public class OrderService {
 
         return response;
     }
-}
\ No newline at end of file
+
+    // Cart lines (with products) and the stock they need, read before the order is written
+    public record PreparedCheckout(Long userId, User user, List<CartItem> cartItems, Map<Long, Integer> quantities,
+                                   Set<Long> shardedProductIds, PlaceOrderRequest request) {
+    }
+}
@@ -0,0 +1,183 @@
+package com.jayaa.ecommerce.service;
+
+import com.jayaa.ecommerce.dto.BulkProductPatchResponse;
+import com.jayaa.ecommerce.dto.ProductPatchRequest;
+import com.jayaa.ecommerce.event.ProductChangedEvent;
+import com.jayaa.ecommerce.inventory.StockShardService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Bulk price / stock / active-flag updates (ERP sync).
+ * Patches are applied in chunks: one id lookup and one JDBC batch of identical
+ * UPDATE statements per chunk, each chunk in its own transaction, instead of
+ * loading and flushing every product entity. Caches and indexes are refreshed
+ * through one ProductChangedEvent per chunk.
+ */
+@Service
+public class ProductBulkUpdateService {
+
+    static final int CHUNK_SIZE = 1000;
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    // One statement shape for every patch; null parameters keep the current value
+    private static final String UPDATE_PRODUCT =
+            "UPDATE products SET " +
+            "price = COALESCE(:price, price), " +
+            "stock_quantity = COALESCE(:stockQuantity, stock_quantity), " +
+            "is_active = COALESCE(:isActive, is_active), " +
+            "updated_at = :now, " +
+            "version = version + 1 " +
+            "WHERE id = :id";
+    private static final String SELECT_IDS_BY_ID = "SELECT id FROM products WHERE id IN (:ids)";
+    private static final String SELECT_IDS_BY_SKU = "SELECT id, sku FROM products WHERE sku IN (:skus)";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private StockShardService stockShardService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public ProductBulkUpdateService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public BulkProductPatchResponse applyPatches(List<ProductPatchRequest> patches) {
+        BulkProductPatchResponse report = new BulkProductPatchResponse();
+        report.setRequested(patches.size());
+
+        List<IndexedPatch> chunk = new ArrayList<>(CHUNK_SIZE);
+        for (int i = 0; i < patches.size(); i++) {
+            ProductPatchRequest patch = patches.get(i);
+            if (patch.getId() == null && (patch.getSku() == null || patch.getSku().isBlank())) {
+                reject(report, i, patch, "id or sku is required");
+            } else if (patch.getPrice() == null && patch.getStockQuantity() == null && patch.getIsActive() == null) {
+                reject(report, i, patch, "Nothing to update");
+            } else {
+                chunk.add(new IndexedPatch(i, patch));
+            }
+
+            if (chunk.size() == CHUNK_SIZE) {
+                applyChunk(chunk, report);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            applyChunk(chunk, report);
+        }
+        return report;
+    }
+
+    private void applyChunk(List<IndexedPatch> chunk, BulkProductPatchResponse report) {
+        try {
+            ChunkResult result = transactionTemplate.execute(status -> updateChunk(chunk));
+            report.setUpdated(report.getUpdated() + result.updated());
+            result.missing().forEach(p -> reject(report, p.index(), p.patch(), "Product not found"));
+        } catch (RuntimeException e) {
+            String message = "Chunk rejected by database: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            chunk.forEach(p -> reject(report, p.index(), p.patch(), message));
+        }
+    }
+
+    private ChunkResult updateChunk(List<IndexedPatch> chunk) {
+        Set<Long> existingIds = new HashSet<>();
+        Map<String, Long> idsBySku = new TreeMap<>(String.CASE_INSENSITIVE_ORDER); // same as the column collation
+        resolveIds(chunk, existingIds, idsBySku);
+
+        List<ResolvedPatch> resolved = new ArrayList<>(chunk.size());
+        List<IndexedPatch> missing = new ArrayList<>();
+        for (IndexedPatch p : chunk) {
+            Long productId = p.patch().getId() != null
+                    ? (existingIds.contains(p.patch().getId()) ? p.patch().getId() : null)
+                    : idsBySku.get(p.patch().getSku());
+            if (productId != null) {
+                resolved.add(new ResolvedPatch(productId, p.patch()));
+            } else {
+                missing.add(p);
+            }
+        }
+        if (!resolved.isEmpty()) {
+            // Lock rows in id order so overlapping bulk updates cannot deadlock each other
+            resolved.sort(Comparator.comparing(ResolvedPatch::productId));
+
+            LocalDateTime now = LocalDateTime.now();
+            SqlParameterSource[] updates = new SqlParameterSource[resolved.size()];
+            for (int i = 0; i < resolved.size(); i++) {
+                ProductPatchRequest patch = resolved.get(i).patch();
+                updates[i] = new MapSqlParameterSource()
+                        .addValue("price", patch.getPrice(), Types.DECIMAL)
+                        .addValue("stockQuantity", patch.getStockQuantity(), Types.INTEGER)
+                        .addValue("isActive", patch.getIsActive(), Types.BOOLEAN)
+                        .addValue("now", now)
+                        .addValue("id", resolved.get(i).productId());
+            }
+            jdbcTemplate.batchUpdate(UPDATE_PRODUCT, updates);
+
+            // Sharded products keep their units in product_stock_shards: spread the new totals there
+            Map<Long, Integer> stockTotals = new HashMap<>();
+            resolved.stream().filter(r -> r.patch().getStockQuantity() != null)
+                    .forEach(r -> stockTotals.put(r.productId(), r.patch().getStockQuantity()));
+            stockShardService.setTotals(stockTotals);
+
+            Set<Long> productIds = new LinkedHashSet<>();
+            resolved.forEach(r -> productIds.add(r.productId()));
+            eventPublisher.publishEvent(new ProductChangedEvent(productIds, ProductChangedEvent.ChangeType.UPDATED));
+        }
+        return new ChunkResult(resolved.size(), missing);
+    }
+
+    // One query for id-addressed patches, one for sku-addressed ones
+    private void resolveIds(List<IndexedPatch> chunk, Set<Long> existingIds, Map<String, Long> idsBySku) {
+        Set<Long> ids = new HashSet<>();
+        Set<String> skus = new HashSet<>();
+        for (IndexedPatch p : chunk) {
+            if (p.patch().getId() != null) {
+                ids.add(p.patch().getId());
+            } else {
+                skus.add(p.patch().getSku());
+            }
+        }
+
+        if (!ids.isEmpty()) {
+            existingIds.addAll(jdbcTemplate.queryForList(SELECT_IDS_BY_ID, Map.of("ids", ids), Long.class));
+        }
+        if (!skus.isEmpty()) {
+            jdbcTemplate.query(SELECT_IDS_BY_SKU, Map.of("skus", skus),
+                    rs -> { idsBySku.put(rs.getString("sku"), rs.getLong("id")); });
+        }
+    }
+
+    private static void reject(BulkProductPatchResponse report, int index, ProductPatchRequest patch, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add(new BulkProductPatchResponse.PatchError(index, patch.getId(), patch.getSku(), message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    private record IndexedPatch(int index, ProductPatchRequest patch) {
+    }
+
+    private record ResolvedPatch(Long productId, ProductPatchRequest patch) {
+    }
+
+    private record ChunkResult(int updated, List<IndexedPatch> missing) {
+    }
+}
@@ -0,0 +1,284 @@
+package com.jayaa.ecommerce.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayaa.ecommerce.dto.ProductFileFormat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+/**
+ * Full catalog export (active and inactive) as CSV or NDJSON.
+ * One forward-only query ordered by product id; rows are grouped per product as they
+ * arrive and written straight to the output, so memory does not grow with the catalog.
+ * The CSV columns are a superset of what ProductImportService reads back.
+ */
+@Service
+public class ProductExportService {
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    // One row per (product, category); products without categories still appear once
+    private static final String EXPORT_QUERY =
+            "SELECT p.id, p.name, p.slug, p.description, p.price, p.stock_quantity, p.sku, p.is_active, " +
+            "p.created_at, p.updated_at, s.review_count, s.rating_sum, pc.category_id " +
+            "FROM products p " +
+            "LEFT JOIN product_rating_summary s ON s.product_id = p.id " +
+            "LEFT JOIN product_categories pc ON pc.product_id = p.id " +
+            "ORDER BY p.id, pc.category_id";
+
+    private static final String[] CSV_HEADER = {
+            "id", "name", "slug", "description", "price", "stockQuantity", "sku", "isActive",
+            "createdAt", "updatedAt", "categoryIds", "reviewCount", "averageRating"
+    };
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Autowired
+    public ProductExportService(
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.export.fetch-size:1000}") int fetchSize
+    ) {
+        // MySQL only streams with Integer.MIN_VALUE (or useCursorFetch=true); otherwise it buffers the whole result
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    // Returns the number of products written
+    public long export(OutputStream output, ProductFileFormat format) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        try {
+            RowWriter rowWriter = format == ProductFileFormat.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+            ProductGrouper grouper = new ProductGrouper(rowWriter);
+
+            readOnlyTransaction.executeWithoutResult(status -> streamingJdbcTemplate.query(EXPORT_QUERY, grouper));
+            grouper.finish();
+            rowWriter.close();
+            writer.flush();
+            return grouper.count;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ========== ROW GROUPING ==========
+
+    // Mutable, reused for every product: nothing per row outlives the write
+    private static final class ExportRow {
+        long id;
+        String name;
+        String slug;
+        String description;
+        BigDecimal price;
+        int stockQuantity;
+        String sku;
+        boolean active;
+        LocalDateTime createdAt;
+        LocalDateTime updatedAt;
+        final StringBuilder categoryIds = new StringBuilder();
+        long reviewCount;
+        long ratingSum;
+
+        double averageRating() {
+            return reviewCount > 0 ? (double) ratingSum / reviewCount : 0.0;
+        }
+    }
+
+    private static final class ProductGrouper implements RowCallbackHandler {
+
+        private final RowWriter writer;
+        private final ExportRow row = new ExportRow();
+        private boolean pending;
+        private long count;
+
+        ProductGrouper(RowWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long id = rs.getLong("id");
+            if (!pending || row.id != id) {
+                flush();
+                row.id = id;
+                row.name = rs.getString("name");
+                row.slug = rs.getString("slug");
+                row.description = rs.getString("description");
+                row.price = rs.getBigDecimal("price");
+                row.stockQuantity = rs.getInt("stock_quantity");
+                row.sku = rs.getString("sku");
+                row.active = rs.getBoolean("is_active");
+                row.createdAt = rs.getObject("created_at", LocalDateTime.class);
+                row.updatedAt = rs.getObject("updated_at", LocalDateTime.class);
+                row.reviewCount = rs.getLong("review_count");
+                row.ratingSum = rs.getLong("rating_sum");
+                row.categoryIds.setLength(0);
+                pending = true;
+            }
+
+            long categoryId = rs.getLong("category_id");
+            if (!rs.wasNull()) {
+                if (!row.categoryIds.isEmpty()) {
+                    row.categoryIds.append('|');
+                }
+                row.categoryIds.append(categoryId);
+            }
+        }
+
+        void finish() {
+            flush();
+        }
+
+        private void flush() {
+            if (!pending) {
+                return;
+            }
+            try {
+                writer.write(row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            pending = false;
+            count++;
+        }
+    }
+
+    // ========== WRITERS ==========
+
+    private interface RowWriter {
+        void write(ExportRow row) throws IOException;
+
+        void close() throws IOException;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final Writer out;
+
+        CsvRowWriter(Writer out) throws IOException {
+            this.out = out;
+            out.write(String.join(",", CSV_HEADER));
+            out.write('\n');
+        }
+
+        @Override
+        public void write(ExportRow row) throws IOException {
+            out.write(Long.toString(row.id));
+            out.write(',');
+            writeField(row.name);
+            out.write(',');
+            writeField(row.slug);
+            out.write(',');
+            writeField(row.description);
+            out.write(',');
+            out.write(row.price != null ? row.price.toPlainString() : "");
+            out.write(',');
+            out.write(Integer.toString(row.stockQuantity));
+            out.write(',');
+            writeField(row.sku);
+            out.write(',');
+            out.write(Boolean.toString(row.active));
+            out.write(',');
+            out.write(row.createdAt != null ? row.createdAt.toString() : "");
+            out.write(',');
+            out.write(row.updatedAt != null ? row.updatedAt.toString() : "");
+            out.write(',');
+            out.append(row.categoryIds);
+            out.write(',');
+            out.write(Long.toString(row.reviewCount));
+            out.write(',');
+            out.write(Double.toString(row.averageRating()));
+            out.write('\n');
+        }
+
+        private void writeField(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+
+        private final Writer out;
+        private final JsonGenerator json;
+
+        NdjsonRowWriter(Writer out) throws IOException {
+            this.out = out;
+            this.json = objectMapper.getFactory().createGenerator(out);
+            this.json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.json.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        }
+
+        @Override
+        public void write(ExportRow row) throws IOException {
+            json.writeStartObject();
+            json.writeNumberField("id", row.id);
+            json.writeStringField("name", row.name);
+            json.writeStringField("slug", row.slug);
+            json.writeStringField("description", row.description);
+            json.writeNumberField("price", row.price);
+            json.writeNumberField("stockQuantity", row.stockQuantity);
+            json.writeStringField("sku", row.sku);
+            json.writeBooleanField("isActive", row.active);
+            json.writeStringField("createdAt", row.createdAt != null ? row.createdAt.toString() : null);
+            json.writeStringField("updatedAt", row.updatedAt != null ? row.updatedAt.toString() : null);
+            json.writeArrayFieldStart("categoryIds");
+            if (!row.categoryIds.isEmpty()) {
+                for (String categoryId : row.categoryIds.toString().split("\\|")) {
+                    json.writeNumber(categoryId);
+                }
+            }
+            json.writeEndArray();
+            json.writeNumberField("reviewCount", row.reviewCount);
+            json.writeNumberField("averageRating", row.averageRating());
+            json.writeEndObject();
+            json.flush();
+            out.write('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            json.close();
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.jayaa.ecommerce.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayaa.ecommerce.dto.ProductFileFormat;
+import com.jayaa.ecommerce.dto.ProductImportResponse;
+import com.jayaa.ecommerce.dto.ProductRequest;
+import com.jayaa.ecommerce.event.ProductChangedEvent;
+import com.jayaa.ecommerce.exception.BadRequestException;
+import com.jayaa.ecommerce.repository.CategoryRepository;
+import com.jayaa.ecommerce.repository.ProductRepository;
+import com.jayaa.ecommerce.util.CsvReader;
+import com.jayaa.ecommerce.util.SlugAllocator;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk product import from CSV or NDJSON, read as a stream (never buffered whole).
+ * Rows are validated and written in batches: one SKU lookup, one slug lookup and
+ * two JDBC batch inserts per batch instead of several round trips per product.
+ * Bad rows are reported and skipped; good rows in the same batch still go in.
+ */
+@Service
+public class ProductImportService {
+
+    static final int BATCH_SIZE = 500;
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String INSERT_PRODUCT =
+            "INSERT INTO products (name, slug, description, price, stock_quantity, sku, is_active, created_at, updated_at) " +
+            "VALUES (:name, :slug, :description, :price, :stockQuantity, :sku, :isActive, :now, :now)";
+    private static final String SELECT_IDS_BY_SKU = "SELECT id, sku FROM products WHERE sku IN (:skus)";
+    private static final String INSERT_PRODUCT_CATEGORY =
+            "INSERT INTO product_categories (product_id, category_id) VALUES (:productId, :categoryId)";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private SlugAllocator slugAllocator;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public ProductImportService(PlatformTransactionManager transactionManager) {
+        // Each batch commits on its own, so a late failure doesn't undo earlier batches
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public ProductImportResponse importProducts(InputStream input, ProductFileFormat format) {
+        ProductImportResponse report = new ProductImportResponse();
+        Set<Long> categoryIds = new HashSet<>(categoryRepository.findAllIds());
+        Set<String> seenSkus = new HashSet<>();
+        List<Row> batch = new ArrayList<>(BATCH_SIZE);
+
+        try (RowSource rows = format == ProductFileFormat.CSV ? new CsvRows(input) : new NdjsonRows(input)) {
+            Row row;
+            while ((row = rows.next()) != null) {
+                report.setTotalRows(report.getTotalRows() + 1);
+                String error = row.error() != null ? row.error() : validate(row.request(), categoryIds, seenSkus);
+                if (error != null) {
+                    reject(report, row, error);
+                    continue;
+                }
+
+                batch.add(row);
+                if (batch.size() == BATCH_SIZE) {
+                    importBatch(batch, report);
+                    batch.clear();
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // Rows read so far are already imported; report where the stream broke
+            reject(report, new Row(report.getTotalRows() + 1, null, null), "Unreadable input: " + e.getMessage());
+        }
+        if (!batch.isEmpty()) {
+            importBatch(batch, report);
+        }
+        return report;
+    }
+
+    // ========== VALIDATION ==========
+
+    // Checks that need no database round trip; categories were loaded once up front
+    private String validate(ProductRequest request, Set<Long> categoryIds, Set<String> seenSkus) {
+        Set<ConstraintViolation<ProductRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+
+        for (Long categoryId : request.getCategoryIds()) {
+            if (!categoryIds.contains(categoryId)) {
+                return "Category not found: " + categoryId;
+            }
+        }
+        if (!seenSkus.add(request.getSku())) {
+            return "Duplicate SKU in file: " + request.getSku();
+        }
+        return null;
+    }
+
+    // ========== BATCH WRITE ==========
+
+    private void importBatch(List<Row> batch, ProductImportResponse report) {
+        Set<String> existingSkus = new HashSet<>(productRepository.findExistingSkus(
+                batch.stream().map(row -> row.request().getSku()).toList()));
+
+        List<Row> accepted = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            if (existingSkus.contains(row.request().getSku())) {
+                reject(report, row, "SKU already exists: " + row.request().getSku());
+            } else {
+                accepted.add(row);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        List<String> slugs = slugAllocator.allocateAll(SlugAllocator.Scope.PRODUCT,
+                accepted.stream().map(row -> row.request().getName()).toList());
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(accepted, slugs));
+            report.setImported(report.getImported() + accepted.size());
+        } catch (RuntimeException e) {
+            slugAllocator.releaseAll(SlugAllocator.Scope.PRODUCT, slugs);
+            String message = "Batch rejected by database: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            accepted.forEach(row -> reject(report, row, message));
+        }
+    }
+
+    private void insert(List<Row> rows, List<String> slugs) {
+        LocalDateTime now = LocalDateTime.now();
+        SqlParameterSource[] products = new SqlParameterSource[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            ProductRequest request = rows.get(i).request();
+            products[i] = new MapSqlParameterSource()
+                    .addValue("name", request.getName())
+                    .addValue("slug", slugs.get(i))
+                    .addValue("description", request.getDescription())
+                    .addValue("price", request.getPrice())
+                    .addValue("stockQuantity", request.getStockQuantity())
+                    .addValue("sku", request.getSku())
+                    .addValue("isActive", request.getIsActive())
+                    .addValue("now", now);
+        }
+        jdbcTemplate.batchUpdate(INSERT_PRODUCT, products);
+
+        // Read generated ids back by SKU (unique) rather than relying on driver batch key support
+        Map<String, Long> idsBySku = new HashMap<>();
+        List<String> skus = rows.stream().map(row -> row.request().getSku()).toList();
+        jdbcTemplate.query(SELECT_IDS_BY_SKU, Map.of("skus", skus),
+                rs -> { idsBySku.put(rs.getString("sku"), rs.getLong("id")); });
+
+        List<SqlParameterSource> links = new ArrayList<>();
+        for (Row row : rows) {
+            Long productId = idsBySku.get(row.request().getSku());
+            for (Long categoryId : row.request().getCategoryIds()) {
+                links.add(new MapSqlParameterSource()
+                        .addValue("productId", productId)
+                        .addValue("categoryId", categoryId));
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_PRODUCT_CATEGORY, links.toArray(new SqlParameterSource[0]));
+
+        eventPublisher.publishEvent(new ProductChangedEvent(idsBySku.values(), ProductChangedEvent.ChangeType.CREATED));
+    }
+
+    private static void reject(ProductImportResponse report, Row row, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            String sku = row.request() != null ? row.request().getSku() : null;
+            report.getErrors().add(new ProductImportResponse.RowError(row.number(), sku, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    // ========== ROW SOURCES ==========
+
+    // error != null means the row could not be parsed into a request
+    private record Row(long number, ProductRequest request, String error) {
+    }
+
+    private interface RowSource extends AutoCloseable {
+        Row next() throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    /**
+     * Header row names the columns (any order, case-insensitive):
+     * name, description, price, stockQuantity, sku, isActive, categoryIds ("1|4|7").
+     */
+    private static final class CsvRows implements RowSource {
+
+        private static final List<String> REQUIRED = List.of("name", "description", "price", "stockquantity", "sku", "categoryids");
+
+        private final CsvReader reader;
+        private final Map<String, Integer> columns = new HashMap<>();
+        private long number;
+
+        CsvRows(InputStream input) throws IOException {
+            this.reader = new CsvReader(new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)));
+            List<String> header = reader.readRecord();
+            if (header == null) {
+                throw new BadRequestException("CSV header row is missing");
+            }
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(normalize(header.get(i)), i);
+            }
+            List<String> missing = REQUIRED.stream().filter(c -> !columns.containsKey(c)).toList();
+            if (!missing.isEmpty()) {
+                throw new BadRequestException("CSV header is missing columns: " + missing);
+            }
+        }
+
+        @Override
+        public Row next() throws IOException {
+            List<String> record;
+            do {
+                record = reader.readRecord();
+                if (record == null) {
+                    return null;
+                }
+            } while (record.size() == 1 && record.get(0).isBlank());
+            number++;
+
+            ProductRequest request = new ProductRequest();
+            try {
+                request.setName(field(record, "name"));
+                request.setDescription(field(record, "description"));
+                request.setSku(field(record, "sku"));
+                String price = field(record, "price");
+                request.setPrice(price != null ? new BigDecimal(price) : null);
+                String stock = field(record, "stockquantity");
+                request.setStockQuantity(stock != null ? Integer.valueOf(stock) : null);
+                String active = field(record, "isactive");
+                if (active != null) {
+                    request.setIsActive(Boolean.parseBoolean(active));
+                }
+                Set<Long> categoryIds = new HashSet<>();
+                String categories = field(record, "categoryids");
+                if (categories != null) {
+                    for (String id : categories.split("\\|")) {
+                        if (!id.isBlank()) {
+                            categoryIds.add(Long.valueOf(id.trim()));
+                        }
+                    }
+                }
+                request.setCategoryIds(categoryIds);
+            } catch (NumberFormatException e) {
+                return new Row(number, request, "Invalid number: " + e.getMessage());
+            }
+            return new Row(number, request, null);
+        }
+
+        private String field(List<String> record, String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= record.size()) {
+                return null;
+            }
+            String value = record.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        private static String normalize(String column) {
+            return column.trim().replace("_", "").toLowerCase(Locale.ROOT);
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    // One ProductRequest JSON object per line; a malformed line only fails that row
+    private final class NdjsonRows implements RowSource {
+
+        private final BufferedReader reader;
+        private long number;
+
+        NdjsonRows(InputStream input) {
+            this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public Row next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+            number++;
+
+            try {
+                ProductRequest request = objectMapper.readValue(line, ProductRequest.class);
+                return request != null ? new Row(number, request, null) : new Row(number, null, "Empty row");
+            } catch (JsonProcessingException e) {
+                return new Row(number, null, "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -1,20 +1,39 @@
 package com.jayaa.ecommerce.service;
 
+import com.jayaa.ecommerce.cache.ProductResponseCache;
 import com.jayaa.ecommerce.dto.*;
+import com.jayaa.ecommerce.event.ProductChangedEvent;
 import com.jayaa.ecommerce.exception.*;
+import com.jayaa.ecommerce.inventory.StockShardService;
 import com.jayaa.ecommerce.model.*;
 import com.jayaa.ecommerce.repository.*;
-import com.jayaa.ecommerce.util.SlugUtil;
+import com.jayaa.ecommerce.search.ProductFacetIndex;
+import com.jayaa.ecommerce.search.ProductSearchIndex;
+import com.jayaa.ecommerce.util.CursorCodec;
+import com.jayaa.ecommerce.util.SlugAllocator;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,10 +46,35 @@ public class ProductService {
     private CategoryRepository categoryRepository;
 
     @Autowired(required = false)
-    private ReviewRepository reviewRepository;
+    private ProductRatingSummaryRepository ratingSummaryRepository;
 
     @Autowired
-    private SlugUtil slugUtil;
+    private SlugAllocator slugAllocator;
+
+    @Autowired(required = false)
+    private ProductSearchIndex searchIndex;
+
+    @Autowired(required = false)
+    private ProductFacetIndex facetIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CursorCodec cursorCodec;
+
+    @Autowired
+    private ProductResponseCache productCache;
+
+    @Autowired
+    private StockShardService stockShardService;
+
+    // Same order as the default offset listing; id breaks ties between equal timestamps
+    private static final Sort CURSOR_SORT = Sort.by("createdAt", "id");
+
+    // index = in-memory inverted index, like = SQL LIKE scan (fallback)
+    @Value("${app.search.mode:index}")
+    private String searchMode;
 
     // ========== PUBLIC METHODS (Browsing) ==========
 
@@ -38,34 +82,80 @@ public class ProductService {
     public Page<ProductResponse> getAllActiveProducts(Pageable pageable) {
         Page<Product> products = productRepository.findByIsActive(true, pageable);
 
-        List<ProductResponse> responses = products.getContent().stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        List<ProductResponse> responses = convertToResponses(products.getContent());
 
         return new PageImpl<>(responses, pageable, products.getTotalElements());
     }
 
     @Transactional(readOnly = true)
     public ProductResponse getProductById(Long id) {
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
-        return convertToResponse(product);
+        return getVersionedProductById(id).getResponse();
     }
 
     @Transactional(readOnly = true)
     public ProductResponse getProductBySlug(String slug) {
-        Product product = productRepository.findBySlug(slug)
+        return getVersionedProductBySlug(slug).getResponse();
+    }
+
+    // ⭐ Response + validators for conditional GET, cached together so they always match
+    @Transactional(readOnly = true)
+    public VersionedProduct getVersionedProductById(Long id) {
+        VersionedProduct cached = productCache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+
+        long stamp = productCache.stamp();
+        // Version first: a write committing in between can only make it older than the body (an extra 200)
+        ResourceVersion version = productRepository.findVersionById(id)
+                .map(this::toResourceVersion)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+        Product product = productRepository.findWithCategoriesById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
-        return convertToResponse(product);
+        VersionedProduct loaded = new VersionedProduct(convertToResponse(product), version);
+        productCache.put(loaded, stamp);
+        return loaded;
+    }
+
+    @Transactional(readOnly = true)
+    public VersionedProduct getVersionedProductBySlug(String slug) {
+        VersionedProduct cached = productCache.getBySlug(slug);
+        if (cached != null) {
+            return cached;
+        }
+
+        long stamp = productCache.stamp();
+        ResourceVersion version = productRepository.findVersionBySlug(slug)
+                .map(this::toResourceVersion)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+        Product product = productRepository.findWithCategoriesBySlug(slug)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+        VersionedProduct loaded = new VersionedProduct(convertToResponse(product), version);
+        productCache.put(loaded, stamp);
+        return loaded;
+    }
+
+    private ResourceVersion toResourceVersion(ProductRepository.ProductVersion version) {
+        return ResourceVersion.of("product",
+                version.getId(),
+                version.getVersion(),
+                version.getUpdatedAt(),
+                version.getReviewVersion(),
+                version.getReviewUpdatedAt(),
+                version.getCategoryCount(),
+                version.getCategoryIdSum(),
+                version.getCategoriesUpdatedAt());
     }
 
     @Transactional(readOnly = true)
     public Page<ProductResponse> searchProducts(String query, Pageable pageable) {
+        if ("index".equalsIgnoreCase(searchMode) && searchIndex != null && searchIndex.isReady()) {
+            return searchWithIndex(query, pageable);
+        }
+
         Page<Product> products = productRepository.searchProducts(query, pageable);
 
-        List<ProductResponse> responses = products.getContent().stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        List<ProductResponse> responses = convertToResponses(products.getContent());
 
         return new PageImpl<>(responses, pageable, products.getTotalElements());
     }
@@ -74,13 +164,49 @@ public class ProductService {
     public Page<ProductResponse> getProductsByCategory(Long categoryId, Pageable pageable) {
         Page<Product> products = productRepository.findByCategoryId(categoryId, pageable);
 
-        List<ProductResponse> responses = products.getContent().stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        List<ProductResponse> responses = convertToResponses(products.getContent());
 
         return new PageImpl<>(responses, pageable, products.getTotalElements());
     }
 
+    // ========== COUNT-FREE LISTINGS (infinite scroll) ==========
+
+    @Transactional(readOnly = true)
+    public Slice<ProductResponse> getAllActiveProductsSlice(Pageable pageable) {
+        Slice<Product> products = productRepository.findSliceByIsActive(true, pageable);
+        return new SliceImpl<>(convertToResponses(products.getContent()), pageable, products.hasNext());
+    }
+
+    @Transactional(readOnly = true)
+    public Slice<ProductResponse> getProductsByCategorySlice(Long categoryId, Pageable pageable) {
+        Slice<Product> products = productRepository.findSliceByCategoryId(categoryId, pageable);
+        return new SliceImpl<>(convertToResponses(products.getContent()), pageable, products.hasNext());
+    }
+
+    // ⭐ Keyset pages cost the same at any depth: seek past (createdAt, id) of the cursor
+    @Transactional(readOnly = true)
+    public CursorPage<ProductResponse> getAllActiveProductsByCursor(String cursor, int size) {
+        Window<Product> products = productRepository.findByIsActive(
+                true, cursorCodec.decode(cursor, CURSOR_SORT), Limit.of(cursorCodec.clampSize(size)), CURSOR_SORT);
+        return toCursorPage(products);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<ProductResponse> getProductsByCategoryByCursor(Long categoryId, String cursor, int size) {
+        Window<Product> products = productRepository.findByCategoriesIdAndIsActive(
+                categoryId, true, cursorCodec.decode(cursor, CURSOR_SORT),
+                Limit.of(cursorCodec.clampSize(size)), CURSOR_SORT);
+        return toCursorPage(products);
+    }
+
+    private CursorPage<ProductResponse> toCursorPage(Window<Product> products) {
+        return new CursorPage<>(
+                convertToResponses(products.getContent()),
+                cursorCodec.nextCursor(products),
+                products.hasNext()
+        );
+    }
+
     @Transactional(readOnly = true)
     public Page<ProductResponse> getProductsByPriceRange(
             BigDecimal minPrice,
@@ -89,44 +215,82 @@ public class ProductService {
     ) {
         Page<Product> products = productRepository.findByPriceRange(minPrice, maxPrice, pageable);
 
-        List<ProductResponse> responses = products.getContent().stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        List<ProductResponse> responses = convertToResponses(products.getContent());
 
         return new PageImpl<>(responses, pageable, products.getTotalElements());
     }
 
+    // ⭐ Combined category / price / rating / stock / text filter with facet counts
+    @Transactional(readOnly = true)
+    public ProductFilterResponse filterProducts(ProductFilterRequest request, Pageable pageable) {
+        if (facetIndex == null) {
+            throw new BadRequestException("Product filtering is not available");
+        }
+        // Building the index scans the catalog: never on a request thread (startup build or its retry does it)
+        if (!facetIndex.isReady()) {
+            throw new ServiceUnavailableException("Product filtering is starting up, please retry shortly");
+        }
+        if (request.getMinPrice() != null && request.getMaxPrice() != null
+                && request.getMinPrice().compareTo(request.getMaxPrice()) > 0) {
+            throw new BadRequestException("Minimum price cannot be greater than maximum price");
+        }
+
+        ProductFacetIndex.Result result = facetIndex.filter(request);
+        long[] productIds = result.getProductIds();
+
+        int from = (int) Math.min(pageable.getOffset(), productIds.length);
+        int to = Math.min(from + pageable.getPageSize(), productIds.length);
+        Map<Long, Integer> rankById = new HashMap<>();
+        for (int i = from; i < to; i++) {
+            rankById.put(productIds[i], i);
+        }
+        List<Product> products = productRepository.findWithCategoriesByIdIn(rankById.keySet()).stream()
+                .sorted(Comparator.comparing(p -> rankById.get(p.getId())))
+                .collect(Collectors.toList());
+
+        ProductFilterResponse response = new ProductFilterResponse();
+        response.setProducts(new PageImpl<>(convertToResponses(products), pageable, productIds.length));
+        response.setCategories(result.getCategories());
+        response.setPriceRanges(result.getPriceRanges());
+        response.setRatings(result.getRatings());
+        response.setInStock(result.getInStock());
+        return response;
+    }
+
     // ========== ADMIN METHODS (Product Management) ==========
 
-    @Transactional
+    // ⭐ Runs in its own transaction, retried if another writer takes the slug first
     public ProductResponse createProduct(ProductRequest request) {
         // Check SKU uniqueness
         if (productRepository.existsBySku(request.getSku())) {
             throw new BadRequestException("SKU already exists: " + request.getSku());
         }
 
-        Product product = new Product();
-        product.setName(request.getName());
-        product.setSlug(generateUniqueSlug(request.getName()));
-        product.setDescription(request.getDescription());
-        product.setPrice(request.getPrice());
-        product.setStockQuantity(request.getStockQuantity());
-        product.setSku(request.getSku());
-        product.setIsActive(request.getIsActive());
-
-        // ⭐ Handle Many-to-Many: Categories
-        Set<Category> categories = new HashSet<>();
-        for (Long categoryId : request.getCategoryIds()) {
-            Category category = categoryRepository.findById(categoryId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Category not found: " + categoryId));
-            categories.add(category);
-        }
-        product.setCategories(categories);
+        return slugAllocator.insertWithUniqueSlug(SlugAllocator.Scope.PRODUCT, request.getName(), slug -> {
+            Product product = new Product();
+            product.setName(request.getName());
+            product.setSlug(slug);
+            product.setDescription(request.getDescription());
+            product.setPrice(request.getPrice());
+            product.setStockQuantity(request.getStockQuantity());
+            product.setSku(request.getSku());
+            product.setIsActive(request.getIsActive());
+
+            // ⭐ Handle Many-to-Many: Categories
+            Set<Category> categories = new HashSet<>();
+            for (Long categoryId : request.getCategoryIds()) {
+                Category category = categoryRepository.findById(categoryId)
+                        .orElseThrow(() -> new ResourceNotFoundException("Category not found: " + categoryId));
+                categories.add(category);
+            }
+            product.setCategories(categories);
 
-        Product saved = productRepository.save(product);
-        productRepository.flush();
+            Product saved = productRepository.save(product);
+            productRepository.flush();
 
-        return convertToResponseSimple(saved);
+            eventPublisher.publishEvent(new ProductChangedEvent(saved.getId(), ProductChangedEvent.ChangeType.CREATED));
+            return convertToResponseSimple(saved);
+        });
     }
 
     @Transactional
@@ -152,16 +316,22 @@ public class ProductService {
 
         Product updated = productRepository.save(product);
         productRepository.flush();
+        // The stock columns aren't updatable through the entity: set the new total with SQL
+        productRepository.setStockQuantity(updated.getId(), request.getStockQuantity(), LocalDateTime.now());
+        stockShardService.setTotals(Map.of(updated.getId(), request.getStockQuantity()));
+        productRepository.bumpVersion(updated.getId());
 
+        eventPublisher.publishEvent(new ProductChangedEvent(updated.getId(), ProductChangedEvent.ChangeType.UPDATED));
         return convertToResponseSimple(updated);
     }
 
     @Transactional
     public void deleteProduct(Long id) {
-        if (!productRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Product not found");
-        }
-        productRepository.deleteById(id);
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+        productRepository.delete(product);
+        slugAllocator.releaseAfterCommit(SlugAllocator.Scope.PRODUCT, product.getSlug());
+        eventPublisher.publishEvent(new ProductChangedEvent(id, ProductChangedEvent.ChangeType.DELETED));
     }
 
     @Transactional
@@ -171,22 +341,30 @@ public class ProductService {
 
         product.setImageUrl(imageUrl);
         Product updated = productRepository.save(product);
+        productRepository.flush();
+        productRepository.bumpVersion(updated.getId());
+        eventPublisher.publishEvent(new ProductChangedEvent(updated.getId(), ProductChangedEvent.ChangeType.UPDATED));
         return convertToResponseSimple(updated);
     }
 
     // ========== HELPER METHODS ==========
 
-    private String generateUniqueSlug(String name) {
-        String baseSlug = slugUtil.generateSlug(name);
-        String slug = baseSlug;
-        int attempt = 0;
+    // ⭐ Relevance-ranked search: ids from the in-memory index, one query for the page's rows
+    private Page<ProductResponse> searchWithIndex(String query, Pageable pageable) {
+        int[] rankedIds = searchIndex.search(query);
 
-        while (productRepository.findBySlug(slug).isPresent()) {
-            attempt++;
-            slug = baseSlug + "-" + attempt;
+        int from = (int) Math.min(pageable.getOffset(), rankedIds.length);
+        int to = Math.min(from + pageable.getPageSize(), rankedIds.length);
+        Map<Long, Integer> rankById = new HashMap<>();
+        for (int i = from; i < to; i++) {
+            rankById.put((long) rankedIds[i], i);
         }
 
-        return slug;
+        List<Product> products = productRepository.findWithCategoriesByIdIn(rankById.keySet()).stream()
+                .sorted(Comparator.comparing(p -> rankById.get(p.getId())))
+                .collect(Collectors.toList());
+
+        return new PageImpl<>(convertToResponses(products), pageable, rankedIds.length);
     }
 
     // ✅ Simple conversion - used after create/update to avoid lazy loading
@@ -228,13 +406,11 @@ public class ProductService {
     private ProductResponse convertToResponse(Product product) {
         ProductResponse response = convertToResponseSimple(product);
 
-        // Get review statistics
-        if (reviewRepository != null) {
+        // Get review statistics (single primary-key lookup on the summary table)
+        if (ratingSummaryRepository != null) {
             try {
-                Double avgRating = reviewRepository.getAverageRating(product.getId());
-                Long reviewCount = reviewRepository.getReviewCount(product.getId());
-                response.setAverageRating(avgRating != null ? avgRating : 0.0);
-                response.setReviewCount(reviewCount != null ? reviewCount : 0L);
+                ratingSummaryRepository.findById(product.getId())
+                        .ifPresent(summary -> applyRatingSummary(response, summary));
             } catch (Exception e) {
                 System.err.println("Warning: Could not load review stats: " + e.getMessage());
             }
@@ -242,6 +418,54 @@ public class ProductService {
 
         return response;
     }
+
+    // ⭐ Page conversion - review statistics for all products in ONE primary-key lookup
+    private List<ProductResponse> convertToResponses(List<Product> products) {
+        fetchCategories(products);
+
+        List<ProductResponse> responses = products.stream()
+                .map(this::convertToResponseSimple)
+                .collect(Collectors.toList());
+
+        if (ratingSummaryRepository == null || responses.isEmpty()) {
+            return responses;
+        }
+
+        try {
+            List<Long> productIds = responses.stream()
+                    .map(ProductResponse::getId)
+                    .collect(Collectors.toList());
+            Map<Long, ProductRatingSummary> summaries = ratingSummaryRepository.findAllById(productIds).stream()
+                    .collect(Collectors.toMap(ProductRatingSummary::getProductId, Function.identity()));
+
+            for (ProductResponse response : responses) {
+                ProductRatingSummary summary = summaries.get(response.getId());
+                if (summary != null) {
+                    applyRatingSummary(response, summary);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Warning: Could not load review stats: " + e.getMessage());
+        }
+
+        return responses;
+    }
+
+    // Initializes every product's categories with one query instead of one lazy load each
+    private void fetchCategories(List<Product> products) {
+        List<Long> uninitialized = products.stream()
+                .filter(product -> !Hibernate.isInitialized(product.getCategories()))
+                .map(Product::getId)
+                .collect(Collectors.toList());
+        if (!uninitialized.isEmpty()) {
+            productRepository.findWithCategoriesByIdIn(uninitialized);
+        }
+    }
+
+    private void applyRatingSummary(ProductResponse response, ProductRatingSummary summary) {
+        response.setAverageRating(summary.getAverageRating());
+        response.setReviewCount(summary.getReviewCount());
+    }
 }
 ////package com.jayaa.ecommerce.service;
 ////
@@ -1,10 +1,12 @@
 package com.jayaa.ecommerce.service;
 
 import com.jayaa.ecommerce.dto.*;
+import com.jayaa.ecommerce.event.ReviewChangedEvent;
 import com.jayaa.ecommerce.exception.*;
 import com.jayaa.ecommerce.model.*;
 import com.jayaa.ecommerce.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
@@ -25,6 +27,12 @@ public class ReviewService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ProductRatingSummaryRepository ratingSummaryRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // ⭐ GET REVIEWS FOR PRODUCT (Public)
     @Transactional(readOnly = true)
     public Page<ReviewResponse> getReviewsByProduct(Long productId, Pageable pageable) {
@@ -58,6 +66,11 @@ public class ReviewService {
         review.setComment(request.getComment());
 
         Review saved = reviewRepository.save(review);
+
+        // ⭐ Keep rating summary in sync (same transaction)
+        ratingSummaryRepository.addRating(productId, saved.getRating());
+        eventPublisher.publishEvent(new ReviewChangedEvent(productId));
+
         return convertToResponse(saved);
     }
 
@@ -72,10 +85,20 @@ public class ReviewService {
             throw new ForbiddenException("You can only update your own reviews");
         }
 
+        Integer oldRating = review.getRating();
         review.setRating(request.getRating());
         review.setComment(request.getComment());
 
         Review updated = reviewRepository.save(review);
+
+        // ⭐ Move the rating between histogram buckets
+        if (!oldRating.equals(updated.getRating())) {
+            Long productId = updated.getProduct().getId();
+            ratingSummaryRepository.removeRating(productId, oldRating);
+            ratingSummaryRepository.addRating(productId, updated.getRating());
+            eventPublisher.publishEvent(new ReviewChangedEvent(productId));
+        }
+
         return convertToResponse(updated);
     }
 
@@ -91,6 +114,8 @@ public class ReviewService {
         }
 
         reviewRepository.delete(review);
+        ratingSummaryRepository.removeRating(review.getProduct().getId(), review.getRating());
+        eventPublisher.publishEvent(new ReviewChangedEvent(review.getProduct().getId()));
     }
 
     // ========== HELPER METHODS ==========
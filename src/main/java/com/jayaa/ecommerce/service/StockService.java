@@ -0,0 +1,157 @@
+package com.jayaa.ecommerce.service;
+
+import com.jayaa.ecommerce.exception.InsufficientStockException;
+import com.jayaa.ecommerce.inventory.StockShardService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Stock moves as conditional, atomic UPDATEs instead of read-check-save on the entity.
+ * The database checks "stock_quantity >= qty" and subtracts in the same statement,
+ * so concurrent checkouts can neither oversell nor overwrite each other's decrements.
+ * All lines go out as one JDBC batch in product id order, so two orders sharing
+ * products always lock rows in the same order and cannot deadlock.
+ * Lines of sharded products (stock_shards > 0) go to StockShardService instead.
+ */
+@Service
+public class StockService {
+
+    // "stock_shards = 0" turns a line whose product was sharded meanwhile into a shortfall, never a lost update
+    private static final String DECREMENT_STOCK =
+            "UPDATE products SET stock_quantity = stock_quantity - ?, updated_at = ?, version = version + 1 " +
+            "WHERE id = ? AND stock_quantity >= ? AND stock_shards = 0";
+    private static final String INCREMENT_STOCK =
+            "UPDATE products SET stock_quantity = stock_quantity + ?, updated_at = ?, version = version + 1 " +
+            "WHERE id = ? AND stock_shards = 0";
+    private static final String SELECT_STOCK =
+            "SELECT p.name, CASE WHEN p.stock_shards > 0 " +
+            "THEN (SELECT COALESCE(SUM(s.quantity), 0) FROM product_stock_shards s WHERE s.product_id = p.id) " +
+            "ELSE p.stock_quantity END AS stock_quantity FROM products p WHERE p.id = ?";
+
+    // Group commit: lock every product of a batch up front, in id order
+    private static final String LOCK_STOCK =
+            "SELECT p.id, p.name, CASE WHEN p.stock_shards > 0 " +
+            "THEN (SELECT COALESCE(SUM(s.quantity), 0) FROM product_stock_shards s WHERE s.product_id = p.id) " +
+            "ELSE p.stock_quantity END AS stock_quantity FROM products p WHERE p.id IN (:productIds) " +
+            "ORDER BY p.id FOR UPDATE";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private StockShardService stockShardService;
+
+    /**
+     * Takes quantities (product id -> units) out of stock, all or nothing.
+     * Must run inside the caller's transaction: a shortfall on any line throws
+     * InsufficientStockException, and the rollback undoes the lines already taken.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void decrement(Map<Long, Integer> quantities, Set<Long> shardedProductIds) {
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>();
+        List<Map.Entry<Long, Integer>> shardedLines = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : sortedLines(quantities)) {
+            (shardedProductIds.contains(line.getKey()) ? shardedLines : lines).add(line);
+        }
+
+        if (!lines.isEmpty()) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<Object[]> args = new ArrayList<>(lines.size());
+            for (Map.Entry<Long, Integer> line : lines) {
+                args.add(new Object[]{line.getValue(), now, line.getKey(), line.getValue()});
+            }
+            int[] updated = jdbcTemplate.batchUpdate(DECREMENT_STOCK, args);
+
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 0) {
+                    throw insufficientStock(lines.get(i).getKey(), lines.get(i).getValue());
+                }
+            }
+        }
+        if (!shardedLines.isEmpty()) {
+            List<Map.Entry<Long, Integer>> unfilled = stockShardService.decrement(shardedLines);
+            if (!unfilled.isEmpty()) {
+                throw insufficientStock(unfilled.get(0).getKey(), unfilled.get(0).getValue());
+            }
+        }
+    }
+
+    // For products known to have no stock shards
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void decrement(Map<Long, Integer> quantities) {
+        decrement(quantities, Set.of());
+    }
+
+    // Puts units back (order cancelled); unconditional, same id order as decrement
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void increment(Map<Long, Integer> quantities) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Map.Entry<Long, Integer>> lines = sortedLines(quantities);
+        List<Object[]> args = new ArrayList<>(lines.size());
+        for (Map.Entry<Long, Integer> line : lines) {
+            args.add(new Object[]{line.getValue(), now, line.getKey()});
+        }
+        int[] updated = jdbcTemplate.batchUpdate(INCREMENT_STOCK, args);
+
+        List<Map.Entry<Long, Integer>> shardedLines = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                shardedLines.add(lines.get(i));
+            }
+        }
+        if (!shardedLines.isEmpty()) {
+            stockShardService.increment(shardedLines);
+        }
+    }
+
+    /**
+     * Locks the products rows (id order) until the caller's transaction ends and returns
+     * the units on hand, so a batch of orders can be admitted in memory and then taken
+     * with one decrement that cannot fall short.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Long, StockLevel> lockStock(Collection<Long> productIds) {
+        Map<Long, StockLevel> levels = new HashMap<>();
+        namedJdbcTemplate.query(LOCK_STOCK, Map.of("productIds", productIds), rs -> {
+            levels.put(rs.getLong("id"), new StockLevel(rs.getString("name"), rs.getInt("stock_quantity")));
+        });
+        return levels;
+    }
+
+    public record StockLevel(String name, int onHand) {
+    }
+
+    private static List<Map.Entry<Long, Integer>> sortedLines(Map<Long, Integer> quantities) {
+        return new ArrayList<>(new TreeMap<>(quantities).entrySet());
+    }
+
+    // Only on the failure path: read what is left for a useful message
+    private InsufficientStockException insufficientStock(Long productId, int requested) {
+        return jdbcTemplate.query(SELECT_STOCK, rs -> {
+            if (!rs.next()) {
+                return new InsufficientStockException("Product not found: " + productId);
+            }
+            return new InsufficientStockException(
+                    "Insufficient stock for: " + rs.getString("name") +
+                            ". Available: " + rs.getInt("stock_quantity") +
+                            ", Requested: " + requested
+            );
+        }, productId);
+    }
+}
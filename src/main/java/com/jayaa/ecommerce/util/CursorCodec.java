@@ -0,0 +1,93 @@
+package com.jayaa.ecommerce.util;
+
+import com.jayaa.ecommerce.exception.BadRequestException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Component;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.Map;
+
+/**
+ * Opaque keyset cursors: the sort key values of the last row of a page
+ * (e.g. createdAt + id), serialized and base64url-encoded.
+ * Example: createdAt=t:2025-01-01T10:00|id=l:42 -> "Y3JlYXRlZEF0PXQ6..."
+ */
+@Component
+public class CursorCodec {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public int clampSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    // Cursor pointing after the last row of the window, or null on the last page
+    public String nextCursor(Window<?> window) {
+        if (!window.hasNext() || window.isEmpty()) {
+            return null;
+        }
+        return encode((KeysetScrollPosition) window.positionAt(window.size() - 1));
+    }
+
+    public String encode(KeysetScrollPosition position) {
+        StringBuilder raw = new StringBuilder();
+        for (Map.Entry<String, Object> key : position.getKeys().entrySet()) {
+            if (raw.length() > 0) {
+                raw.append('|');
+            }
+            raw.append(key.getKey()).append('=').append(encodeValue(key.getValue()));
+        }
+        return ENCODER.encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Blank cursor = first page; the cursor must carry exactly the keys of the given sort
+    public ScrollPosition decode(String cursor, Sort sort) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        try {
+            String raw = new String(DECODER.decode(cursor), StandardCharsets.UTF_8);
+            Map<String, Object> keys = new LinkedHashMap<>();
+            for (String part : raw.split("\\|")) {
+                int eq = part.indexOf('=');
+                keys.put(part.substring(0, eq), decodeValue(part.substring(eq + 1)));
+            }
+            Set<String> expected = sort.stream().map(Sort.Order::getProperty).collect(Collectors.toSet());
+            if (!keys.keySet().equals(expected)) {
+                throw new IllegalArgumentException("Cursor does not match sort");
+            }
+            return ScrollPosition.forward(keys);
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    private static String encodeValue(Object value) {
+        if (value instanceof LocalDateTime dateTime) {
+            return "t:" + dateTime;
+        }
+        if (value instanceof Long number) {
+            return "l:" + number;
+        }
+        throw new IllegalArgumentException("Unsupported cursor key type: " + value);
+    }
+
+    private static Object decodeValue(String encoded) {
+        String value = encoded.substring(2);
+        return switch (encoded.substring(0, 2)) {
+            case "t:" -> LocalDateTime.parse(value);
+            case "l:" -> Long.parseLong(value);
+            default -> throw new IllegalArgumentException("Unknown cursor key type");
+        };
+    }
+}
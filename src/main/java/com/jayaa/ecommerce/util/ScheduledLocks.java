@@ -0,0 +1,47 @@
+package com.jayaa.ecommerce.util;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Cluster-wide leases on scheduled jobs (scheduled_locks). Every node's scheduler fires; a run
+ * goes ahead only on the node holding the job's lease. The holder extends its own lease on each
+ * run, so a frequent job stays on one node, and another node takes over once a lease runs out.
+ * Leases are never released early: a job that runs once a day keeps other nodes (with clocks
+ * a little behind) from running it again until its lease ends.
+ */
+@Component
+public class ScheduledLocks {
+
+    private static final String CLAIM =
+            "UPDATE scheduled_locks SET locked_until = ?, locked_by = ?, locked_at = ? " +
+            "WHERE name = ? AND (locked_until <= ? OR locked_by = ?)";
+    private static final String CREATE =
+            "INSERT INTO scheduled_locks (name, locked_until, locked_by, locked_at) VALUES (?, ?, ?, ?)";
+
+    private final String node = UUID.randomUUID().toString();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // True if this node holds (or just took) the lease for the next leaseMs; runs in its own statement
+    public boolean tryAcquire(String name, long leaseMs) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp at = Timestamp.valueOf(now);
+        Timestamp until = Timestamp.valueOf(now.plusNanos(leaseMs * 1_000_000));
+        if (jdbcTemplate.update(CLAIM, until, node, at, name, at, node) == 1) {
+            return true;
+        }
+        try {
+            return jdbcTemplate.update(CREATE, name, until, node, at) == 1;
+        } catch (DuplicateKeyException e) {
+            // The row exists and another node's lease hasn't run out
+            return false;
+        }
+    }
+}
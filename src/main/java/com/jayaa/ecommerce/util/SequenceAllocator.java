@@ -0,0 +1,152 @@
+package com.jayaa.ecommerce.util;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Unique, increasing numbers per named counter without a database round trip per number.
+ * Each node reserves a block of blockSize numbers with one UPDATE on the "sequences" row,
+ * then hands them out with an atomic increment. Numbers left in a block when the node
+ * stops are skipped, so sequences have gaps but never duplicates.
+ *
+ * Callers are usually inside a checkout transaction, so the next block is reserved on a
+ * background thread once half of the current one is used: handing out a number never opens
+ * a second connection on the caller's thread. Only the first number of a counter, or a burst
+ * that outruns the prefetch, waits for the background reservation.
+ */
+@Component
+public class SequenceAllocator {
+
+    private static final String RESERVE_BLOCK = "UPDATE sequences SET next_value = next_value + ? WHERE name = ?";
+    private static final String READ_NEXT = "SELECT next_value FROM sequences WHERE name = ?";
+    private static final String CREATE = "INSERT INTO sequences (name, next_value) VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate newTransaction;
+    private final int blockSize;
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ExecutorService refills = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Autowired
+    public SequenceAllocator(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.sequences.block-size:100}") int blockSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Next number of the named counter. {@code firstValue} is only called when the
+     * counter does not exist yet (e.g. to continue after numbers issued before it existed).
+     */
+    public long next(String name, LongSupplier firstValue) {
+        Counter counter = counters.computeIfAbsent(name, Counter::new);
+        while (true) {
+            Block block = counter.current;
+            if (block != null) {
+                long value = block.next.getAndIncrement();
+                if (value < block.end) {
+                    if (value == block.refillAt) {
+                        counter.prefetch(firstValue);
+                    }
+                    return value;
+                }
+            }
+            counter.advance(block, firstValue);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        refills.shutdownNow();
+    }
+
+    private final class Counter {
+        private final String name;
+        private volatile Block current;
+        private CompletableFuture<Block> pending; // guarded by this
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        // At most one reservation in flight per counter; a failed one is retried by the next caller
+        synchronized CompletableFuture<Block> prefetch(LongSupplier firstValue) {
+            if (pending == null || pending.isCompletedExceptionally()) {
+                pending = CompletableFuture.supplyAsync(
+                        () -> newTransaction.execute(status -> reserveBlock(name, firstValue)), refills);
+            }
+            return pending;
+        }
+
+        // Moves on to the prefetched block; waits for it (outside the lock) if it isn't there yet
+        void advance(Block exhausted, LongSupplier firstValue) {
+            CompletableFuture<Block> next;
+            synchronized (this) {
+                if (current != exhausted) {
+                    return;
+                }
+                next = prefetch(firstValue);
+            }
+            Block block;
+            try {
+                block = next.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+            synchronized (this) {
+                if (current == exhausted) {
+                    current = block;
+                    pending = null;
+                }
+            }
+        }
+    }
+
+    private Block reserveBlock(String name, LongSupplier firstValue) {
+        if (jdbcTemplate.update(RESERVE_BLOCK, blockSize, name) == 0) {
+            long first = firstValue.getAsLong();
+            try {
+                jdbcTemplate.update(CREATE, name, first + blockSize);
+                return new Block(first, first + blockSize);
+            } catch (DuplicateKeyException e) {
+                // Another node created it first: take the next block like everyone else
+                jdbcTemplate.update(RESERVE_BLOCK, blockSize, name);
+            }
+        }
+        long end = jdbcTemplate.queryForObject(READ_NEXT, Long.class, name);
+        return new Block(end - blockSize, end);
+    }
+
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end; // exclusive
+        private final long refillAt;
+
+        Block(long first, long end) {
+            this.next = new AtomicLong(first);
+            this.end = end;
+            this.refillAt = first + (end - first) / 2;
+        }
+    }
+}
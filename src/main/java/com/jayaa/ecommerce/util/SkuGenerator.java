@@ -32,10 +32,14 @@ public class SkuGenerator {
     }
 
     /**
-     * Generate order number: ORD-YYYY-NNN
+     * Order number: ORD-YYYY-NNN for the given 1-based number of the year (more digits past 999)
      * Example: ORD-2025-001
      */
-    public String generateOrderNumber(int year, long count) {
-        return String.format("ORD-%d-%03d", year, count + 1);
+    public String formatOrderNumber(int year, long number) {
+        return String.format("ORD-%d-%03d", year, number);
+    }
+
+    public String orderNumberPrefix(int year) {
+        return "ORD-" + year + "-";
     }
 }
\ No newline at end of file
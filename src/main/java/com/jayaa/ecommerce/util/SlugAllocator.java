@@ -0,0 +1,228 @@
+package com.jayaa.ecommerce.util;
+
+import com.jayaa.ecommerce.repository.CategoryRepository;
+import com.jayaa.ecommerce.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Hands out unique slugs ("t-shirt", "t-shirt-1", "t-shirt-2", ...).
+ * The first allocation for a base slug loads every taken "base" / "base-*" slug in ONE query;
+ * after that the in-memory set answers, and also reserves slugs handed to in-flight inserts.
+ * A collision with another instance surfaces as a unique-constraint violation: the prefix
+ * is reloaded and the insert retried in a fresh transaction. Slugs given up by a rename or
+ * a delete are released, so the set only holds slugs that are in use or being inserted.
+ */
+@Component
+public class SlugAllocator {
+
+    public enum Scope { PRODUCT, CATEGORY }
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Autowired
+    private SlugUtil slugUtil;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private final TransactionTemplate newTransaction;
+
+    // Taken slugs per scope, complete for every base in loadedBases; guarded by the scope's Slugs monitor
+    private final Map<Scope, Slugs> slugsByScope = new EnumMap<>(Scope.class);
+
+    @Autowired
+    public SlugAllocator(PlatformTransactionManager transactionManager) {
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (Scope scope : Scope.values()) {
+            slugsByScope.put(scope, new Slugs());
+        }
+    }
+
+    public <T> T insertWithUniqueSlug(Scope scope, String name, Function<String, T> insert) {
+        return saveWithUniqueSlug(scope, name, null, insert);
+    }
+
+    /**
+     * Runs save(slug) in its own transaction with a slug unique for this name, retrying with
+     * the next free one if another writer took it first. An existing slug that already
+     * belongs to the name (renamed back, or unchanged) is kept as is.
+     */
+    public <T> T saveWithUniqueSlug(Scope scope, String name, String currentSlug, Function<String, T> save) {
+        String base = baseSlug(scope, name);
+        if (belongsTo(base, currentSlug)) {
+            return newTransaction.execute(status -> save.apply(currentSlug));
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            String slug = allocate(scope, base);
+            try {
+                T saved = newTransaction.execute(status -> save.apply(slug));
+                if (currentSlug != null) {
+                    // Renamed: the old slug is free once the new one has committed
+                    release(scope, currentSlug);
+                }
+                return saved;
+            } catch (DataIntegrityViolationException e) {
+                if (attempt >= MAX_ATTEMPTS || !isTaken(scope, slug)) {
+                    release(scope, slug);
+                    throw e;
+                }
+                reload(scope, base);
+            } catch (RuntimeException e) {
+                release(scope, slug);
+                throw e;
+            }
+        }
+    }
+
+    // Smallest free slug for this name; reserved until released or committed
+    public String allocate(Scope scope, String base) {
+        Slugs slugs = slugsByScope.get(scope);
+        synchronized (slugs) {
+            if (!slugs.loadedBases.contains(base)) {
+                slugs.taken.addAll(findTakenSlugs(scope, base));
+                slugs.loadedBases.add(base);
+            }
+
+            return nextFree(slugs, base);
+        }
+    }
+
+    // Caller holds the Slugs monitor
+    private static String nextFree(Slugs slugs, String base) {
+        String slug = base;
+        for (int suffix = 1; slugs.taken.contains(slug); suffix++) {
+            slug = base + "-" + suffix;
+        }
+        slugs.taken.add(slug);
+        return slug;
+    }
+
+    /**
+     * Batch form of allocate: one "slug IN (...)" query finds which bases exist at all,
+     * and only those pay for the prefix query. Returned slugs line up with names.
+     */
+    public List<String> allocateAll(Scope scope, List<String> names) {
+        List<String> bases = names.stream().map(name -> baseSlug(scope, name)).toList();
+        Slugs slugs = slugsByScope.get(scope);
+        synchronized (slugs) {
+            Set<String> unknown = new HashSet<>();
+            for (String base : bases) {
+                if (!slugs.loadedBases.contains(base) && !slugs.taken.contains(base)) {
+                    unknown.add(base);
+                }
+            }
+            Set<String> existing = unknown.isEmpty() ? Set.of() : new HashSet<>(findExistingSlugs(scope, unknown));
+            for (String base : unknown) {
+                if (!existing.contains(base)) {
+                    // "base" itself is free; suffixes are only needed if it gets taken again
+                    continue;
+                }
+                slugs.taken.addAll(findTakenSlugs(scope, base));
+                slugs.loadedBases.add(base);
+            }
+
+            List<String> allocated = new ArrayList<>(bases.size());
+            for (String base : bases) {
+                if (slugs.taken.contains(base) && !slugs.loadedBases.contains(base)) {
+                    slugs.taken.addAll(findTakenSlugs(scope, base));
+                    slugs.loadedBases.add(base);
+                }
+                allocated.add(nextFree(slugs, base));
+            }
+            return allocated;
+        }
+    }
+
+    public void releaseAll(Scope scope, Collection<String> allocated) {
+        Slugs slugs = slugsByScope.get(scope);
+        synchronized (slugs) {
+            slugs.taken.removeAll(allocated);
+        }
+    }
+
+    // For deletes: the slug is only free once the row is gone for everyone
+    public void releaseAfterCommit(Scope scope, String slug) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            release(scope, slug);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                release(scope, slug);
+            }
+        });
+    }
+
+    public String baseSlug(Scope scope, String name) {
+        String base = slugUtil.generateSlug(name);
+        return base.isEmpty() ? scope.name().toLowerCase() : base;
+    }
+
+    // True if slug is base itself or base plus a numeric suffix, i.e. it was allocated for this name
+    private static boolean belongsTo(String base, String slug) {
+        return slug != null && (slug.equals(base) || slug.matches(Pattern.quote(base) + "-\\d+"));
+    }
+
+    private void release(Scope scope, String slug) {
+        Slugs slugs = slugsByScope.get(scope);
+        synchronized (slugs) {
+            slugs.taken.remove(slug);
+        }
+    }
+
+    private void reload(Scope scope, String base) {
+        Slugs slugs = slugsByScope.get(scope);
+        synchronized (slugs) {
+            slugs.taken.addAll(findTakenSlugs(scope, base));
+        }
+    }
+
+    private List<String> findTakenSlugs(Scope scope, String base) {
+        // '!' escapes LIKE wildcards; slugs only contain [a-z0-9_-]
+        String pattern = LIKE_SPECIALS.matcher(base).replaceAll("!$0") + "-%";
+        return scope == Scope.PRODUCT
+                ? productRepository.findSlugsWithPrefix(base, pattern)
+                : categoryRepository.findSlugsWithPrefix(base, pattern);
+    }
+
+    private List<String> findExistingSlugs(Scope scope, Collection<String> candidates) {
+        return scope == Scope.PRODUCT
+                ? productRepository.findExistingSlugs(candidates)
+                : categoryRepository.findExistingSlugs(candidates);
+    }
+
+    private boolean isTaken(Scope scope, String slug) {
+        return scope == Scope.PRODUCT
+                ? productRepository.existsBySlug(slug)
+                : categoryRepository.existsBySlug(slug);
+    }
+
+    private static final Pattern LIKE_SPECIALS = Pattern.compile("[!%_]");
+
+    private static final class Slugs {
+        private final Set<String> taken = new HashSet<>();
+        private final Set<String> loadedBases = new HashSet<>();
+    }
+}
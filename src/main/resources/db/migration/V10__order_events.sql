@@ -0,0 +1,25 @@
+-- ========================================
+-- ORDER EVENT OUTBOX (see OrderOutbox / OrderEventDispatcher)
+-- ========================================
+
+-- Written in the same transaction as the order change, so an event exists if and only if
+-- the change committed. The dispatcher claims PENDING rows whose available_at has passed
+-- (claim_token + a lease in available_at), hands them to the in-process handlers and marks
+-- them DONE; failures are retried with backoff until FAILED. Delivery is at least once.
+CREATE TABLE order_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    order_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    event_type VARCHAR(30) NOT NULL,
+    order_status VARCHAR(20) NOT NULL,
+    state VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    available_at TIMESTAMP NOT NULL,
+    claim_token VARCHAR(36),
+    last_error VARCHAR(500),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    processed_at TIMESTAMP NULL,
+    INDEX idx_order_events_due (state, available_at, id),
+    INDEX idx_order_events_claim (claim_token),
+    INDEX idx_order_events_order (order_id)
+) ENGINE=InnoDB;
@@ -0,0 +1,51 @@
+-- ========================================
+-- DAILY SALES ROLLUPS (incrementally maintained by SalesRollup, read by the admin analytics API)
+-- ========================================
+
+-- Bucketed by the order's order_date. Cancelled orders are moved from order_count/units/revenue
+-- to cancelled_count, so the live columns always describe non-cancelled orders.
+-- Every checkout writes today's row, so each day is split over a few slot rows (like
+-- product_stock_shards): a transaction adds its deltas to one random slot and readers SUM
+-- the slots. A slot can go negative (a cancellation landing on another slot); the sum is exact.
+CREATE TABLE sales_daily (
+    sales_date DATE NOT NULL,
+    slot INT NOT NULL,
+    order_count BIGINT NOT NULL DEFAULT 0,
+    cancelled_count BIGINT NOT NULL DEFAULT 0,
+    units_sold BIGINT NOT NULL DEFAULT 0,
+    revenue DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (sales_date, slot)
+) ENGINE=InnoDB;
+
+CREATE TABLE product_sales_daily (
+    sales_date DATE NOT NULL,
+    product_id BIGINT NOT NULL,
+    slot INT NOT NULL,
+    order_count BIGINT NOT NULL DEFAULT 0,
+    units_sold BIGINT NOT NULL DEFAULT 0,
+    revenue DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (sales_date, product_id, slot),
+    FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE,
+    INDEX idx_product_sales_daily_product (product_id, sales_date)
+) ENGINE=InnoDB;
+
+-- Backfill from existing orders (slot 0)
+INSERT INTO sales_daily (sales_date, slot, order_count, cancelled_count, units_sold, revenue)
+SELECT DATE(o.order_date),
+       0,
+       SUM(CASE WHEN o.status <> 'CANCELLED' THEN 1 ELSE 0 END),
+       SUM(CASE WHEN o.status = 'CANCELLED' THEN 1 ELSE 0 END),
+       COALESCE(SUM(CASE WHEN o.status <> 'CANCELLED'
+           THEN (SELECT SUM(oi.quantity) FROM order_items oi WHERE oi.order_id = o.id) END), 0),
+       COALESCE(SUM(CASE WHEN o.status <> 'CANCELLED' THEN o.total_amount END), 0)
+FROM orders o
+GROUP BY DATE(o.order_date);
+
+INSERT INTO product_sales_daily (sales_date, product_id, slot, order_count, units_sold, revenue)
+SELECT DATE(o.order_date), oi.product_id, 0, COUNT(DISTINCT o.id), SUM(oi.quantity), SUM(oi.subtotal)
+FROM orders o
+JOIN order_items oi ON oi.order_id = o.id
+WHERE o.status <> 'CANCELLED'
+GROUP BY DATE(o.order_date), oi.product_id;
@@ -0,0 +1,8 @@
+-- ========================================
+-- FENCED IDEMPOTENCY CLAIMS (see IdempotencyService)
+-- ========================================
+
+-- Every claim (first insert or lease takeover) writes a fresh token; the order's transaction
+-- completes the key only while it still holds that token. A checkout whose claim was taken
+-- over or released therefore rolls back instead of placing a second order.
+ALTER TABLE idempotency_keys ADD COLUMN claim_token VARCHAR(36) NULL;
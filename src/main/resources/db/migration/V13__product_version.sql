@@ -0,0 +1,8 @@
+-- ========================================
+-- PRODUCT ROW VERSION (conditional GET validators)
+-- ========================================
+
+-- Bumped by every write to a product row (entity saves and the stock/bulk SQL updates).
+-- updated_at only has second precision, so two stock changes in the same second would
+-- otherwise produce the same ETag and Last-Modified.
+ALTER TABLE products ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,14 @@
+-- ========================================
+-- SCHEDULED JOB LOCKS (see SalesRollup.rebuildYesterday)
+-- ========================================
+
+-- One row per cluster-wide scheduled job. Every node's scheduler fires; only the node that
+-- moves locked_until forward runs the job. The lease is not released when the job ends, so
+-- nodes whose clocks run a little behind don't run it again, and a node that dies mid-run
+-- leaves the job free once the lease runs out.
+CREATE TABLE scheduled_locks (
+    name VARCHAR(64) PRIMARY KEY,
+    locked_until TIMESTAMP(6) NOT NULL,
+    locked_by VARCHAR(36) NOT NULL,
+    locked_at TIMESTAMP(6) NOT NULL
+) ENGINE=InnoDB;
@@ -0,0 +1,32 @@
+-- ========================================
+-- PRODUCT RATING SUMMARY (incrementally maintained by ReviewService)
+-- ========================================
+
+CREATE TABLE product_rating_summary (
+    product_id BIGINT PRIMARY KEY,
+    review_count BIGINT NOT NULL DEFAULT 0,
+    rating_sum BIGINT NOT NULL DEFAULT 0,
+    rating_1 BIGINT NOT NULL DEFAULT 0,
+    rating_2 BIGINT NOT NULL DEFAULT 0,
+    rating_3 BIGINT NOT NULL DEFAULT 0,
+    rating_4 BIGINT NOT NULL DEFAULT 0,
+    rating_5 BIGINT NOT NULL DEFAULT 0,
+    version BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE
+) ENGINE=InnoDB;
+
+-- Backfill from existing reviews
+INSERT INTO product_rating_summary
+    (product_id, review_count, rating_sum, rating_1, rating_2, rating_3, rating_4, rating_5, version)
+SELECT product_id,
+       COUNT(*),
+       SUM(rating),
+       SUM(CASE WHEN rating = 1 THEN 1 ELSE 0 END),
+       SUM(CASE WHEN rating = 2 THEN 1 ELSE 0 END),
+       SUM(CASE WHEN rating = 3 THEN 1 ELSE 0 END),
+       SUM(CASE WHEN rating = 4 THEN 1 ELSE 0 END),
+       SUM(CASE WHEN rating = 5 THEN 1 ELSE 0 END),
+       1
+FROM reviews
+GROUP BY product_id;
@@ -0,0 +1,17 @@
+-- ========================================
+-- STOCK RESERVATIONS (cart holds with a TTL, see StockReservationService)
+-- ========================================
+
+CREATE TABLE stock_reservations (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    quantity INT NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_reservation_user_product (user_id, product_id),
+    INDEX idx_reservation_product (product_id),
+    INDEX idx_reservation_expires (expires_at),
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE
+) ENGINE=InnoDB;
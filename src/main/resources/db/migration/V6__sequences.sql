@@ -0,0 +1,11 @@
+-- ========================================
+-- SEQUENCES (block-allocated counters, see SequenceAllocator)
+-- ========================================
+
+-- One row per counter, e.g. "order_number:2026". next_value is the first number
+-- not yet handed to any node; nodes reserve blocks by bumping it.
+CREATE TABLE sequences (
+    name VARCHAR(64) PRIMARY KEY,
+    next_value BIGINT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+) ENGINE=InnoDB;
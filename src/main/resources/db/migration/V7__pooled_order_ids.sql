@@ -0,0 +1,14 @@
+-- ========================================
+-- POOLED IDS FOR ORDERS / ORDER ITEMS
+-- ========================================
+
+-- Order and OrderItem take ids from Hibernate's pooled table generator instead of
+-- AUTO_INCREMENT, which lets a checkout insert all of its rows as JDBC batches.
+-- For these rows next_value is the LAST id of the block handed out next
+-- (Hibernate "pooled" optimizer, allocationSize 50), so the first block is
+-- MAX(id) + 1 .. MAX(id) + 50. The AUTO_INCREMENT columns stay as they are.
+INSERT INTO sequences (name, next_value)
+SELECT 'orders.id', COALESCE(MAX(id), 0) + 50 FROM orders;
+
+INSERT INTO sequences (name, next_value)
+SELECT 'order_items.id', COALESCE(MAX(id), 0) + 50 FROM order_items;
@@ -0,0 +1,18 @@
+-- ========================================
+-- SHARDED STOCK FOR HOT PRODUCTS (see StockShardService)
+-- ========================================
+
+-- 0 = stock lives in products.stock_quantity (default).
+-- N > 0 = stock is split across N product_stock_shards rows; checkouts decrement one
+-- shard, so concurrent orders for the same product no longer queue on one row lock.
+-- products.stock_quantity is then the rolled-up sum.
+ALTER TABLE products ADD COLUMN stock_shards INT NOT NULL DEFAULT 0;
+
+CREATE TABLE product_stock_shards (
+    product_id BIGINT NOT NULL,
+    shard_no INT NOT NULL,
+    quantity INT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (product_id, shard_no),
+    FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE
+) ENGINE=InnoDB;
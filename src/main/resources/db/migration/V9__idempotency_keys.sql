@@ -0,0 +1,22 @@
+-- ========================================
+-- IDEMPOTENCY KEYS FOR ORDER PLACEMENT (see IdempotencyService)
+-- ========================================
+
+-- One row per (user, Idempotency-Key header). IN_PROGRESS rows are claims held by the
+-- node running the checkout until locked_until; COMPLETED rows keep the OrderResponse
+-- JSON so a retry gets the same answer without placing a second order.
+CREATE TABLE idempotency_keys (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash CHAR(64) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    order_id BIGINT,
+    response TEXT,
+    locked_until TIMESTAMP NULL,
+    expires_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_idempotency_user_key (user_id, idempotency_key),
+    INDEX idx_idempotency_expires (expires_at),
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+) ENGINE=InnoDB;
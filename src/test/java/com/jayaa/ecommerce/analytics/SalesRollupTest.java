@@ -0,0 +1,280 @@
+package com.jayaa.ecommerce.analytics;
+
+import com.jayaa.ecommerce.dto.CategorySalesResponse;
+import com.jayaa.ecommerce.dto.OrderResponse;
+import com.jayaa.ecommerce.dto.PlaceOrderRequest;
+import com.jayaa.ecommerce.dto.ProductSalesResponse;
+import com.jayaa.ecommerce.dto.SalesDayResponse;
+import com.jayaa.ecommerce.dto.UpdateOrderStatusRequest;
+import com.jayaa.ecommerce.exception.BadRequestException;
+import com.jayaa.ecommerce.inventory.AvailabilityLedger;
+import com.jayaa.ecommerce.inventory.StockReservationService;
+import com.jayaa.ecommerce.inventory.StockShardService;
+import com.jayaa.ecommerce.outbox.OrderOutbox;
+import com.jayaa.ecommerce.service.OrderService;
+import com.jayaa.ecommerce.service.StockService;
+import com.jayaa.ecommerce.util.CursorCodec;
+import com.jayaa.ecommerce.util.ScheduledLocks;
+import com.jayaa.ecommerce.util.SequenceAllocator;
+import com.jayaa.ecommerce.util.SkuGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Rebuilds run in their own transactions, so the orders have to be committed
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({SalesAnalyticsService.class, SalesRollup.class, OrderService.class, StockService.class,
+        StockShardService.class, ScheduledLocks.class, StockReservationService.class, AvailabilityLedger.class,
+        SequenceAllocator.class, SkuGenerator.class, CursorCodec.class, OrderOutbox.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SalesRollupTest {
+
+    @Autowired
+    private SalesAnalyticsService salesAnalyticsService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private SalesRollup salesRollup;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AvailabilityLedger ledger;
+
+    private long mugId;
+    private long teaId;
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        mugId = insertProduct("MUG", "12.50");
+        teaId = insertProduct("TEA", "4.00");
+        jdbcTemplate.update("INSERT INTO categories (name, slug, created_at, updated_at) " +
+                "VALUES ('Kitchen', 'kitchen', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)");
+        jdbcTemplate.update("INSERT INTO product_categories (product_id, category_id) " +
+                "SELECT ?, id FROM categories WHERE slug = 'kitchen'", mugId);
+        jdbcTemplate.update("INSERT INTO product_categories (product_id, category_id) " +
+                "SELECT ?, id FROM categories WHERE slug = 'kitchen'", teaId);
+        jdbcTemplate.update("INSERT INTO users (username, email, password, role, enabled, created_at) " +
+                "VALUES ('customer', 'customer@example.com', 'secret', 'CUSTOMER', TRUE, CURRENT_TIMESTAMP)");
+        signIn();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        jdbcTemplate.update("DELETE FROM scheduled_locks");
+        jdbcTemplate.update("DELETE FROM sales_daily");
+        jdbcTemplate.update("DELETE FROM product_sales_daily");
+        jdbcTemplate.update("DELETE FROM order_events");
+        jdbcTemplate.update("DELETE FROM order_items");
+        jdbcTemplate.update("DELETE FROM orders");
+        jdbcTemplate.update("DELETE FROM cart_items");
+        jdbcTemplate.update("DELETE FROM stock_reservations");
+        ledger.evict(List.of(mugId, teaId));
+        jdbcTemplate.update("DELETE FROM product_categories");
+        jdbcTemplate.update("DELETE FROM categories");
+        jdbcTemplate.update("DELETE FROM products");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void placementsAndCancellationsMatchARebuild() {
+        placeOrder(2, 1);
+        long cancelled = placeOrder(1, 3).getId();
+        long restored = placeOrder(0, 5).getId();
+        orderService.cancelOrder(cancelled);
+        orderService.cancelOrder(restored);
+        updateStatus(restored, "CONFIRMED");
+        updateStatus(restored, "SHIPPED");
+
+        SalesDayResponse day = today();
+        assertThat(day.getOrderCount()).isEqualTo(2);
+        assertThat(day.getCancelledCount()).isEqualTo(1);
+        assertThat(day.getUnitsSold()).isEqualTo(8);
+        assertThat(day.getRevenue()).isEqualByComparingTo("49.00");
+        List<ProductSalesResponse> products = salesAnalyticsService.getProductSales(today, today, "revenue", 10);
+        assertThat(products).extracting(ProductSalesResponse::getSku).containsExactly("MUG", "TEA");
+        assertThat(products.get(0).getOrderCount()).isEqualTo(1);
+        assertThat(products.get(1).getOrderCount()).isEqualTo(2);
+        assertThat(products.get(1).getUnitsSold()).isEqualTo(6);
+
+        // Several slot rows collapse into one per day (and product), with the same totals
+        assertThat(salesAnalyticsService.rebuild(today, today)).singleElement()
+                .usingRecursiveComparison().withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .isEqualTo(day);
+        assertThat(salesAnalyticsService.getProductSales(today, today, "revenue", 10))
+                .usingRecursiveFieldByFieldElementComparator()
+                .usingComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .isEqualTo(products);
+        assertThat(count("SELECT COUNT(*) FROM sales_daily")).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentCancelsOfOneOrderCountOnce() throws Exception {
+        long orderId = placeOrder(2, 1).getId();
+        int cancels = 8;
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(cancels);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < cancels; i++) {
+            futures.add(pool.submit(() -> {
+                signIn();
+                start.await();
+                try {
+                    return orderService.cancelOrder(orderId);
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+            }));
+        }
+        start.countDown();
+        int succeeded = 0;
+        for (Future<?> future : futures) {
+            try {
+                future.get(60, TimeUnit.SECONDS);
+                succeeded++;
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(BadRequestException.class);
+            }
+        }
+        pool.shutdown();
+
+        assertThat(succeeded).isEqualTo(1);
+        assertThat(stock(mugId)).isEqualTo(100);
+        assertThat(stock(teaId)).isEqualTo(100);
+        assertThat(today().getCancelledCount()).isEqualTo(1);
+        assertThat(today().getOrderCount()).isZero();
+        assertThat(count("SELECT COUNT(*) FROM order_events WHERE event_type = 'ORDER_CANCELLED'")).isEqualTo(1);
+    }
+
+    @Test
+    void rebuildBackfillsOrdersThatPredateTheRollups() {
+        placeOrder(1, 2);
+        jdbcTemplate.update("DELETE FROM sales_daily");
+        jdbcTemplate.update("DELETE FROM product_sales_daily");
+        assertThat(today().getOrderCount()).isZero();
+
+        salesAnalyticsService.rebuild(today.minusDays(2), today);
+
+        assertThat(today().getOrderCount()).isEqualTo(1);
+        assertThat(today().getRevenue()).isEqualByComparingTo("20.50");
+        List<CategorySalesResponse> categories = salesAnalyticsService.getCategorySales(today, today);
+        assertThat(categories).singleElement().satisfies(category -> {
+            assertThat(category.getName()).isEqualTo("Kitchen");
+            assertThat(category.getProductOrderCount()).isEqualTo(2);
+            assertThat(category.getUnitsSold()).isEqualTo(3);
+        });
+    }
+
+    @Test
+    void nightlyRebuildRunsOncePerLease() {
+        long orderId = placeOrder(1, 1).getId();
+        LocalDate yesterday = today.minusDays(1);
+        jdbcTemplate.update("UPDATE orders SET order_date = ? WHERE id = ?", yesterday.atTime(12, 0), orderId);
+
+        salesRollup.rebuildYesterday();
+        assertThat(salesAnalyticsService.getDailySales(yesterday, yesterday).get(0).getOrderCount()).isEqualTo(1);
+
+        // The lease now belongs to another node, whose run this was: nothing is recomputed here
+        jdbcTemplate.update("UPDATE scheduled_locks SET locked_by = 'other-node'");
+        jdbcTemplate.update("DELETE FROM sales_daily");
+        salesRollup.rebuildYesterday();
+        assertThat(salesAnalyticsService.getDailySales(yesterday, yesterday).get(0).getOrderCount()).isZero();
+
+        jdbcTemplate.update("UPDATE scheduled_locks SET locked_until = ?", today.minusDays(2).atStartOfDay());
+        salesRollup.rebuildYesterday();
+        assertThat(salesAnalyticsService.getDailySales(yesterday, yesterday).get(0).getOrderCount()).isEqualTo(1);
+    }
+
+    @Test
+    void dailySalesFillEmptyDaysAndRejectBadRanges() {
+        placeOrder(1, 0);
+
+        List<SalesDayResponse> days = salesAnalyticsService.getDailySales(null, today);
+
+        assertThat(days).hasSize(30);
+        assertThat(days.get(0).getDate()).isEqualTo(today.minusDays(29));
+        assertThat(days.subList(0, 29)).allSatisfy(day -> assertThat(day.getOrderCount()).isZero());
+        assertThat(days.get(29).getRevenue()).isEqualByComparingTo("12.50");
+        assertThatThrownBy(() -> salesAnalyticsService.getDailySales(today, today.minusDays(1)))
+                .isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> salesAnalyticsService.getDailySales(today.minusYears(2), today))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    private OrderResponse placeOrder(int mugs, int teas) {
+        addToCart(mugId, mugs);
+        addToCart(teaId, teas);
+        PlaceOrderRequest request = new PlaceOrderRequest();
+        request.setShippingAddress("1 Test Street");
+        request.setPaymentMethod("CARD");
+        return orderService.placeOrder(request);
+    }
+
+    private static void signIn() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "customer", null, List.of(new SimpleGrantedAuthority("CUSTOMER"))));
+    }
+
+    private int stock(long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId);
+    }
+
+    private void updateStatus(long orderId, String status) {
+        UpdateOrderStatusRequest request = new UpdateOrderStatusRequest();
+        request.setStatus(status);
+        orderService.updateOrderStatus(orderId, request);
+    }
+
+    private SalesDayResponse today() {
+        return salesAnalyticsService.getDailySales(today, today).get(0);
+    }
+
+    private long insertProduct(String sku, String price) {
+        jdbcTemplate.update("INSERT INTO products (name, slug, price, stock_quantity, sku, is_active) " +
+                "VALUES (?, ?, ?, 100, ?, TRUE)", sku, sku.toLowerCase(), new BigDecimal(price), sku);
+        return jdbcTemplate.queryForObject("SELECT id FROM products WHERE sku = ?", Long.class, sku);
+    }
+
+    private void addToCart(long productId, int quantity) {
+        if (quantity > 0) {
+            jdbcTemplate.update("INSERT INTO cart_items (user_id, product_id, quantity, added_at) " +
+                    "SELECT id, ?, ?, CURRENT_TIMESTAMP FROM users WHERE username = 'customer'", productId, quantity);
+        }
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+}
@@ -0,0 +1,120 @@
+package com.jayaa.ecommerce.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayaa.ecommerce.event.ProductChangedEvent;
+import com.jayaa.ecommerce.model.Category;
+import com.jayaa.ecommerce.model.Product;
+import com.jayaa.ecommerce.service.CategoryService;
+import com.jayaa.ecommerce.util.SlugAllocator;
+import com.jayaa.ecommerce.util.SlugUtil;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({CategorySnapshot.class, CategoryService.class, SlugUtil.class, SlugAllocator.class})
+class CategorySnapshotTest {
+
+    @Autowired
+    private CategorySnapshot categorySnapshot;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        category = new Category();
+        category.setName("Books");
+        category.setSlug("books");
+        entityManager.persist(category);
+
+        for (int i = 1; i <= 3; i++) {
+            Product product = new Product();
+            product.setName("Book " + i);
+            product.setSlug("book-" + i);
+            product.setPrice(BigDecimal.TEN);
+            product.setStockQuantity(1);
+            product.setSku("BOOK-" + i);
+            product.setIsActive(i != 1);
+            product.getCategories().add(category);
+            entityManager.persist(product);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void servesPreSerializedJsonWithoutTouchingTheDatabase() throws Exception {
+        categorySnapshot.rebuild();
+        statistics.clear();
+
+        JsonNode all = objectMapper.readTree(categorySnapshot.get(false).body());
+        JsonNode activeOnly = objectMapper.readTree(categorySnapshot.get(true).body());
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(all.get(0).get("name").asText()).isEqualTo("Books");
+        assertThat(all.get(0).get("productCount").asInt()).isEqualTo(3);
+        assertThat(activeOnly.get(0).get("productCount").asInt()).isEqualTo(2);
+    }
+
+    @Test
+    void rebuildKeepsValidatorsUntilContentChanges() {
+        CategorySnapshot.Json before = categorySnapshot.rebuild().all();
+        assertThat(categorySnapshot.rebuild().all()).isSameAs(before);
+
+        Category books = entityManager.find(Category.class, category.getId());
+        books.setDescription("Printed and e-books");
+        entityManager.flush();
+
+        CategorySnapshot.Json after = categorySnapshot.rebuild().all();
+        assertThat(after.etag()).isNotEqualTo(before.etag());
+    }
+
+    @Test
+    void productChangesAreFoldedIntoOneRebuild() {
+        CategorySnapshot.Json before = categorySnapshot.rebuild().all();
+        statistics.clear();
+
+        for (int i = 0; i < 20; i++) {
+            categorySnapshot.onProductChanged(new ProductChangedEvent(1L, ProductChangedEvent.ChangeType.UPDATED));
+        }
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+
+        categorySnapshot.publishChanges();
+        long oneRebuild = statistics.getPrepareStatementCount();
+        assertThat(oneRebuild).isPositive();
+        assertThat(categorySnapshot.get(false)).isSameAs(before);
+
+        // Nothing changed since: the next tick doesn't touch the database
+        categorySnapshot.publishChanges();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(oneRebuild);
+    }
+}
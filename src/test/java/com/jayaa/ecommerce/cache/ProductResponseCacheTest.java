@@ -0,0 +1,61 @@
+package com.jayaa.ecommerce.cache;
+
+import com.jayaa.ecommerce.dto.CacheStatsResponse;
+import com.jayaa.ecommerce.dto.ProductResponse;
+import com.jayaa.ecommerce.dto.ResourceVersion;
+import com.jayaa.ecommerce.dto.VersionedProduct;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductResponseCacheTest {
+
+    private static VersionedProduct product(long id) {
+        ProductResponse response = new ProductResponse();
+        response.setId(id);
+        response.setSlug("product-" + id);
+        return new VersionedProduct(response, ResourceVersion.of("product", id));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWhenFull() {
+        ProductResponseCache cache = new ProductResponseCache(2, 60_000);
+        cache.put(product(1), cache.stamp());
+        cache.put(product(2), cache.stamp());
+        cache.get(1L);
+        cache.put(product(3), cache.stamp());
+
+        assertThat(cache.get(1L)).isNotNull();
+        assertThat(cache.get(2L)).isNull();
+        assertThat(cache.getBySlug("product-2")).isNull();
+        assertThat(cache.getBySlug("product-3")).isNotNull();
+        assertThat(cache.stats().getEvictions()).isEqualTo(1);
+    }
+
+    @Test
+    void expiredEntriesAreMisses() throws InterruptedException {
+        ProductResponseCache cache = new ProductResponseCache(10, 1);
+        cache.put(product(1), cache.stamp());
+        Thread.sleep(5);
+
+        assertThat(cache.get(1L)).isNull();
+        CacheStatsResponse stats = cache.stats();
+        assertThat(stats.getExpirations()).isEqualTo(1);
+        assertThat(stats.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void loadStartedBeforeInvalidationIsNotCached() {
+        ProductResponseCache cache = new ProductResponseCache(10, 60_000);
+        cache.put(product(1), cache.stamp());
+
+        long stamp = cache.stamp();
+        cache.invalidate(List.of(1L));
+        cache.put(product(1), stamp);
+
+        assertThat(cache.get(1L)).isNull();
+        assertThat(cache.getBySlug("product-1")).isNull();
+        assertThat(cache.stats().getInvalidations()).isEqualTo(1);
+    }
+}
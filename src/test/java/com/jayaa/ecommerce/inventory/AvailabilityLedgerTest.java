@@ -0,0 +1,101 @@
+package com.jayaa.ecommerce.inventory;
+
+import com.jayaa.ecommerce.exception.InsufficientStockException;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AvailabilityLedgerTest {
+
+    // Never stale within a test unless a test says so
+    private final AvailabilityLedger ledger = new AvailabilityLedger(60_000, 60_000);
+
+    @Test
+    void holdsNeverExceedStockUnderContention() throws Exception {
+        int stock = 500;
+        AtomicInteger loads = new AtomicInteger();
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            int units = 1 + i % 3;
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    ledger.hold(7L, 0, units, id -> {
+                        loads.incrementAndGet();
+                        return new AvailabilityLedger.Availability(stock, 0);
+                    });
+                    granted.addAndGet(units);
+                } catch (InsufficientStockException e) {
+                    // sold out for this size
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(granted.get()).isEqualTo(stock);
+        assertThat(ledger.available(7L)).isZero();
+    }
+
+    @Test
+    void resizingCountsTheHoldersOwnUnits() {
+        AvailabilityLedger.Hold first = ledger.hold(1L, 0, 4, id -> new AvailabilityLedger.Availability(5, 0));
+
+        // Growing 4 -> 5 only needs one more unit
+        ledger.hold(1L, 4, 5, id -> null);
+        assertThat(ledger.available(1L)).isZero();
+        assertThatThrownBy(() -> ledger.hold(1L, 0, 1, id -> null))
+                .isInstanceOf(InsufficientStockException.class)
+                .hasMessageContaining("Available: 0");
+
+        ledger.undo(first);
+        assertThat(ledger.available(1L)).isEqualTo(4);
+        ledger.release(1L, 1);
+        assertThat(ledger.available(1L)).isEqualTo(5);
+    }
+
+    @Test
+    void evictedProductsReloadFromTheLoader() {
+        ledger.hold(3L, 0, 2, id -> new AvailabilityLedger.Availability(10, 0));
+        ledger.evict(List.of(3L));
+
+        assertThat(ledger.available(3L)).isNull();
+        ledger.hold(3L, 0, 1, id -> new AvailabilityLedger.Availability(4, 3));
+        assertThat(ledger.available(3L)).isZero();
+    }
+
+    @Test
+    void staleEntriesAndRefusalsGoBackToTheLoader() {
+        AvailabilityLedger stale = new AvailabilityLedger(0, 0);
+        AtomicInteger reserved = new AtomicInteger(3);
+        stale.hold(5L, 0, 2, id -> new AvailabilityLedger.Availability(5, reserved.get()));
+
+        // Another node took the remaining unit: the next hold sees it without an eviction
+        reserved.set(5);
+        assertThatThrownBy(() -> stale.hold(5L, 0, 1, id -> new AvailabilityLedger.Availability(5, reserved.get())))
+                .isInstanceOf(InsufficientStockException.class);
+
+        AvailabilityLedger fresh = new AvailabilityLedger(60_000, 0);
+        fresh.hold(6L, 0, 5, id -> new AvailabilityLedger.Availability(5, 0));
+        // Swept on another node: the refusal re-checks and finds the units free
+        assertThat(fresh.hold(6L, 0, 5, id -> new AvailabilityLedger.Availability(5, 0)).delta()).isEqualTo(5);
+    }
+}
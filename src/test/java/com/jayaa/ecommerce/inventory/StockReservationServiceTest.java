@@ -0,0 +1,172 @@
+package com.jayaa.ecommerce.inventory;
+
+import com.jayaa.ecommerce.exception.InsufficientStockException;
+import com.jayaa.ecommerce.model.Product;
+import com.jayaa.ecommerce.model.StockReservation;
+import com.jayaa.ecommerce.repository.ProductRepository;
+import com.jayaa.ecommerce.repository.StockReservationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Holds are released after commit, so every step commits for real
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({StockReservationService.class, AvailabilityLedger.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockReservationServiceTest {
+
+    private static final long ALICE = 1L;
+    private static final long BOB = 2L;
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private AvailabilityLedger ledger;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private AutowireCapableBeanFactory beanFactory;
+
+    private TransactionTemplate tx;
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        Product product = new Product();
+        product.setName("Console");
+        product.setSlug("console");
+        product.setDescription("Limited edition console");
+        product.setPrice(BigDecimal.valueOf(499));
+        product.setStockQuantity(5);
+        product.setSku("CONSOLE-1");
+        productId = productRepository.save(product).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reservationRepository.deleteAll();
+        productRepository.deleteAll();
+        ledger.evict(List.of(productId));
+    }
+
+    @Test
+    void holdsFromOtherCartsLimitWhatIsLeft() {
+        tx.executeWithoutResult(s -> reservationService.reserve(ALICE, productId, 3));
+
+        assertThatThrownBy(() -> tx.executeWithoutResult(s -> reservationService.reserve(BOB, productId, 3)))
+                .isInstanceOf(InsufficientStockException.class)
+                .hasMessageContaining("Available: 2");
+        tx.executeWithoutResult(s -> reservationService.reserve(BOB, productId, 2));
+
+        // Shrinking and growing your own hold only competes for the units others don't hold
+        tx.executeWithoutResult(s -> reservationService.reserve(ALICE, productId, 1));
+        tx.executeWithoutResult(s -> reservationService.reserve(ALICE, productId, 3));
+        assertThat(ledger.available(productId)).isZero();
+    }
+
+    @Test
+    void rolledBackReserveLeavesNoHold() {
+        assertThatThrownBy(() -> tx.executeWithoutResult(s -> {
+            reservationService.reserve(ALICE, productId, 4);
+            throw new IllegalStateException("checkout failed later");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(ledger.available(productId)).isEqualTo(5);
+        assertThat(reservationRepository.count()).isZero();
+    }
+
+    @Test
+    void sweeperFreesExpiredHolds() {
+        tx.executeWithoutResult(s -> reservationService.reserve(ALICE, productId, 5));
+        StockReservation hold = reservationRepository.findByUserIdAndProductId(ALICE, productId).orElseThrow();
+        hold.setExpiresAt(LocalDateTime.now().minusSeconds(1));
+        reservationRepository.save(hold);
+
+        reservationService.sweepExpired();
+
+        assertThat(reservationRepository.count()).isZero();
+        tx.executeWithoutResult(s -> reservationService.reserve(BOB, productId, 5));
+    }
+
+    @Test
+    void consumeTopsUpAndDropsTheHold() {
+        tx.executeWithoutResult(s -> reservationService.reserve(ALICE, productId, 2));
+
+        tx.executeWithoutResult(s -> reservationService.consume(ALICE, Map.of(productId, 3)));
+
+        assertThat(reservationRepository.count()).isZero();
+        assertThatThrownBy(() -> tx.executeWithoutResult(s -> reservationService.consume(BOB, Map.of(productId, 6))))
+                .isInstanceOf(InsufficientStockException.class);
+    }
+
+    @Test
+    void failedConsumeGivesBackTheHoldsItTook() {
+        Product gamepad = new Product();
+        gamepad.setName("Gamepad");
+        gamepad.setSlug("gamepad");
+        gamepad.setPrice(BigDecimal.valueOf(59));
+        gamepad.setStockQuantity(1);
+        gamepad.setSku("GAMEPAD-1");
+        Long gamepadId = productRepository.save(gamepad).getId();
+
+        // The console line is held before the gamepad line fails, and the transaction commits anyway
+        tx.executeWithoutResult(s -> assertThatThrownBy(
+                () -> reservationService.consume(ALICE, Map.of(productId, 2, gamepadId, 3)))
+                .isInstanceOf(InsufficientStockException.class));
+
+        assertThat(ledger.available(productId)).isEqualTo(5);
+        assertThat(ledger.available(gamepadId)).isEqualTo(1);
+        ledger.evict(List.of(gamepadId));
+    }
+
+    @Test
+    void holdSweptOnOneNodeCanBeTakenOnAnother() {
+        // Node B shares the database but keeps its own ledger
+        StockReservationService nodeB = new StockReservationService(transactionManager);
+        beanFactory.autowireBean(nodeB);
+        ReflectionTestUtils.setField(nodeB, "ledger", new AvailabilityLedger(60_000, 0));
+
+        tx.executeWithoutResult(s -> reservationService.reserve(ALICE, productId, 5));
+        assertThatThrownBy(() -> tx.executeWithoutResult(s -> nodeB.reserve(BOB, productId, 1)))
+                .isInstanceOf(InsufficientStockException.class);
+
+        StockReservation hold = reservationRepository.findByUserIdAndProductId(ALICE, productId).orElseThrow();
+        hold.setExpiresAt(LocalDateTime.now().minusSeconds(1));
+        reservationRepository.save(hold);
+        reservationService.sweepExpired();
+
+        // B still counts Alice's 5 units; the refusal re-checks the database instead of trusting it
+        tx.executeWithoutResult(s -> nodeB.reserve(BOB, productId, 5));
+        assertThat(reservationRepository.findByUserIdAndProductId(BOB, productId)).isPresent();
+    }
+}
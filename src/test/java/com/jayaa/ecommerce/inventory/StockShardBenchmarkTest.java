@@ -0,0 +1,112 @@
+package com.jayaa.ecommerce.inventory;
+
+import com.jayaa.ecommerce.service.StockService;
+import com.jayaa.ecommerce.util.ScheduledLocks;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * One hot product, many concurrent checkouts: single-row vs sharded stock. Each checkout
+ * keeps its transaction open for benchmark.holdMicros after the decrement, standing in for
+ * the rest of placeOrder (order inserts, cart delete) during which the stock row stays locked.
+ * Skipped by default:
+ * mvn test -Dtest=StockShardBenchmarkTest -Dbenchmark=true [-Dbenchmark.threads=16 -Dbenchmark.shards=16]
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({StockService.class, StockShardService.class, ScheduledLocks.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class StockShardBenchmarkTest {
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockShardService shardService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM product_stock_shards");
+        jdbcTemplate.update("DELETE FROM products");
+    }
+
+    @Test
+    void hotProductThroughput() throws Exception {
+        int threads = Integer.getInteger("benchmark.threads", 16);
+        int shards = Integer.getInteger("benchmark.shards", 16);
+        int checkouts = Integer.getInteger("benchmark.checkouts", 4000);
+        long holdNanos = Integer.getInteger("benchmark.holdMicros", 2000) * 1000L;
+
+        jdbcTemplate.update("INSERT INTO products (name, slug, price, stock_quantity, sku, is_active) " +
+                "VALUES ('Flash sale', 'flash-sale', 9.99, ?, 'FLASH-1', TRUE)", checkouts * 4);
+        long productId = jdbcTemplate.queryForObject("SELECT id FROM products WHERE sku = 'FLASH-1'", Long.class);
+
+        double single = run(productId, Set.of(), threads, checkouts, holdNanos);
+        shardService.reshard(productId, shards);
+        double sharded = run(productId, Set.of(productId), threads, checkouts, holdNanos);
+
+        System.out.printf("Hot product, %d threads, %d us in-transaction work: single row %,.0f checkouts/s, " +
+                "%d shards %,.0f checkouts/s (x%.1f)%n", threads, holdNanos / 1000, single, shards, sharded, sharded / single);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT SUM(quantity) FROM product_stock_shards WHERE product_id = ?", Integer.class, productId))
+                .isEqualTo(checkouts * 4 - 2 * checkouts);
+    }
+
+    // Returns checkouts per second
+    private double run(long productId, Set<Long> sharded, int threads, int checkouts, long holdNanos) throws Exception {
+        TransactionTemplate checkout = new TransactionTemplate(transactionManager);
+        Map<Long, Integer> cart = Map.of(productId, 1);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < checkouts; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                checkout.executeWithoutResult(status -> {
+                    stockService.decrement(cart, sharded);
+                    LockSupport.parkNanos(holdNanos);
+                });
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.MINUTES);
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        pool.shutdown();
+        return checkouts / seconds;
+    }
+}
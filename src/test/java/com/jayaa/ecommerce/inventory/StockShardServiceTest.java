@@ -0,0 +1,159 @@
+package com.jayaa.ecommerce.inventory;
+
+import com.jayaa.ecommerce.exception.BadRequestException;
+import com.jayaa.ecommerce.repository.ProductRepository;
+import com.jayaa.ecommerce.util.ScheduledLocks;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({StockShardService.class, ScheduledLocks.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockShardServiceTest {
+
+    @Autowired
+    private StockShardService shardService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+    private long productId;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        jdbcTemplate.update("INSERT INTO products (name, slug, price, stock_quantity, sku, is_active) " +
+                "VALUES ('Console', 'console', 499.00, 10, 'CONSOLE-1', TRUE)");
+        productId = jdbcTemplate.queryForObject("SELECT id FROM products WHERE sku = 'CONSOLE-1'", Long.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM scheduled_locks");
+        jdbcTemplate.update("DELETE FROM product_stock_shards");
+        jdbcTemplate.update("DELETE FROM products");
+    }
+
+    @Test
+    void reshardSplitsEvenlyAndMergesBack() {
+        shardService.reshard(productId, 4);
+
+        assertThat(shards()).containsExactly(3, 3, 2, 2);
+        assertThat(stockShards()).isEqualTo(4);
+
+        decrement(1);
+        shardService.reshard(productId, 0);
+
+        assertThat(shards()).isEmpty();
+        assertThat(stockShards()).isZero();
+        assertThat(stockQuantity()).isEqualTo(9);
+    }
+
+    @Test
+    void rejectsShardCountsOutOfRange() {
+        assertThatThrownBy(() -> shardService.reshard(productId, StockShardService.MAX_SHARDS + 1))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void lineLargerThanAnyShardIsTakenFromSeveral() {
+        shardService.reshard(productId, 4);
+
+        assertThat(decrement(9)).isEmpty();
+        assertThat(shards().stream().mapToInt(Integer::intValue).sum()).isEqualTo(1);
+        assertThat(decrement(2)).hasSize(1);
+        assertThat(shards().stream().mapToInt(Integer::intValue).sum()).isEqualTo(1);
+    }
+
+    @Test
+    void rollUpExposesTheShardSumAsStockQuantity() {
+        shardService.reshard(productId, 4);
+        decrement(3);
+
+        // Exact reads see the shards right away, the column after the roll-up
+        assertThat(productRepository.findStockQuantityById(productId)).contains(7);
+        assertThat(stockQuantity()).isEqualTo(10);
+
+        assertThat(syncStaleTotals()).isEqualTo(1);
+        assertThat(stockQuantity()).isEqualTo(7);
+        assertThat(syncStaleTotals()).isZero();
+    }
+
+    @Test
+    void rollUpRunsOnlyOnTheNodeHoldingTheLease() {
+        shardService.reshard(productId, 4);
+        decrement(3);
+        jdbcTemplate.update("INSERT INTO scheduled_locks (name, locked_until, locked_by, locked_at) " +
+                "VALUES ('stock-shards:sync', ?, 'other-node', CURRENT_TIMESTAMP)", LocalDateTime.now().plusMinutes(1));
+
+        shardService.syncTotals();
+        assertThat(stockQuantity()).isEqualTo(10);
+
+        // The other node stopped renewing: this one takes over
+        jdbcTemplate.update("UPDATE scheduled_locks SET locked_until = ?", LocalDateTime.now().minusSeconds(1));
+        shardService.syncTotals();
+        assertThat(stockQuantity()).isEqualTo(7);
+    }
+
+    @Test
+    void adminTotalIsSpreadOverExistingShards() {
+        shardService.reshard(productId, 4);
+
+        tx.executeWithoutResult(status -> shardService.setTotals(Map.of(productId, 101)));
+
+        assertThat(shards()).containsExactly(26, 25, 25, 25);
+    }
+
+    private List<Map.Entry<Long, Integer>> decrement(int quantity) {
+        return tx.execute(status -> {
+            List<Map.Entry<Long, Integer>> unfilled = shardService.decrement(List.of(Map.entry(productId, quantity)));
+            if (!unfilled.isEmpty()) {
+                status.setRollbackOnly();
+            }
+            return unfilled;
+        });
+    }
+
+    private int syncStaleTotals() {
+        return tx.execute(status -> shardService.syncStaleTotals());
+    }
+
+    private List<Integer> shards() {
+        return jdbcTemplate.queryForList(
+                "SELECT quantity FROM product_stock_shards WHERE product_id = ? ORDER BY shard_no", Integer.class, productId);
+    }
+
+    private int stockShards() {
+        return jdbcTemplate.queryForObject("SELECT stock_shards FROM products WHERE id = ?", Integer.class, productId);
+    }
+
+    private int stockQuantity() {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId);
+    }
+}
@@ -0,0 +1,178 @@
+package com.jayaa.ecommerce.outbox;
+
+import com.jayaa.ecommerce.model.OrderEventType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Claims and outcomes commit in their own transactions; the poller is off so batches run on the test thread
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OrderEventDispatcher.class, OrderEventDispatcherTest.RecordingHandler.class})
+@TestPropertySource(properties = {
+        "app.outbox.enabled=false",
+        "app.outbox.batch-size=10",
+        "app.outbox.retry-delay-ms=0",
+        "app.outbox.max-attempts=3"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderEventDispatcherTest {
+
+    @Autowired
+    private OrderEventDispatcher dispatcher;
+
+    @Autowired
+    private RecordingHandler handler;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        handler.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM order_events");
+    }
+
+    @Test
+    void deliversEventsOnceInOrderAndMarksThemDone() throws Exception {
+        insertEvent(1, OrderEventType.ORDER_PLACED, "PENDING");
+        insertEvent(2, OrderEventType.ORDER_PLACED, "PENDING");
+        insertEvent(1, OrderEventType.ORDER_CANCELLED, "CANCELLED");
+
+        assertThat(dispatcher.dispatchBatch()).isEqualTo(3);
+        assertThat(dispatcher.dispatchBatch()).isZero();
+
+        assertThat(handler.delivered).hasSize(3);
+        assertThat(handler.delivered).filteredOn(delivery -> delivery.startsWith("1:"))
+                .containsExactly("1:ORDER_PLACED", "1:ORDER_CANCELLED");
+        assertThat(count("SELECT COUNT(*) FROM order_events WHERE state = 'DONE' AND processed_at IS NOT NULL"))
+                .isEqualTo(3);
+    }
+
+    @Test
+    void failedEventIsRetriedBeforeLaterEventsOfItsOrder() throws Exception {
+        insertEvent(1, OrderEventType.ORDER_PLACED, "PENDING");
+        insertEvent(1, OrderEventType.ORDER_STATUS_CHANGED, "SHIPPED");
+        handler.failuresLeft.set(1);
+
+        dispatcher.dispatchBatch();
+        assertThat(handler.delivered).isEmpty();
+        assertThat(jdbcTemplate.queryForList("SELECT state FROM order_events ORDER BY id", String.class))
+                .containsExactly("PENDING", "PENDING");
+        assertThat(count("SELECT attempts FROM order_events WHERE event_type = 'ORDER_PLACED'")).isEqualTo(1);
+
+        dispatcher.dispatchBatch();
+        assertThat(handler.delivered).containsExactly("1:ORDER_PLACED", "1:ORDER_STATUS_CHANGED");
+        // The held-back event was not charged an attempt
+        assertThat(count("SELECT attempts FROM order_events WHERE event_type = 'ORDER_STATUS_CHANGED'")).isZero();
+    }
+
+    @Test
+    void eventIsParkedAfterMaxAttempts() throws Exception {
+        insertEvent(1, OrderEventType.ORDER_PLACED, "PENDING");
+        handler.failuresLeft.set(Integer.MAX_VALUE);
+
+        for (int i = 0; i < 5; i++) {
+            dispatcher.dispatchBatch();
+        }
+
+        assertThat(jdbcTemplate.queryForObject("SELECT state FROM order_events", String.class)).isEqualTo("FAILED");
+        assertThat(count("SELECT attempts FROM order_events")).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT last_error FROM order_events", String.class))
+                .contains("handler down");
+    }
+
+    @Test
+    void concurrentDispatchersNeverDeliverAnEventTwice() throws Exception {
+        int events = 200;
+        for (int i = 0; i < events; i++) {
+            insertEvent(i, OrderEventType.ORDER_PLACED, "PENDING");
+        }
+        int nodes = 4;
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(nodes);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int n = 0; n < nodes; n++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                while (dispatcher.dispatchBatch() > 0) {
+                    // keep draining
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertThat(handler.delivered).hasSize(events);
+        assertThat(handler.duplicates.get()).isZero();
+        assertThat(count("SELECT COUNT(*) FROM order_events WHERE state = 'DONE'")).isEqualTo(events);
+    }
+
+    private void insertEvent(long orderId, OrderEventType type, String orderStatus) {
+        jdbcTemplate.update("INSERT INTO order_events (order_id, user_id, event_type, order_status, state, attempts, " +
+                "available_at, created_at) VALUES (?, 1, ?, ?, 'PENDING', 0, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)",
+                orderId, type.name(), orderStatus);
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+
+    static class RecordingHandler implements OrderEventHandler {
+        final List<String> delivered = new ArrayList<>();
+        final Set<Long> seen = ConcurrentHashMap.newKeySet();
+        final AtomicInteger duplicates = new AtomicInteger();
+        final AtomicInteger failuresLeft = new AtomicInteger();
+
+        synchronized void reset() {
+            delivered.clear();
+            seen.clear();
+            duplicates.set(0);
+            failuresLeft.set(0);
+        }
+
+        @Override
+        public void handle(Event event) {
+            if (failuresLeft.getAndDecrement() > 0) {
+                throw new IllegalStateException("handler down");
+            }
+            if (!seen.add(event.id())) {
+                duplicates.incrementAndGet();
+            }
+            synchronized (this) {
+                delivered.add(event.orderId() + ":" + event.type());
+            }
+        }
+    }
+}
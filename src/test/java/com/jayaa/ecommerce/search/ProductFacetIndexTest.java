@@ -0,0 +1,168 @@
+package com.jayaa.ecommerce.search;
+
+import com.jayaa.ecommerce.dto.ProductFilterRequest;
+import com.jayaa.ecommerce.dto.ProductFilterResponse.FacetCount;
+import com.jayaa.ecommerce.event.ProductChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import java.math.BigDecimal;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+// Change events load the products in a new transaction, so the rows have to be committed
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ProductFacetIndex.class, ProductSearchIndex.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductFacetIndexTest {
+
+    @Autowired
+    private ProductFacetIndex facetIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long kitchen;
+    private long garden;
+    private long kettle;   // 10.00, in stock, kitchen, 4.5 stars
+    private long teapot;   // 30.00, sold out, kitchen, 3 stars
+    private long shovel;   // 120.00, in stock, garden, 5 stars
+    private long planter;  // 45.00, in stock, kitchen + garden, no reviews
+
+    @BeforeEach
+    void setUp() {
+        kitchen = insertCategory("Kitchen");
+        garden = insertCategory("Garden");
+        kettle = insertProduct("KETTLE", "10.00", 5, true, kitchen);
+        teapot = insertProduct("TEAPOT", "30.00", 0, true, kitchen);
+        shovel = insertProduct("SHOVEL", "120.00", 2, true, garden);
+        planter = insertProduct("PLANTER", "45.00", 1, true, kitchen, garden);
+        insertProduct("HIDDEN", "10.00", 5, false, kitchen);
+        insertRatings(kettle, 4, 5);
+        insertRatings(teapot, 3);
+        insertRatings(shovel, 5);
+
+        facetIndex.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM product_rating_summary");
+        jdbcTemplate.update("DELETE FROM product_categories");
+        jdbcTemplate.update("DELETE FROM categories");
+        jdbcTemplate.update("DELETE FROM products");
+    }
+
+    @Test
+    void facetsCountEveryFilterExceptTheirOwn() {
+        ProductFilterRequest request = new ProductFilterRequest();
+        request.setCategoryIds(Set.of(kitchen));
+        request.setInStock(true);
+
+        ProductFacetIndex.Result result = facetIndex.filter(request);
+
+        // Newest (highest id) first; the sold-out teapot and the inactive product are filtered out
+        assertThat(result.getProductIds()).containsExactly(planter, kettle);
+        // Categories ignore the category filter: in-stock products per category
+        assertThat(result.getCategories()).extracting(FacetCount::getLabel, FacetCount::getCount)
+                .containsExactly(tuple("Garden", 2L), tuple("Kitchen", 2L));
+        // Stock ignores the stock filter: kettle, teapot and planter are in the kitchen, two in stock
+        assertThat(result.getInStock().getCount()).isEqualTo(2);
+        assertThat(result.getPriceRanges()).extracting(FacetCount::getValue, FacetCount::getCount)
+                .startsWith(tuple("0-25", 1L), tuple("25-50", 1L), tuple("50-100", 0L));
+        assertThat(result.getRatings()).extracting(FacetCount::getValue, FacetCount::getCount)
+                .containsExactly(tuple("4", 1L), tuple("3", 1L), tuple("2", 1L), tuple("1", 1L));
+    }
+
+    @Test
+    void priceAndRatingBoundsAreInclusiveExactValues() {
+        ProductFilterRequest byPrice = new ProductFilterRequest();
+        byPrice.setMinPrice(new BigDecimal("10.00"));
+        byPrice.setMaxPrice(new BigDecimal("30.00"));
+        byPrice.setSort("price_desc");
+        assertThat(facetIndex.filter(byPrice).getProductIds()).containsExactly(teapot, kettle);
+
+        ProductFilterRequest byRating = new ProductFilterRequest();
+        byRating.setMinRating(4.5);
+        byRating.setSort("rating");
+        assertThat(facetIndex.filter(byRating).getProductIds()).containsExactly(shovel, kettle);
+    }
+
+    @Test
+    void updatesKeepTheirOrdinalAndRemovalsFreeOne() {
+        int ordinals = facetIndex.ordinalCount();
+        jdbcTemplate.update("DELETE FROM product_categories WHERE product_id = ? AND category_id = ?", planter, kitchen);
+        for (int i = 0; i < 50; i++) {
+            facetIndex.onProductChanged(new ProductChangedEvent(planter, ProductChangedEvent.ChangeType.UPDATED));
+        }
+
+        assertThat(facetIndex.ordinalCount()).isEqualTo(ordinals);
+        assertThat(kitchenProducts()).containsExactly(teapot, kettle);
+
+        facetIndex.onProductChanged(new ProductChangedEvent(kettle, ProductChangedEvent.ChangeType.DELETED));
+        long whisk = insertProduct("WHISK", "8.00", 3, true, kitchen);
+        facetIndex.onProductChanged(new ProductChangedEvent(whisk, ProductChangedEvent.ChangeType.CREATED));
+
+        assertThat(facetIndex.ordinalCount()).isEqualTo(ordinals);
+        assertThat(kitchenProducts()).containsExactly(whisk, teapot);
+    }
+
+    @Test
+    void refreshPicksUpChangesMadeByOtherInstances() {
+        // Written by another node: no event reaches this index
+        jdbcTemplate.update("UPDATE products SET stock_quantity = 0 WHERE id = ?", kettle);
+        jdbcTemplate.update("UPDATE products SET is_active = FALSE WHERE id = ?", shovel);
+
+        ProductFilterRequest inStock = new ProductFilterRequest();
+        inStock.setInStock(true);
+        assertThat(facetIndex.filter(inStock).getProductIds()).containsExactly(planter, shovel, kettle);
+
+        facetIndex.refresh();
+
+        assertThat(facetIndex.filter(inStock).getProductIds()).containsExactly(planter);
+    }
+
+    private long[] kitchenProducts() {
+        ProductFilterRequest request = new ProductFilterRequest();
+        request.setCategoryIds(Set.of(kitchen));
+        return facetIndex.filter(request).getProductIds();
+    }
+
+    private long insertCategory(String name) {
+        jdbcTemplate.update("INSERT INTO categories (name, slug, created_at, updated_at) " +
+                "VALUES (?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", name, name.toLowerCase());
+        return jdbcTemplate.queryForObject("SELECT id FROM categories WHERE name = ?", Long.class, name);
+    }
+
+    private long insertProduct(String sku, String price, int stock, boolean active, long... categoryIds) {
+        jdbcTemplate.update("INSERT INTO products (name, slug, price, stock_quantity, sku, is_active) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", sku, sku.toLowerCase(), new BigDecimal(price), stock, sku, active);
+        long id = jdbcTemplate.queryForObject("SELECT id FROM products WHERE sku = ?", Long.class, sku);
+        for (long categoryId : categoryIds) {
+            jdbcTemplate.update("INSERT INTO product_categories (product_id, category_id) VALUES (?, ?)", id, categoryId);
+        }
+        return id;
+    }
+
+    private void insertRatings(long productId, int... ratings) {
+        int sum = 0;
+        for (int rating : ratings) {
+            sum += rating;
+        }
+        jdbcTemplate.update("INSERT INTO product_rating_summary (product_id, review_count, rating_sum, " +
+                "rating_1, rating_2, rating_3, rating_4, rating_5, version, updated_at) " +
+                "VALUES (?, ?, ?, 0, 0, 0, 0, 0, 1, CURRENT_TIMESTAMP)", productId, ratings.length, sum);
+    }
+}
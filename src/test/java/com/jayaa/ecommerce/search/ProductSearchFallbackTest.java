@@ -0,0 +1,69 @@
+package com.jayaa.ecommerce.search;
+
+import com.jayaa.ecommerce.cache.ProductResponseCache;
+import com.jayaa.ecommerce.dto.ProductResponse;
+import com.jayaa.ecommerce.inventory.StockShardService;
+import com.jayaa.ecommerce.model.Product;
+import com.jayaa.ecommerce.service.ProductService;
+import com.jayaa.ecommerce.util.CursorCodec;
+import com.jayaa.ecommerce.util.ScheduledLocks;
+import com.jayaa.ecommerce.util.SlugAllocator;
+import com.jayaa.ecommerce.util.SlugUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// mode=like takes the same path as an index that isn't built yet
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "app.search.mode=like")
+@Import({ProductSearchIndex.class, ProductService.class, SlugUtil.class, SlugAllocator.class, CursorCodec.class,
+        ProductResponseCache.class, StockShardService.class, ScheduledLocks.class})
+class ProductSearchFallbackTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void likeMatchesSubstringsTheIndexWouldMiss() {
+        Product kettle = persist("Electric Kettle", "Stainless steel");
+        Product teakettle = persist("Teakettle", "Whistles when the water boils");
+        persist("Mug", "Ceramic");
+        entityManager.flush();
+        entityManager.clear();
+        searchIndex.rebuild();
+
+        assertThat(productService.searchProducts("KETTLE", PageRequest.of(0, 10, Sort.by("id"))).getContent())
+                .extracting(ProductResponse::getId)
+                .containsExactly(kettle.getId(), teakettle.getId());
+        assertThat(searchIndex.search("kettle")).containsExactly(Math.toIntExact(kettle.getId()));
+    }
+
+    private Product persist(String name, String description) {
+        Product product = new Product();
+        product.setName(name);
+        product.setSlug(name.toLowerCase().replace(' ', '-'));
+        product.setDescription(description);
+        product.setPrice(BigDecimal.TEN);
+        product.setStockQuantity(1);
+        product.setSku(name.toUpperCase().replace(' ', '-'));
+        return entityManager.persist(product);
+    }
+}
@@ -0,0 +1,106 @@
+package com.jayaa.ecommerce.search;
+
+import com.jayaa.ecommerce.cache.ProductResponseCache;
+import com.jayaa.ecommerce.dto.ProductResponse;
+import com.jayaa.ecommerce.inventory.StockShardService;
+import com.jayaa.ecommerce.model.Product;
+import com.jayaa.ecommerce.service.ProductService;
+import com.jayaa.ecommerce.util.CursorCodec;
+import com.jayaa.ecommerce.util.ScheduledLocks;
+import com.jayaa.ecommerce.util.SlugAllocator;
+import com.jayaa.ecommerce.util.SlugUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ProductSearchIndex.class, ProductService.class, SlugUtil.class, SlugAllocator.class, CursorCodec.class,
+        ProductResponseCache.class, StockShardService.class, ScheduledLocks.class})
+class ProductSearchIndexTest {
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Product kettle;
+    private Product teapot;
+    private Product kettlebell;
+
+    @BeforeEach
+    void setUp() {
+        kettle = persist("Electric Kettle", "Stainless steel body");
+        teapot = persist("Teapot", "Brew next to your kettle");
+        kettlebell = persist("Kettlebell", "Cast iron body");
+        persist("Teakettle", "Whistles when the water boils on the stove top");
+        persist("Mug", "Ceramic");
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void nameHitsOutrankDescriptionHitsAndExactTermsOutrankPrefixes() {
+        searchIndex.rebuild();
+
+        // kettle: weight 3 in the name vs 1 in the teapot's description
+        assertThat(ids(searchIndex.search("kettle"))).startsWith(kettle.getId()).contains(teapot.getId());
+        // "kettle" is an exact term of one document and a prefix of "kettlebell"
+        assertThat(ids(searchIndex.search("kettle"))).containsSubsequence(kettle.getId(), kettlebell.getId());
+        // Every query term has to match; "body" alone matches two
+        assertThat(ids(searchIndex.search("body"))).containsExactlyInAnyOrder(kettle.getId(), kettlebell.getId());
+        assertThat(ids(searchIndex.search("steel kettle"))).containsExactly(kettle.getId());
+        assertThat(searchIndex.search("kettle toaster")).isEmpty();
+    }
+
+    @Test
+    void shorterDocumentsRankHigherForTheSameTermFrequency() {
+        searchIndex.rebuild();
+
+        // Both have one description hit of "body"; the kettlebell's document is shorter
+        assertThat(ids(searchIndex.search("body"))).containsExactly(kettlebell.getId(), kettle.getId());
+    }
+
+    @Test
+    void searchUsesTheIndexRanking() {
+        searchIndex.rebuild();
+
+        // Whole terms and prefixes only: "teakettle" doesn't match, best match first
+        assertThat(productService.searchProducts("kettle", PageRequest.of(0, 10)).getContent())
+                .extracting(ProductResponse::getId)
+                .containsExactly(kettle.getId(), kettlebell.getId(), teapot.getId());
+    }
+
+    private Product persist(String name, String description) {
+        Product product = new Product();
+        product.setName(name);
+        product.setSlug(name.toLowerCase().replace(' ', '-'));
+        product.setDescription(description);
+        product.setPrice(BigDecimal.TEN);
+        product.setStockQuantity(1);
+        product.setSku(name.toUpperCase().replace(' ', '-'));
+        return entityManager.persist(product);
+    }
+
+    private static Long[] ids(int[] productIds) {
+        Long[] ids = new Long[productIds.length];
+        for (int i = 0; i < productIds.length; i++) {
+            ids[i] = (long) productIds[i];
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,123 @@
+package com.jayaa.ecommerce.search;
+
+import com.jayaa.ecommerce.dto.SuggestionResponse;
+import com.jayaa.ecommerce.event.ProductChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Change events load the products in a new transaction, so the rows have to be committed
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ProductSuggestIndex.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductSuggestIndexTest {
+
+    @Autowired
+    private ProductSuggestIndex suggestIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long electricKettle;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO categories (name, slug, created_at, updated_at) " +
+                "VALUES ('Kettles', 'kettles', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)");
+        jdbcTemplate.update("INSERT INTO users (username, email, password, role, enabled, created_at) " +
+                "VALUES ('customer', 'customer@example.com', 'secret', 'CUSTOMER', TRUE, CURRENT_TIMESTAMP)");
+
+        electricKettle = insertProduct("Electric Kettle", 5, true);
+        insertProduct("Kettle Descaler", 9, true);
+        insertProduct("Kettlebell", 1, true);
+        insertProduct("Teakettle", 20, true);   // "kett" isn't a word start
+        insertProduct("Kettle Stand", 50, false);
+        jdbcTemplate.update("INSERT INTO product_categories (product_id, category_id) " +
+                "SELECT p.id, c.id FROM products p, categories c WHERE p.name IN ('Electric Kettle', 'Teakettle')");
+
+        suggestIndex.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM order_items");
+        jdbcTemplate.update("DELETE FROM orders");
+        jdbcTemplate.update("DELETE FROM product_categories");
+        jdbcTemplate.update("DELETE FROM categories");
+        jdbcTemplate.update("DELETE FROM products");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void prefixMatchesWordStartsRankedByPopularity() {
+        // Units sold for products, active product count (2) for the category; inactive products never show
+        assertThat(texts(suggestIndex.suggest("Kett", 10)))
+                .containsExactly("Kettle Descaler", "Electric Kettle", "Kettles", "Kettlebell");
+        assertThat(texts(suggestIndex.suggest("kett", 2))).containsExactly("Kettle Descaler", "Electric Kettle");
+        assertThat(texts(suggestIndex.suggest("electric ke", 10))).containsExactly("Electric Kettle");
+        assertThat(texts(suggestIndex.suggest("kettle d", 10))).containsExactly("Kettle Descaler");
+        assertThat(suggestIndex.suggest("toaster", 10)).isEmpty();
+    }
+
+    @Test
+    void shortPrefixesAnswerFromPrecomputedTopLists() {
+        assertThat(texts(suggestIndex.suggest("k", 3))).containsExactly("Kettle Descaler", "Electric Kettle", "Kettles");
+        assertThat(texts(suggestIndex.suggest("te", 10))).containsExactly("Teakettle");
+        assertThat(suggestIndex.suggest("KE", 20)).hasSize(4);
+    }
+
+    @Test
+    void changesArePublishedTogetherAndKeepPopularity() {
+        jdbcTemplate.update("UPDATE products SET name = 'Kettle Jug' WHERE id = ?", electricKettle);
+        suggestIndex.onProductChanged(new ProductChangedEvent(electricKettle, ProductChangedEvent.ChangeType.UPDATED));
+        jdbcTemplate.update("UPDATE products SET is_active = FALSE WHERE name = 'Kettlebell'");
+        suggestIndex.onProductChanged(new ProductChangedEvent(
+                jdbcTemplate.queryForObject("SELECT id FROM products WHERE name = 'Kettlebell'", Long.class),
+                ProductChangedEvent.ChangeType.UPDATED));
+
+        // Nothing is rebuilt on the event thread
+        assertThat(texts(suggestIndex.suggest("kettleb", 10))).containsExactly("Kettlebell");
+
+        suggestIndex.publishChanges();
+
+        assertThat(texts(suggestIndex.suggest("kettleb", 10))).isEmpty();
+        assertThat(suggestIndex.suggest("electric", 10)).isEmpty();
+        assertThat(texts(suggestIndex.suggest("ju", 10))).containsExactly("Kettle Jug");
+        // The renamed product keeps its units sold (5), above the category (2)
+        assertThat(texts(suggestIndex.suggest("kett", 10))).containsExactly("Kettle Descaler", "Kettle Jug", "Kettles");
+    }
+
+    private long insertProduct(String name, int unitsSold, boolean active) {
+        String sku = name.toUpperCase().replace(' ', '-');
+        jdbcTemplate.update("INSERT INTO products (name, slug, price, stock_quantity, sku, is_active) " +
+                "VALUES (?, ?, 10.00, 100, ?, ?)", name, sku.toLowerCase(), sku, active);
+        long id = jdbcTemplate.queryForObject("SELECT id FROM products WHERE sku = ?", Long.class, sku);
+
+        // Order and item ids are allocated by the application, not the database
+        jdbcTemplate.update("INSERT INTO orders (id, order_number, user_id, total_amount, status, order_date) " +
+                "SELECT ?, ?, id, ?, 'DELIVERED', CURRENT_TIMESTAMP FROM users WHERE username = 'customer'",
+                id, "ORD-" + sku, BigDecimal.TEN.multiply(BigDecimal.valueOf(unitsSold)));
+        jdbcTemplate.update("INSERT INTO order_items (id, order_id, product_id, quantity, price_at_purchase, subtotal) " +
+                "VALUES (?, ?, ?, ?, 10.00, ?)",
+                id, id, id, unitsSold, BigDecimal.TEN.multiply(BigDecimal.valueOf(unitsSold)));
+        return id;
+    }
+
+    private static List<String> texts(List<SuggestionResponse> suggestions) {
+        return suggestions.stream().map(SuggestionResponse::getText).toList();
+    }
+}
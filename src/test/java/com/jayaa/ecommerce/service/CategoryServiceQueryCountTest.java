@@ -0,0 +1,99 @@
+package com.jayaa.ecommerce.service;
+
+import com.jayaa.ecommerce.dto.CategoryResponse;
+import com.jayaa.ecommerce.model.Category;
+import com.jayaa.ecommerce.model.Product;
+import com.jayaa.ecommerce.util.SlugAllocator;
+import com.jayaa.ecommerce.util.SlugUtil;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({CategoryService.class, SlugUtil.class, SlugAllocator.class})
+class CategoryServiceQueryCountTest {
+
+    private static final int CATEGORIES = 6;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    // Category i holds i products; the first one of each is inactive
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        for (int c = 1; c <= CATEGORIES; c++) {
+            Category category = new Category();
+            category.setName("Category " + c);
+            category.setSlug("category-" + c);
+            entityManager.persist(category);
+
+            for (int p = 1; p <= c; p++) {
+                Product product = new Product();
+                product.setName("Product " + c + "-" + p);
+                product.setSlug("product-" + c + "-" + p);
+                product.setPrice(BigDecimal.TEN);
+                product.setStockQuantity(1);
+                product.setSku("SKU-" + c + "-" + p);
+                product.setIsActive(p != 1);
+                product.getCategories().add(category);
+                entityManager.persist(product);
+            }
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    private static Map<String, Integer> countsByName(List<CategoryResponse> categories) {
+        return categories.stream().collect(Collectors.toMap(CategoryResponse::getName, CategoryResponse::getProductCount));
+    }
+
+    @Test
+    void listingCountsProductsInOneGroupedQuery() {
+        List<CategoryResponse> categories = categoryService.getAllCategories(false);
+
+        assertThat(categories).hasSize(CATEGORIES);
+        assertThat(countsByName(categories))
+                .containsEntry("Category 1", 1)
+                .containsEntry("Category 6", 6);
+        // categories + one grouped count (was 1 + 1 per category)
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void activeOnlySkipsInactiveProducts() {
+        List<CategoryResponse> categories = categoryService.getAllCategories(true);
+
+        assertThat(countsByName(categories))
+                .containsEntry("Category 1", 0)
+                .containsEntry("Category 6", 5);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+}
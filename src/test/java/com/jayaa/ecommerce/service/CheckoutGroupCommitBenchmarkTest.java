@@ -0,0 +1,142 @@
+package com.jayaa.ecommerce.service;
+
+import com.jayaa.ecommerce.analytics.SalesRollup;
+import com.jayaa.ecommerce.dto.PlaceOrderRequest;
+import com.jayaa.ecommerce.inventory.AvailabilityLedger;
+import com.jayaa.ecommerce.inventory.StockReservationService;
+import com.jayaa.ecommerce.inventory.StockShardService;
+import com.jayaa.ecommerce.outbox.OrderOutbox;
+import com.jayaa.ecommerce.util.CursorCodec;
+import com.jayaa.ecommerce.util.ScheduledLocks;
+import com.jayaa.ecommerce.util.SequenceAllocator;
+import com.jayaa.ecommerce.util.SkuGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * One hot product, many concurrent checkouts: a transaction per order (mode=direct) vs group
+ * commit through the partition writers (mode=group). Skipped by default:
+ * mvn test -Dtest=CheckoutGroupCommitBenchmarkTest -Dbenchmark=true [-Dbenchmark.threads=8 -Dbenchmark.orders=4000]
+ * Keep threads below the connection pool size: a direct checkout can need a second connection
+ * (order number block) while it holds the product row lock.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({CheckoutService.class, OrderService.class, StockService.class, StockShardService.class,
+        ScheduledLocks.class, StockReservationService.class, AvailabilityLedger.class, SequenceAllocator.class,
+        SkuGenerator.class, CursorCodec.class, OrderOutbox.class, SalesRollup.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CheckoutGroupCommitBenchmarkTest {
+
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AvailabilityLedger ledger;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM order_events");
+        jdbcTemplate.update("DELETE FROM sales_daily");
+        jdbcTemplate.update("DELETE FROM product_sales_daily");
+        jdbcTemplate.update("DELETE FROM order_items");
+        jdbcTemplate.update("DELETE FROM orders");
+        jdbcTemplate.update("DELETE FROM cart_items");
+        jdbcTemplate.update("DELETE FROM stock_reservations");
+        ledger.evict(jdbcTemplate.queryForList("SELECT id FROM products", Long.class));
+        jdbcTemplate.update("DELETE FROM products");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void hotProductCheckoutThroughput() throws Exception {
+        int threads = Integer.getInteger("benchmark.threads", 8);
+        int orders = Integer.getInteger("benchmark.orders", 4000);
+
+        jdbcTemplate.update("INSERT INTO products (name, slug, price, stock_quantity, sku, is_active) " +
+                "VALUES ('Flash sale', 'flash-sale', 9.99, ?, 'FLASH-1', TRUE)", orders * 4);
+        long productId = jdbcTemplate.queryForObject("SELECT id FROM products WHERE sku = 'FLASH-1'", Long.class);
+
+        // Warm-up rounds are discarded
+        run("warm-direct", productId, threads, orders / 4, orderService::placeOrder);
+        run("warm-group", productId, threads, orders / 4, checkoutService::placeOrderGrouped);
+        double direct = run("direct", productId, threads, orders, orderService::placeOrder);
+        double grouped = run("group", productId, threads, orders, checkoutService::placeOrderGrouped);
+
+        System.out.printf("Hot product, %d threads: per-order transaction %,.0f orders/s, group commit %,.0f orders/s (x%.1f)%n",
+                threads, direct, grouped, grouped / direct);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders", Integer.class))
+                .isEqualTo(orders * 5 / 2);
+        assertThat(jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId))
+                .isEqualTo(orders * 4 - orders * 5 / 2);
+    }
+
+    // One customer per order, each with one unit of the hot product in the cart. Returns orders per second
+    private double run(String prefix, long productId, int threads, int orders,
+                       Function<PlaceOrderRequest, ?> checkout) throws Exception {
+        jdbcTemplate.update("INSERT INTO users (username, email, password, role, enabled, created_at) " +
+                "SELECT CONCAT(?, \"X\"), CONCAT(?, \"X\", '@example.com'), 'secret', 'CUSTOMER', TRUE, CURRENT_TIMESTAMP " +
+                "FROM SYSTEM_RANGE(1, ?)", prefix + "-", prefix + "-", orders);
+        jdbcTemplate.update("INSERT INTO cart_items (user_id, product_id, quantity, added_at) " +
+                "SELECT id, ?, 1, CURRENT_TIMESTAMP FROM users WHERE username LIKE ?", productId, prefix + "-%");
+
+        PlaceOrderRequest request = new PlaceOrderRequest();
+        request.setShippingAddress("1 Bench Street");
+        request.setPaymentMethod("CARD");
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 1; i <= orders; i++) {
+            String username = prefix + "-" + i;
+            futures.add(pool.submit(() -> {
+                start.await();
+                SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                        username, null, List.of(new SimpleGrantedAuthority("CUSTOMER"))));
+                try {
+                    checkout.apply(request);
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.MINUTES);
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        pool.shutdown();
+        return orders / seconds;
+    }
+}
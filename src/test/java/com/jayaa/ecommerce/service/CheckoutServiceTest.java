@@ -0,0 +1,205 @@
+package com.jayaa.ecommerce.service;
+
+import com.jayaa.ecommerce.analytics.SalesRollup;
+import com.jayaa.ecommerce.dto.OrderResponse;
+import com.jayaa.ecommerce.dto.PlaceOrderRequest;
+import com.jayaa.ecommerce.exception.BadRequestException;
+import com.jayaa.ecommerce.exception.ConflictException;
+import com.jayaa.ecommerce.exception.InsufficientStockException;
+import com.jayaa.ecommerce.inventory.AvailabilityLedger;
+import com.jayaa.ecommerce.inventory.StockReservationService;
+import com.jayaa.ecommerce.inventory.StockShardService;
+import com.jayaa.ecommerce.outbox.OrderOutbox;
+import com.jayaa.ecommerce.util.CursorCodec;
+import com.jayaa.ecommerce.util.ScheduledLocks;
+import com.jayaa.ecommerce.util.SequenceAllocator;
+import com.jayaa.ecommerce.util.SkuGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Group commit: real commits from the writer threads, so no test-managed transaction
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({CheckoutService.class, OrderService.class, StockService.class, StockShardService.class,
+        ScheduledLocks.class, StockReservationService.class, AvailabilityLedger.class, SequenceAllocator.class,
+        SkuGenerator.class, CursorCodec.class, OrderOutbox.class, SalesRollup.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CheckoutServiceTest {
+
+    private static final int CUSTOMERS = 12;
+    private static final int STOCK = 5;
+
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AvailabilityLedger ledger;
+
+    private long scarceId;
+    private long plentifulId;
+
+    @BeforeEach
+    void setUp() {
+        scarceId = insertProduct("SCARCE", STOCK);
+        plentifulId = insertProduct("PLENTY", 1000);
+        for (int i = 0; i < CUSTOMERS; i++) {
+            jdbcTemplate.update("INSERT INTO users (username, email, password, role, enabled, created_at) " +
+                    "VALUES (?, ?, 'secret', 'CUSTOMER', TRUE, CURRENT_TIMESTAMP)", "customer" + i, "customer" + i + "@example.com");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM order_events");
+        jdbcTemplate.update("DELETE FROM sales_daily");
+        jdbcTemplate.update("DELETE FROM product_sales_daily");
+        jdbcTemplate.update("DELETE FROM order_items");
+        jdbcTemplate.update("DELETE FROM orders");
+        jdbcTemplate.update("DELETE FROM cart_items");
+        jdbcTemplate.update("DELETE FROM stock_reservations");
+        ledger.evict(List.of(scarceId, plentifulId));
+        jdbcTemplate.update("DELETE FROM products");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void groupCommittedOrdersNeverOversell() throws Exception {
+        for (int i = 0; i < CUSTOMERS; i++) {
+            addToCart("customer" + i, scarceId, 1);
+            addToCart("customer" + i, plentifulId, 2);
+        }
+
+        List<Object> outcomes = checkoutConcurrently(
+                IntStream.range(0, CUSTOMERS).mapToObj(i -> "customer" + i).toList());
+
+        List<OrderResponse> orders = outcomes.stream()
+                .filter(OrderResponse.class::isInstance).map(OrderResponse.class::cast).toList();
+        assertThat(orders).hasSize(STOCK).allSatisfy(order -> {
+            assertThat(order.getId()).isNotNull();
+            assertThat(order.getOrderNumber()).isNotBlank();
+            assertThat(order.getItems()).hasSize(2);
+        });
+        assertThat(outcomes).filteredOn(InsufficientStockException.class::isInstance).hasSize(CUSTOMERS - STOCK);
+        assertThat(stock(scarceId)).isZero();
+        assertThat(stock(plentifulId)).isEqualTo(1000 - 2 * STOCK);
+        assertThat(count("SELECT COUNT(*) FROM orders")).isEqualTo(STOCK);
+        // One outbox event per committed order, written in the same batch transaction
+        assertThat(count("SELECT COUNT(*) FROM order_events WHERE event_type = 'ORDER_PLACED'")).isEqualTo(STOCK);
+        // Carts are cleared only for the customers whose order went through
+        assertThat(count("SELECT COUNT(*) FROM cart_items")).isEqualTo(2 * (CUSTOMERS - STOCK));
+    }
+
+    @Test
+    void doubleSubmitPlacesOneOrder() throws Exception {
+        addToCart("customer0", plentifulId, 3);
+
+        List<Object> outcomes = checkoutConcurrently(List.of("customer0", "customer0"));
+
+        assertThat(outcomes).filteredOn(OrderResponse.class::isInstance).hasSize(1);
+        assertThat(outcomes).filteredOn(BadRequestException.class::isInstance).hasSize(1);
+        assertThat(count("SELECT COUNT(*) FROM orders")).isEqualTo(1);
+        assertThat(stock(plentifulId)).isEqualTo(997);
+    }
+
+    @Test
+    void failingInTransactionStepRollsBackOnlyItsOrder() throws Exception {
+        List<String> usernames = IntStream.range(0, 4).mapToObj(i -> "customer" + i).toList();
+        usernames.forEach(username -> addToCart(username, plentifulId, 1));
+
+        // Like a lost idempotency claim: the step runs in the transaction that commits the order
+        List<Object> outcomes = checkoutConcurrently(usernames, placed -> {
+            if (placed.getUser().getUsername().equals("customer0")) {
+                throw new ConflictException("Claim lost");
+            }
+        });
+
+        assertThat(outcomes.get(0)).isInstanceOf(ConflictException.class);
+        assertThat(outcomes.subList(1, 4)).allSatisfy(outcome -> assertThat(outcome).isInstanceOf(OrderResponse.class));
+        assertThat(count("SELECT COUNT(*) FROM orders")).isEqualTo(3);
+        assertThat(stock(plentifulId)).isEqualTo(997);
+        assertThat(count("SELECT COUNT(*) FROM cart_items")).isEqualTo(1);
+    }
+
+    private List<Object> checkoutConcurrently(List<String> usernames) throws Exception {
+        return checkoutConcurrently(usernames, null);
+    }
+
+    // Each element is the caller's OrderResponse or the exception it got
+    private List<Object> checkoutConcurrently(List<String> usernames, Consumer<OrderResponse> inTransaction)
+            throws Exception {
+        PlaceOrderRequest request = new PlaceOrderRequest();
+        request.setShippingAddress("1 Test Street");
+        request.setPaymentMethod("CARD");
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(usernames.size());
+        List<Future<Object>> futures = new ArrayList<>();
+        for (String username : usernames) {
+            futures.add(pool.submit(() -> {
+                SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                        username, null, List.of(new SimpleGrantedAuthority("CUSTOMER"))));
+                start.await();
+                try {
+                    return checkoutService.placeOrderGrouped(request, inTransaction);
+                } catch (RuntimeException e) {
+                    return e;
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+            }));
+        }
+        start.countDown();
+        List<Object> outcomes = new ArrayList<>();
+        for (Future<Object> future : futures) {
+            outcomes.add(future.get(60, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+        return outcomes;
+    }
+
+    private long insertProduct(String sku, int stock) {
+        jdbcTemplate.update("INSERT INTO products (name, slug, price, stock_quantity, sku, is_active) " +
+                "VALUES (?, ?, 10.00, ?, ?, TRUE)", sku, sku.toLowerCase(), stock, sku);
+        return jdbcTemplate.queryForObject("SELECT id FROM products WHERE sku = ?", Long.class, sku);
+    }
+
+    private void addToCart(String username, long productId, int quantity) {
+        jdbcTemplate.update("INSERT INTO cart_items (user_id, product_id, quantity, added_at) " +
+                "SELECT id, ?, ?, CURRENT_TIMESTAMP FROM users WHERE username = ?", productId, quantity, username);
+    }
+
+    private int stock(long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId);
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+}
@@ -0,0 +1,219 @@
+package com.jayaa.ecommerce.service;
+
+import com.jayaa.ecommerce.analytics.SalesRollup;
+import com.jayaa.ecommerce.dto.OrderResponse;
+import com.jayaa.ecommerce.dto.PlaceOrderRequest;
+import com.jayaa.ecommerce.exception.BadRequestException;
+import com.jayaa.ecommerce.inventory.AvailabilityLedger;
+import com.jayaa.ecommerce.inventory.StockReservationService;
+import com.jayaa.ecommerce.inventory.StockShardService;
+import com.jayaa.ecommerce.outbox.OrderOutbox;
+import com.jayaa.ecommerce.util.CursorCodec;
+import com.jayaa.ecommerce.util.ScheduledLocks;
+import com.jayaa.ecommerce.util.SequenceAllocator;
+import com.jayaa.ecommerce.util.SkuGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Keys are claimed and completed in their own committed transactions
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({IdempotencyService.class, CheckoutService.class, OrderService.class, StockService.class,
+        StockShardService.class, ScheduledLocks.class, StockReservationService.class, AvailabilityLedger.class,
+        SequenceAllocator.class, SkuGenerator.class, CursorCodec.class, OrderOutbox.class, SalesRollup.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyServiceTest {
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AvailabilityLedger ledger;
+
+    private long productId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO products (name, slug, price, stock_quantity, sku, is_active) " +
+                "VALUES ('Mug', 'mug', 10.00, 100, 'MUG', TRUE)");
+        productId = jdbcTemplate.queryForObject("SELECT id FROM products WHERE sku = 'MUG'", Long.class);
+        jdbcTemplate.update("INSERT INTO users (username, email, password, role, enabled, created_at) " +
+                "VALUES ('customer', 'customer@example.com', 'secret', 'CUSTOMER', TRUE, CURRENT_TIMESTAMP)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        jdbcTemplate.update("DELETE FROM idempotency_keys");
+        jdbcTemplate.update("DELETE FROM order_events");
+        jdbcTemplate.update("DELETE FROM sales_daily");
+        jdbcTemplate.update("DELETE FROM product_sales_daily");
+        jdbcTemplate.update("DELETE FROM order_items");
+        jdbcTemplate.update("DELETE FROM orders");
+        jdbcTemplate.update("DELETE FROM cart_items");
+        jdbcTemplate.update("DELETE FROM stock_reservations");
+        ledger.evict(List.of(productId));
+        jdbcTemplate.update("DELETE FROM products");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void retryReturnsTheFirstOrder() {
+        addToCart(2);
+        signIn();
+
+        OrderResponse first = idempotencyService.placeOrder("key-1", request("1 Test Street"));
+        // The cart is empty now: a second checkout would fail, a replay must not
+        OrderResponse retry = idempotencyService.placeOrder("key-1", request("1 Test Street"));
+
+        assertThat(retry.getId()).isEqualTo(first.getId());
+        assertThat(retry.getOrderNumber()).isEqualTo(first.getOrderNumber());
+        assertThat(count("SELECT COUNT(*) FROM orders")).isEqualTo(1);
+        assertThat(stock()).isEqualTo(98);
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM idempotency_keys", String.class))
+                .isEqualTo("COMPLETED");
+    }
+
+    @Test
+    void concurrentDuplicatesPlaceOneOrder() throws Exception {
+        addToCart(3);
+        int duplicates = 8;
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(duplicates);
+        List<Future<OrderResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < duplicates; i++) {
+            futures.add(pool.submit(() -> {
+                signIn();
+                start.await();
+                try {
+                    return idempotencyService.placeOrder("key-2", request("1 Test Street"));
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+            }));
+        }
+        start.countDown();
+        List<Long> orderIds = new ArrayList<>();
+        for (Future<OrderResponse> future : futures) {
+            orderIds.add(future.get(60, TimeUnit.SECONDS).getId());
+        }
+        pool.shutdown();
+
+        assertThat(orderIds).hasSize(duplicates).containsOnly(orderIds.get(0));
+        assertThat(count("SELECT COUNT(*) FROM orders")).isEqualTo(1);
+        assertThat(stock()).isEqualTo(97);
+    }
+
+    @Test
+    void keyReusedForADifferentRequestIsRejected() {
+        addToCart(1);
+        signIn();
+        idempotencyService.placeOrder("key-3", request("1 Test Street"));
+
+        assertThatThrownBy(() -> idempotencyService.placeOrder("key-3", request("2 Other Street")))
+                .isInstanceOf(BadRequestException.class);
+        assertThat(count("SELECT COUNT(*) FROM orders")).isEqualTo(1);
+    }
+
+    @Test
+    void failedCheckoutReleasesTheKey() {
+        signIn();
+        assertThatThrownBy(() -> idempotencyService.placeOrder("key-4", request("1 Test Street")))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Cart is empty");
+        assertThat(count("SELECT COUNT(*) FROM idempotency_keys")).isZero();
+
+        addToCart(1);
+        OrderResponse order = idempotencyService.placeOrder("key-4", request("1 Test Street"));
+
+        assertThat(order.getId()).isNotNull();
+        assertThat(stock()).isEqualTo(99);
+    }
+
+    @Test
+    void expiredClaimIsTakenOverWithANewToken() {
+        addToCart(1);
+        signIn();
+        // Left behind by a node that died mid-checkout
+        jdbcTemplate.update("INSERT INTO idempotency_keys (user_id, idempotency_key, request_hash, status, claim_token, " +
+                "locked_until, expires_at, created_at) SELECT id, 'key-5', ?, 'IN_PROGRESS', 'dead-node', " +
+                "DATEADD('MINUTE', -1, CURRENT_TIMESTAMP), DATEADD('DAY', 1, CURRENT_TIMESTAMP), CURRENT_TIMESTAMP " +
+                "FROM users WHERE username = 'customer'", requestHash("1 Test Street"));
+
+        OrderResponse order = idempotencyService.placeOrder("key-5", request("1 Test Street"));
+
+        assertThat(order.getId()).isNotNull();
+        assertThat(count("SELECT COUNT(*) FROM orders")).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM idempotency_keys", String.class)).isEqualTo("COMPLETED");
+        assertThat(count("SELECT COUNT(*) FROM idempotency_keys WHERE claim_token IS NULL")).isEqualTo(1);
+    }
+
+    // Same fingerprint as IdempotencyService (shipping address + payment method)
+    private static String requestHash(String shippingAddress) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest((shippingAddress + "\nCARD").getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static PlaceOrderRequest request(String shippingAddress) {
+        PlaceOrderRequest request = new PlaceOrderRequest();
+        request.setShippingAddress(shippingAddress);
+        request.setPaymentMethod("CARD");
+        return request;
+    }
+
+    private static void signIn() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "customer", null, List.of(new SimpleGrantedAuthority("CUSTOMER"))));
+    }
+
+    private void addToCart(int quantity) {
+        jdbcTemplate.update("INSERT INTO cart_items (user_id, product_id, quantity, added_at) " +
+                "SELECT id, ?, ?, CURRENT_TIMESTAMP FROM users WHERE username = 'customer'", productId, quantity);
+    }
+
+    private int stock() {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId);
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+}
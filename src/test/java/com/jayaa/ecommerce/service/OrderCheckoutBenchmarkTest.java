@@ -0,0 +1,116 @@
+package com.jayaa.ecommerce.service;
+
+import com.jayaa.ecommerce.analytics.SalesRollup;
+import com.jayaa.ecommerce.dto.PlaceOrderRequest;
+import com.jayaa.ecommerce.inventory.AvailabilityLedger;
+import com.jayaa.ecommerce.inventory.StockReservationService;
+import com.jayaa.ecommerce.inventory.StockShardService;
+import com.jayaa.ecommerce.outbox.OrderOutbox;
+import com.jayaa.ecommerce.util.CursorCodec;
+import com.jayaa.ecommerce.util.ScheduledLocks;
+import com.jayaa.ecommerce.util.SequenceAllocator;
+import com.jayaa.ecommerce.util.SkuGenerator;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.List;
+
+/**
+ * Checkout latency and Hibernate statement count for 20-line carts. Skipped by default:
+ * mvn test -Dtest=OrderCheckoutBenchmarkTest -Dbenchmark=true [-Dbenchmark.orders=2000]
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OrderService.class, StockService.class, StockShardService.class, ScheduledLocks.class,
+        StockReservationService.class, AvailabilityLedger.class, SequenceAllocator.class, SkuGenerator.class,
+        CursorCodec.class, OrderOutbox.class, SalesRollup.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class OrderCheckoutBenchmarkTest {
+
+    private static final int LINES = 20;
+    private static final int WARMUP_ORDERS = 200;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private AvailabilityLedger ledger;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        jdbcTemplate.update("DELETE FROM order_events");
+        jdbcTemplate.update("DELETE FROM sales_daily");
+        jdbcTemplate.update("DELETE FROM product_sales_daily");
+        jdbcTemplate.update("DELETE FROM order_items");
+        jdbcTemplate.update("DELETE FROM orders");
+        jdbcTemplate.update("DELETE FROM cart_items");
+        jdbcTemplate.update("DELETE FROM stock_reservations");
+        ledger.evict(jdbcTemplate.queryForList("SELECT id FROM products", Long.class));
+        jdbcTemplate.update("DELETE FROM products");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void checkoutThroughput() {
+        int orders = Integer.getInteger("benchmark.orders", 2000);
+        jdbcTemplate.update("INSERT INTO users (username, email, password, role, enabled, created_at) " +
+                "VALUES ('bench', 'bench@example.com', 'secret', 'CUSTOMER', TRUE, CURRENT_TIMESTAMP)");
+        Long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = 'bench'", Long.class);
+        jdbcTemplate.update("INSERT INTO products (name, slug, price, stock_quantity, sku, is_active, created_at, updated_at) " +
+                "SELECT CONCAT('Product ', \"X\"), CONCAT('product-', \"X\"), 9.99, 1000000, CONCAT('SKU-', \"X\"), TRUE, " +
+                "CURRENT_TIMESTAMP, CURRENT_TIMESTAMP FROM SYSTEM_RANGE(1, ?)", LINES);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "bench", null, List.of(new SimpleGrantedAuthority("CUSTOMER"))));
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        PlaceOrderRequest request = new PlaceOrderRequest();
+        request.setShippingAddress("1 Benchmark Street");
+        request.setPaymentMethod("CARD");
+
+        long elapsed = 0;
+        for (int i = 0; i < WARMUP_ORDERS + orders; i++) {
+            jdbcTemplate.update("INSERT INTO cart_items (user_id, product_id, quantity, added_at) " +
+                    "SELECT ?, id, 1, CURRENT_TIMESTAMP FROM products", userId);
+            if (i == WARMUP_ORDERS) {
+                statistics.clear();
+            }
+            long start = System.nanoTime();
+            tx.executeWithoutResult(s -> orderService.placeOrder(request));
+            if (i >= WARMUP_ORDERS) {
+                elapsed += System.nanoTime() - start;
+            }
+        }
+
+        System.out.printf("Checkout (%d lines): %,d orders, %.1f us/order, %.1f Hibernate statements/order%n",
+                LINES, orders, elapsed / 1e3 / orders, (double) statistics.getPrepareStatementCount() / orders);
+    }
+}
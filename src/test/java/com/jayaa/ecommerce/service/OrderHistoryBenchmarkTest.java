@@ -0,0 +1,181 @@
+package com.jayaa.ecommerce.service;
+
+import com.jayaa.ecommerce.analytics.SalesRollup;
+import com.jayaa.ecommerce.dto.OrderResponse;
+import com.jayaa.ecommerce.inventory.AvailabilityLedger;
+import com.jayaa.ecommerce.inventory.StockReservationService;
+import com.jayaa.ecommerce.inventory.StockShardService;
+import com.jayaa.ecommerce.model.Order;
+import com.jayaa.ecommerce.outbox.OrderOutbox;
+import com.jayaa.ecommerce.repository.OrderRepository;
+import com.jayaa.ecommerce.repository.UserRepository;
+import com.jayaa.ecommerce.util.CursorCodec;
+import com.jayaa.ecommerce.util.ScheduledLocks;
+import com.jayaa.ecommerce.util.SequenceAllocator;
+import com.jayaa.ecommerce.util.SkuGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * "My orders" page latency for customers with hundreds of orders: entity fetch plan
+ * (page of Orders + one user/items/products fetch join) vs. the projection query.
+ * Skipped by default:
+ * mvn test -Dtest=OrderHistoryBenchmarkTest -Dbenchmark=true [-Dbenchmark.orders-per-user=500]
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OrderService.class, StockService.class, StockShardService.class, ScheduledLocks.class,
+        StockReservationService.class, AvailabilityLedger.class, SequenceAllocator.class, SkuGenerator.class,
+        CursorCodec.class, OrderOutbox.class, SalesRollup.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class OrderHistoryBenchmarkTest {
+
+    private static final int USERS = 20;
+    private static final int PRODUCTS = 200;
+    private static final int ITEMS_PER_ORDER = 3;
+    private static final int PAGE_SIZE = 10;
+    private static final int WARMUP_CALLS = 2000;
+    private static final int MEASURED_CALLS = 5000;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        jdbcTemplate.update("DELETE FROM order_items");
+        jdbcTemplate.update("DELETE FROM orders");
+        jdbcTemplate.update("DELETE FROM products");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void orderHistoryLatency() {
+        int ordersPerUser = Integer.getInteger("benchmark.orders-per-user", 500);
+        generateOrders(ordersPerUser);
+        int pages = ordersPerUser / PAGE_SIZE;
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        // The pre-projection path: current user, page of entities + count, one fetch join for the details
+        Function<Pageable, Page<OrderResponse>> entities = pageable -> readOnly.execute(status -> {
+            Long userId = userRepository.findByUsername(currentUsername()).orElseThrow().getId();
+            Page<Order> orders = orderRepository.findByUserId(userId, pageable);
+            orderRepository.findWithDetailsByIdIn(orders.getContent().stream().map(Order::getId).toList());
+            return orders.map(orderService::convertToOrderResponse);
+        });
+        Function<Pageable, Page<OrderResponse>> projections = orderService::getMyOrders;
+
+        signIn("user1");
+        assertThat(projections.apply(firstPage()).getContent())
+                .usingRecursiveComparison().ignoringCollectionOrder()
+                .isEqualTo(entities.apply(firstPage()).getContent());
+
+        report("entity fetch plan", entities, pages);
+        report("projections", projections, pages);
+    }
+
+    private void report(String label, Function<Pageable, Page<OrderResponse>> listing, int pages) {
+        Random random = new Random(42);
+        long[] nanos = new long[MEASURED_CALLS];
+        for (int i = 0; i < WARMUP_CALLS + MEASURED_CALLS; i++) {
+            signIn("user" + (1 + random.nextInt(USERS)));
+            Pageable pageable = PageRequest.of(random.nextInt(pages), PAGE_SIZE, Sort.by("orderDate"));
+            long start = System.nanoTime();
+            Page<OrderResponse> page = listing.apply(pageable);
+            if (i >= WARMUP_CALLS) {
+                nanos[i - WARMUP_CALLS] = System.nanoTime() - start;
+            }
+            assertThat(page.getContent()).hasSize(PAGE_SIZE);
+        }
+        Arrays.sort(nanos);
+        System.out.printf("Order history (%s, page of %d x %d items): p50 %.0f us, p99 %.0f us, max %.0f us%n",
+                label, PAGE_SIZE, ITEMS_PER_ORDER, percentile(nanos, 0.50) / 1e3, percentile(nanos, 0.99) / 1e3,
+                nanos[nanos.length - 1] / 1e3);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static Pageable firstPage() {
+        return PageRequest.of(0, PAGE_SIZE, Sort.by("orderDate"));
+    }
+
+    private static void signIn(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                username, null, List.of(new SimpleGrantedAuthority("CUSTOMER"))));
+    }
+
+    private static String currentUsername() {
+        return SecurityContextHolder.getContext().getAuthentication().getName();
+    }
+
+    private void generateOrders(int ordersPerUser) {
+        jdbcTemplate.update("INSERT INTO users (username, email, password, full_name, role, enabled, created_at) " +
+                "SELECT CONCAT('user', \"X\"), CONCAT('user', \"X\", '@example.com'), 'secret', CONCAT('User ', \"X\"), " +
+                "'CUSTOMER', TRUE, CURRENT_TIMESTAMP FROM SYSTEM_RANGE(1, ?)", USERS);
+        long firstUserId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM users", Long.class);
+        jdbcTemplate.update("INSERT INTO products (name, slug, description, price, stock_quantity, sku, image_url, is_active, " +
+                "created_at, updated_at) SELECT CONCAT('Product ', \"X\"), CONCAT('product-', \"X\"), " +
+                "REPEAT('Long product description. ', 40), 10.00, 100, CONCAT('SKU-', \"X\"), " +
+                "CONCAT('/uploads/product-', \"X\", '.jpg'), TRUE, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP " +
+                "FROM SYSTEM_RANGE(1, ?)", PRODUCTS);
+        long firstProductId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM products", Long.class);
+
+        int orders = USERS * ordersPerUser;
+        jdbcTemplate.update("INSERT INTO orders (id, order_number, user_id, total_amount, status, shipping_address, " +
+                "payment_method, order_date) SELECT \"X\", CONCAT('ORD-', \"X\"), ? + MOD(\"X\", ?), 30.00, 'PENDING', " +
+                "'1 Benchmark Street', 'CARD', DATEADD('SECOND', \"X\", TIMESTAMP '2026-01-01 00:00:00') " +
+                "FROM SYSTEM_RANGE(1, ?)", firstUserId, USERS, orders);
+        jdbcTemplate.update("INSERT INTO order_items (id, order_id, product_id, quantity, price_at_purchase, subtotal) " +
+                "SELECT \"X\", (\"X\" - 1) / ? + 1, ? + MOD(\"X\", ?), 1, 10.00, 10.00 FROM SYSTEM_RANGE(1, ?)",
+                ITEMS_PER_ORDER, firstProductId, PRODUCTS, orders * ITEMS_PER_ORDER);
+
+        Long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_items", Long.class);
+        assertThat(total).isEqualTo((long) orders * ITEMS_PER_ORDER);
+        System.out.println("Generated " + orders + " orders for " + USERS + " users: " +
+                jdbcTemplate.queryForList("SELECT COUNT(*) FROM orders GROUP BY user_id", Long.class).stream()
+                        .distinct().map(String::valueOf).collect(Collectors.joining(", ")) + " orders each");
+    }
+}
@@ -0,0 +1,215 @@
+package com.jayaa.ecommerce.service;
+
+import com.jayaa.ecommerce.analytics.SalesRollup;
+import com.jayaa.ecommerce.dto.CursorPage;
+import com.jayaa.ecommerce.dto.OrderResponse;
+import com.jayaa.ecommerce.dto.PlaceOrderRequest;
+import com.jayaa.ecommerce.inventory.AvailabilityLedger;
+import com.jayaa.ecommerce.inventory.StockReservationService;
+import com.jayaa.ecommerce.inventory.StockShardService;
+import com.jayaa.ecommerce.outbox.OrderOutbox;
+import com.jayaa.ecommerce.model.*;
+import com.jayaa.ecommerce.util.CursorCodec;
+import com.jayaa.ecommerce.util.ScheduledLocks;
+import com.jayaa.ecommerce.util.SequenceAllocator;
+import com.jayaa.ecommerce.util.SkuGenerator;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OrderService.class, StockService.class, StockShardService.class, ScheduledLocks.class,
+        StockReservationService.class, AvailabilityLedger.class, SequenceAllocator.class, SkuGenerator.class,
+        CursorCodec.class, OrderOutbox.class, SalesRollup.class})
+class OrderServiceQueryCountTest {
+
+    private static final int ORDERS = 8;
+    private static final int ITEMS_PER_ORDER = 3;
+    private static final int PAGE_SIZE = 5;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private AvailabilityLedger ledger;
+
+    private Statistics statistics;
+    private User customer;
+    private final List<Product> products = new ArrayList<>();
+    private Long firstOrderId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        customer = new User();
+        customer.setUsername("customer");
+        customer.setEmail("customer@example.com");
+        customer.setPassword("secret");
+        customer.setRole("CUSTOMER");
+        entityManager.persist(customer);
+
+        for (int o = 1; o <= ORDERS; o++) {
+            Order order = new Order();
+            order.setOrderNumber("ORD-" + o);
+            order.setUser(customer);
+            order.setTotalAmount(BigDecimal.valueOf(30));
+            entityManager.persist(order);
+
+            for (int i = 1; i <= ITEMS_PER_ORDER; i++) {
+                Product product = new Product();
+                product.setName("Product " + o + "-" + i);
+                product.setSlug("product-" + o + "-" + i);
+                product.setPrice(BigDecimal.TEN);
+                product.setStockQuantity(5);
+                product.setSku("SKU-" + o + "-" + i);
+                entityManager.persist(product);
+                products.add(product);
+
+                OrderItem item = new OrderItem();
+                item.setOrder(order);
+                item.setProduct(product);
+                item.setQuantity(1);
+                item.setPriceAtPurchase(BigDecimal.TEN);
+                item.setSubtotal(BigDecimal.TEN);
+                entityManager.persist(item);
+            }
+            if (firstOrderId == null) {
+                firstOrderId = order.getId();
+            }
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "customer", null, List.of(new SimpleGrantedAuthority("CUSTOMER"))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static void assertFullyBuilt(List<OrderResponse> orders) {
+        assertThat(orders).allSatisfy(order -> {
+            assertThat(order.getUser().getUsername()).isEqualTo("customer");
+            assertThat(order.getItems()).hasSize(ITEMS_PER_ORDER)
+                    .allSatisfy(item -> assertThat(item.getProduct().getName()).startsWith("Product"));
+        });
+    }
+
+    @Test
+    void myOrdersPageLoadsInConstantStatements() {
+        // Same default sort as OrderController
+        Page<OrderResponse> page = orderService.getMyOrders(PageRequest.of(0, PAGE_SIZE, Sort.by("orderDate")));
+
+        assertThat(page.getContent()).hasSize(PAGE_SIZE);
+        assertThat(page.getTotalElements()).isEqualTo(ORDERS);
+        assertFullyBuilt(page.getContent());
+        // page (joined by username) + count + ONE items/products projection (was 1 + 2 per order + 1 per item)
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void myOrdersCursorLoadsInConstantStatements() {
+        CursorPage<OrderResponse> page = orderService.getMyOrdersByCursor(null, PAGE_SIZE);
+
+        assertThat(page.getContent()).hasSize(PAGE_SIZE);
+        assertFullyBuilt(page.getContent());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void adminOrdersPageLoadsInConstantStatements() {
+        Page<OrderResponse> page = orderService.getAllOrders(PageRequest.of(0, PAGE_SIZE));
+
+        assertThat(page.getContent()).hasSize(PAGE_SIZE);
+        assertFullyBuilt(page.getContent());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void ordersByStatusPageLoadsInConstantStatements() {
+        Page<OrderResponse> page = orderService.getOrdersByStatus(OrderStatus.PENDING, PageRequest.of(0, PAGE_SIZE));
+
+        assertThat(page.getContent()).hasSize(PAGE_SIZE);
+        assertFullyBuilt(page.getContent());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void orderDetailLoadsInOneStatementPlusOwnerCheck() {
+        OrderResponse order = orderService.getOrderById(firstOrderId);
+
+        assertFullyBuilt(List.of(order));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void checkoutOfTwentyLinesBatchesItsInserts() {
+        PlaceOrderRequest request = new PlaceOrderRequest();
+        request.setShippingAddress("1 Test Street");
+        request.setPaymentMethod("CARD");
+        fillCart(20);
+        orderService.placeOrder(request); // warm-up: reserves the first pooled id blocks
+
+        fillCart(20);
+        // As after a committed checkout: its StockChangedEvent evicted these products
+        ledger.evict(products.stream().map(Product::getId).toList());
+        statistics.clear();
+
+        OrderResponse order = orderService.placeOrder(request);
+        entityManager.flush();
+
+        assertThat(order.getItems()).hasSize(20);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(21);
+        // user + cart with products + holds + availability + order insert + ONE item batch + cart delete
+        // (was 126: a select per product, per-line hold upserts and ledger loads, an insert per item)
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(7);
+    }
+
+    private void fillCart(int lines) {
+        User user = entityManager.find(User.class, customer.getId());
+        for (Product product : products.subList(0, lines)) {
+            CartItem cartItem = new CartItem();
+            cartItem.setUser(user);
+            cartItem.setProduct(entityManager.find(Product.class, product.getId()));
+            cartItem.setQuantity(1);
+            entityManager.persist(cartItem);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
@@ -0,0 +1,113 @@
+package com.jayaa.ecommerce.service;
+
+import com.jayaa.ecommerce.dto.BulkProductPatchResponse;
+import com.jayaa.ecommerce.dto.ProductPatchRequest;
+import com.jayaa.ecommerce.inventory.StockShardService;
+import com.jayaa.ecommerce.model.Product;
+import com.jayaa.ecommerce.util.ScheduledLocks;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ProductBulkUpdateService.class, StockShardService.class, ScheduledLocks.class})
+class ProductBulkUpdateServiceTest {
+
+    @Autowired
+    private ProductBulkUpdateService bulkUpdateService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Product mug;
+    private Product plate;
+
+    @BeforeEach
+    void setUp() {
+        mug = persistProduct("Mug", "MUG-1");
+        plate = persistProduct("Plate", "PLATE-1");
+        entityManager.clear();
+    }
+
+    @Test
+    void appliesOnlyTheFieldsEachPatchSets() {
+        BulkProductPatchResponse report = bulkUpdateService.applyPatches(List.of(
+                patch(mug.getId(), null, new BigDecimal("12.50"), null, null),
+                patch(null, "PLATE-1", null, 0, false)));
+
+        assertThat(report.getUpdated()).isEqualTo(2);
+        assertThat(report.getFailed()).isZero();
+
+        Product updatedMug = entityManager.find(Product.class, mug.getId());
+        assertThat(updatedMug.getPrice()).isEqualByComparingTo("12.50");
+        assertThat(updatedMug.getStockQuantity()).isEqualTo(10);
+        assertThat(updatedMug.getIsActive()).isTrue();
+
+        Product updatedPlate = entityManager.find(Product.class, plate.getId());
+        assertThat(updatedPlate.getPrice()).isEqualByComparingTo("5.00");
+        assertThat(updatedPlate.getStockQuantity()).isZero();
+        assertThat(updatedPlate.getIsActive()).isFalse();
+    }
+
+    @Test
+    void reportsUnknownAndEmptyPatchesByPosition() {
+        BulkProductPatchResponse report = bulkUpdateService.applyPatches(List.of(
+                patch(999_999L, null, BigDecimal.ONE, null, null),
+                patch(null, "NOPE-1", BigDecimal.ONE, null, null),
+                patch(mug.getId(), null, null, null, null),
+                patch(null, null, BigDecimal.ONE, null, null),
+                patch(plate.getId(), null, null, 3, null)));
+
+        assertThat(report.getRequested()).isEqualTo(5);
+        assertThat(report.getUpdated()).isEqualTo(1);
+        assertThat(report.getErrors()).extracting(BulkProductPatchResponse.PatchError::getIndex)
+                .containsExactlyInAnyOrder(0, 1, 2, 3);
+    }
+
+    @Test
+    void laterPatchForTheSameProductWinsAcrossChunks() {
+        List<ProductPatchRequest> patches = new ArrayList<>();
+        for (int i = 0; i <= ProductBulkUpdateService.CHUNK_SIZE; i++) {
+            patches.add(patch(mug.getId(), null, null, i, null));
+        }
+
+        BulkProductPatchResponse report = bulkUpdateService.applyPatches(patches);
+
+        assertThat(report.getUpdated()).isEqualTo(patches.size());
+        assertThat(entityManager.find(Product.class, mug.getId()).getStockQuantity())
+                .isEqualTo(ProductBulkUpdateService.CHUNK_SIZE);
+    }
+
+    private Product persistProduct(String name, String sku) {
+        Product product = new Product();
+        product.setName(name);
+        product.setSlug(name.toLowerCase());
+        product.setDescription(name + " for the kitchen");
+        product.setPrice(new BigDecimal("5.00"));
+        product.setStockQuantity(10);
+        product.setSku(sku);
+        return entityManager.persistAndFlush(product);
+    }
+
+    private static ProductPatchRequest patch(Long id, String sku, BigDecimal price, Integer stock, Boolean active) {
+        ProductPatchRequest patch = new ProductPatchRequest();
+        patch.setId(id);
+        patch.setSku(sku);
+        patch.setPrice(price);
+        patch.setStockQuantity(stock);
+        patch.setIsActive(active);
+        return patch;
+    }
+}
@@ -0,0 +1,99 @@
+package com.jayaa.ecommerce.service;
+
+import com.jayaa.ecommerce.dto.ProductFileFormat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import java.io.OutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Export throughput on a generated catalog. Skipped by default:
+ * mvn test -Dtest=ProductExportBenchmarkTest -Dbenchmark=true [-Dbenchmark.rows=1000000]
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import(ProductExportService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ProductExportBenchmarkTest {
+
+    private static final int INSERT_CHUNK = 50_000;
+
+    @Autowired
+    private ProductExportService exportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM product_categories");
+        jdbcTemplate.update("DELETE FROM products");
+        jdbcTemplate.update("DELETE FROM categories");
+    }
+
+    @Test
+    void exportThroughput() {
+        int rows = Integer.getInteger("benchmark.rows", 1_000_000);
+        generateCatalog(rows);
+
+        for (ProductFileFormat format : ProductFileFormat.values()) {
+            CountingOutputStream out = new CountingOutputStream();
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+            long start = System.nanoTime();
+
+            long exported = exportService.export(out, format);
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+            System.out.printf("Export %s: %,d rows, %,d bytes in %.2fs = %,.0f rows/s (heap %+,d KB, not GC-adjusted)%n",
+                    format, exported, out.bytes, seconds, exported / seconds, (heapAfter - heapBefore) / 1024);
+            assertThat(exported).isEqualTo(rows);
+        }
+    }
+
+    // Autocommitted chunks: one huge H2 transaction is far slower than the export being measured
+    private void generateCatalog(int rows) {
+        jdbcTemplate.update("INSERT INTO categories (name, slug) VALUES ('Generated', 'generated')");
+        Long categoryId = jdbcTemplate.queryForObject("SELECT id FROM categories WHERE slug = 'generated'", Long.class);
+
+        for (int from = 1; from <= rows; from += INSERT_CHUNK) {
+            int to = Math.min(rows, from + INSERT_CHUNK - 1);
+            jdbcTemplate.update("INSERT INTO products (name, slug, description, price, stock_quantity, sku, is_active, created_at, updated_at) " +
+                    "SELECT CONCAT('Product ', \"X\"), CONCAT('product-', \"X\"), CONCAT('Generated product number ', \"X\"), " +
+                    "9.99, 10, CONCAT('SKU-', \"X\"), TRUE, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP FROM SYSTEM_RANGE(?, ?)", from, to);
+            jdbcTemplate.update("INSERT INTO product_categories (product_id, category_id) " +
+                    "SELECT id, ? FROM products WHERE sku IN (SELECT CONCAT('SKU-', \"X\") FROM SYSTEM_RANGE(?, ?))", categoryId, from, to);
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
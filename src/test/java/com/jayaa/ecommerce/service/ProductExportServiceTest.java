@@ -0,0 +1,111 @@
+package com.jayaa.ecommerce.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayaa.ecommerce.dto.ProductFileFormat;
+import com.jayaa.ecommerce.model.Category;
+import com.jayaa.ecommerce.model.Product;
+import com.jayaa.ecommerce.repository.ProductRatingSummaryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import(ProductExportService.class)
+class ProductExportServiceTest {
+
+    @Autowired
+    private ProductExportService exportService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ProductRatingSummaryRepository ratingSummaryRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Category audio;
+    private Category sale;
+
+    @BeforeEach
+    void setUp() {
+        audio = persistCategory("Audio");
+        sale = persistCategory("Sale");
+    }
+
+    @Test
+    void csvExportIncludesInactiveProductsCategoriesAndRatings() {
+        Product speaker = persistProduct("Speaker", "Loud, \"punchy\" speaker", true, audio, sale);
+        persistProduct("Old Radio", "Discontinued radio", false, audio);
+        persistProduct("Gift Card", "No category yet", true);
+        ratingSummaryRepository.addRating(speaker.getId(), 4);
+        ratingSummaryRepository.addRating(speaker.getId(), 5);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = exportService.export(out, ProductFileFormat.CSV);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(exported).isEqualTo(3);
+        assertThat(lines).hasSize(4);
+        assertThat(lines.get(0)).startsWith("id,name,slug,description,price,stockQuantity,sku,isActive");
+        assertThat(lines.get(1))
+                .contains(",\"Loud, \"\"punchy\"\" speaker\",")
+                .endsWith("," + Math.min(audio.getId(), sale.getId()) + "|" + Math.max(audio.getId(), sale.getId()) + ",2,4.5");
+        assertThat(lines.get(2)).contains(",false,").endsWith("," + audio.getId() + ",0,0.0");
+        assertThat(lines.get(3)).endsWith(",,0,0.0");
+    }
+
+    @Test
+    void ndjsonExportWritesOneObjectPerProduct() throws Exception {
+        persistProduct("Speaker", "Portable speaker", true, audio, sale);
+        persistProduct("Old Radio", "Discontinued radio", false, audio);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(out, ProductFileFormat.NDJSON);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(lines).hasSize(2);
+        JsonNode first = objectMapper.readTree(lines.get(0));
+        assertThat(first.get("name").asText()).isEqualTo("Speaker");
+        assertThat(first.get("categoryIds")).hasSize(2);
+        assertThat(objectMapper.readTree(lines.get(1)).get("isActive").asBoolean()).isFalse();
+    }
+
+    private Category persistCategory(String name) {
+        Category category = new Category();
+        category.setName(name);
+        category.setSlug(name.toLowerCase());
+        return entityManager.persistAndFlush(category);
+    }
+
+    private Product persistProduct(String name, String description, boolean active, Category... categories) {
+        Product product = new Product();
+        product.setName(name);
+        product.setSlug(name.toLowerCase().replace(' ', '-'));
+        product.setDescription(description);
+        product.setPrice(BigDecimal.valueOf(19.99));
+        product.setStockQuantity(5);
+        product.setSku("SKU-" + name.hashCode());
+        product.setIsActive(active);
+        product.getCategories().addAll(List.of(categories));
+        return entityManager.persistAndFlush(product);
+    }
+}
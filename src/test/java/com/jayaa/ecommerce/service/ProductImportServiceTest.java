@@ -0,0 +1,134 @@
+package com.jayaa.ecommerce.service;
+
+import com.jayaa.ecommerce.dto.ProductFileFormat;
+import com.jayaa.ecommerce.dto.ProductImportResponse;
+import com.jayaa.ecommerce.model.Category;
+import com.jayaa.ecommerce.model.Product;
+import com.jayaa.ecommerce.util.SlugAllocator;
+import com.jayaa.ecommerce.util.SlugUtil;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, ValidationAutoConfiguration.class})
+@Import({ProductImportService.class, SlugUtil.class, SlugAllocator.class})
+class ProductImportServiceTest {
+
+    @Autowired
+    private ProductImportService importService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long categoryId;
+
+    @BeforeEach
+    void setUp() {
+        Category category = new Category();
+        category.setName("Electronics");
+        category.setSlug("electronics");
+        entityManager.persist(category);
+        categoryId = category.getId();
+
+        Product existing = new Product();
+        existing.setName("Desk Lamp");
+        existing.setSlug("desk-lamp");
+        existing.setDescription("An existing desk lamp");
+        existing.setPrice(BigDecimal.TEN);
+        existing.setStockQuantity(3);
+        existing.setSku("LAMP-1");
+        existing.getCategories().add(category);
+        entityManager.persist(existing);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void csvImportsGoodRowsAndReportsBadOnes() {
+        String csv = "name,description,price,stockQuantity,sku,isActive,categoryIds\n" +
+                "Desk Lamp,\"A brighter lamp, with \"\"dimmer\"\"\",19.99,10,LAMP-2,true," + categoryId + "\n" +
+                "Desk Lamp,Same name again here,24.50,4,LAMP-3,false," + categoryId + "\n" +
+                "Old Lamp,SKU already in the catalog,5.00,1,LAMP-1,true," + categoryId + "\n" +
+                "Twin Lamp,Same SKU twice in one file,5.00,1,LAMP-2,true," + categoryId + "\n" +
+                "Ghost,Points at a missing category,5.00,1,GHOST-1,true,999999\n" +
+                "Cheap,Price is not a number,abc,1,CHEAP-1,true," + categoryId + "\n" +
+                "X,Name too short for validation,5.00,1,SHORT-1,true," + categoryId + "\n";
+
+        ProductImportResponse report = importCsv(csv);
+
+        assertThat(report.getTotalRows()).isEqualTo(7);
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getFailed()).isEqualTo(5);
+        assertThat(report.getErrors()).extracting(ProductImportResponse.RowError::getRow)
+                .containsExactlyInAnyOrder(3L, 4L, 5L, 6L, 7L);
+
+        List<Product> imported = entityManager.getEntityManager()
+                .createQuery("SELECT p FROM Product p LEFT JOIN FETCH p.categories WHERE p.sku IN ('LAMP-2', 'LAMP-3') ORDER BY p.sku", Product.class)
+                .getResultList();
+        assertThat(imported).extracting(Product::getSlug).containsExactly("desk-lamp-1", "desk-lamp-2");
+        assertThat(imported.get(0).getDescription()).isEqualTo("A brighter lamp, with \"dimmer\"");
+        assertThat(imported.get(1).getIsActive()).isFalse();
+        assertThat(imported).allSatisfy(p -> assertThat(p.getCategories()).extracting(Category::getId).containsExactly(categoryId));
+    }
+
+    @Test
+    void ndjsonBadLineDoesNotStopTheImport() {
+        String ndjson = "{\"name\":\"Headphones\",\"description\":\"Over-ear headphones\",\"price\":49.90," +
+                "\"stockQuantity\":7,\"sku\":\"HP-1\",\"categoryIds\":[" + categoryId + "]}\n" +
+                "{not json}\n" +
+                "\n" +
+                "{\"name\":\"Earbuds\",\"description\":\"Wireless earbuds\",\"price\":29.90," +
+                "\"stockQuantity\":12,\"sku\":\"EB-1\",\"categoryIds\":[" + categoryId + "]}\n";
+
+        ProductImportResponse report = importService.importProducts(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), ProductFileFormat.NDJSON);
+
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getErrors()).singleElement().satisfies(error -> assertThat(error.getRow()).isEqualTo(2));
+    }
+
+    @Test
+    void writesInAConstantNumberOfStatementsPerBatch() {
+        StringBuilder csv = new StringBuilder("name,description,price,stock_quantity,sku,category_ids\n");
+        int rows = ProductImportService.BATCH_SIZE;
+        for (int i = 0; i < rows; i++) {
+            csv.append("Gadget ").append(i).append(",Bulk imported gadget,9.99,1,GAD-").append(i).append(',').append(categoryId).append('\n');
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        ProductImportResponse report = importCsv(csv.toString());
+
+        assertThat(report.getImported()).isEqualTo(rows);
+        // category ids + existing SKUs + existing slugs; JDBC writes bypass Hibernate entirely
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    private ProductImportResponse importCsv(String csv) {
+        return importService.importProducts(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ProductFileFormat.CSV);
+    }
+}
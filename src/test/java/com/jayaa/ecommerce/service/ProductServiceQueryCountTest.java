@@ -0,0 +1,260 @@
+package com.jayaa.ecommerce.service;
+
+import com.jayaa.ecommerce.cache.ProductResponseCache;
+import com.jayaa.ecommerce.dto.CursorPage;
+import com.jayaa.ecommerce.dto.ProductResponse;
+import com.jayaa.ecommerce.dto.VersionedProduct;
+import com.jayaa.ecommerce.inventory.StockShardService;
+import com.jayaa.ecommerce.model.*;
+import com.jayaa.ecommerce.repository.ProductRatingSummaryRepository;
+import com.jayaa.ecommerce.repository.ProductRepository;
+import com.jayaa.ecommerce.util.CursorCodec;
+import com.jayaa.ecommerce.util.ScheduledLocks;
+import com.jayaa.ecommerce.util.SlugAllocator;
+import com.jayaa.ecommerce.util.SlugUtil;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.test.context.ActiveProfiles;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ProductService.class, SlugUtil.class, SlugAllocator.class, CursorCodec.class, ProductResponseCache.class,
+        StockShardService.class, ScheduledLocks.class})
+class ProductServiceQueryCountTest {
+
+    private static final int PAGE_SIZE = 12;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductRatingSummaryRepository ratingSummaryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductResponseCache productCache;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Category category = new Category();
+        category.setName("Electronics");
+        category.setSlug("electronics");
+        entityManager.persist(category);
+
+        User reviewer = new User();
+        reviewer.setUsername("reviewer");
+        reviewer.setEmail("reviewer@example.com");
+        reviewer.setPassword("secret");
+        reviewer.setRole("CUSTOMER");
+        entityManager.persist(reviewer);
+
+        for (int i = 1; i <= 20; i++) {
+            Product product = new Product();
+            product.setName("Product " + i);
+            product.setSlug("product-" + i);
+            product.setDescription("Description for product " + i);
+            product.setPrice(BigDecimal.valueOf(10 + i));
+            product.setStockQuantity(5);
+            product.setSku("SKU-" + i);
+            product.getCategories().add(category);
+            entityManager.persist(product);
+
+            Review review = new Review();
+            review.setProduct(product);
+            review.setUser(reviewer);
+            review.setRating(1 + i % 5);
+            entityManager.persist(review);
+            entityManager.flush();
+            ratingSummaryRepository.addRating(product.getId(), review.getRating());
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    void pageLoadReadsReviewStatsInOneQueryRegardlessOfPageSize() {
+        Page<ProductResponse> page = productService.getAllActiveProducts(PageRequest.of(0, PAGE_SIZE));
+
+        assertThat(page.getContent()).hasSize(PAGE_SIZE);
+        assertThat(page.getContent()).allSatisfy(response -> {
+            assertThat(response.getReviewCount()).isEqualTo(1L);
+            assertThat(response.getAverageRating()).isBetween(1.0, 5.0);
+        });
+
+        assertThat(page.getContent()).allSatisfy(response -> assertThat(response.getCategories()).hasSize(1));
+
+        // page select + count + ONE category fetch + ONE rating-summary lookup (was 1 + 3 per product)
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+    }
+
+    @Test
+    void categoryPageLoadsInConstantStatements() {
+        Long categoryId = entityManager.getEntityManager()
+                .createQuery("SELECT c.id FROM Category c", Long.class).getSingleResult();
+        statistics.clear();
+
+        Page<ProductResponse> page = productService.getProductsByCategory(categoryId, PageRequest.of(0, PAGE_SIZE));
+
+        assertThat(page.getContent()).hasSize(PAGE_SIZE);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+    }
+
+    @Test
+    void priceRangePageLoadsInConstantStatements() {
+        Page<ProductResponse> page = productService.getProductsByPriceRange(
+                BigDecimal.ZERO, BigDecimal.valueOf(1000), PageRequest.of(0, PAGE_SIZE));
+
+        assertThat(page.getContent()).hasSize(PAGE_SIZE);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+    }
+
+    @Test
+    void searchPageLoadsInConstantStatements() {
+        Page<ProductResponse> page = productService.searchProducts("product", PageRequest.of(0, PAGE_SIZE));
+
+        assertThat(page.getContent()).hasSize(PAGE_SIZE);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+    }
+
+    @Test
+    void productDetailLoadsCategoriesWithTheProduct() {
+        Long productId = ratingSummaryRepository.findAll().get(0).getProductId();
+        entityManager.clear();
+        statistics.clear();
+
+        ProductResponse product = productService.getProductById(productId);
+
+        assertThat(product.getCategories()).hasSize(1);
+        // validators, product + categories in one select, rating summary by primary key
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void sliceSkipsTheCountQuery() {
+        Slice<ProductResponse> slice = productService.getAllActiveProductsSlice(PageRequest.of(1, PAGE_SIZE));
+
+        assertThat(slice.getContent()).hasSize(20 - PAGE_SIZE);
+        assertThat(slice.hasNext()).isFalse();
+        // page select + category fetch + rating-summary lookup, no COUNT(*)
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void cursorWalksEveryProductOnceWithoutCounting() {
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<ProductResponse> page = productService.getAllActiveProductsByCursor(cursor, 7);
+            page.getContent().forEach(product -> seen.add(product.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(seen).hasSize(20).doesNotHaveDuplicates().isSorted();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3L * pages);
+    }
+
+    @Test
+    void repeatedProductLookupsAreServedFromCache() {
+        Long productId = ratingSummaryRepository.findAll().get(0).getProductId();
+        statistics.clear();
+
+        ProductResponse first = productService.getProductById(productId);
+        long queriesForFirstLoad = statistics.getPrepareStatementCount();
+        ProductResponse again = productService.getProductById(productId);
+        ProductResponse bySlug = productService.getProductBySlug(first.getSlug());
+
+        assertThat(queriesForFirstLoad).isPositive();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(queriesForFirstLoad);
+        assertThat(again).isSameAs(first);
+        assertThat(bySlug).isSameAs(first);
+    }
+
+    @Test
+    void cachedValidatorsDescribeTheCachedBody() {
+        Long productId = ratingSummaryRepository.findAll().get(0).getProductId();
+        VersionedProduct before = productService.getVersionedProductById(productId);
+        assertThat(before.getVersion().getLastModified()).isPositive();
+
+        // Not evicted yet (the change hasn't committed): body and validators stay paired
+        productRepository.setStockQuantity(productId, 4, LocalDateTime.now());
+        assertThat(productService.getVersionedProductById(productId)).isSameAs(before);
+
+        entityManager.clear();
+        productCache.clear();
+        VersionedProduct after = productService.getVersionedProductById(productId);
+        assertThat(after.getResponse().getStockQuantity()).isEqualTo(4);
+        assertThat(after.getVersion().getEtag()).isNotEqualTo(before.getVersion().getEtag());
+    }
+
+    @Test
+    void productVersionMovesWithEveryWriteInTheSameSecond() {
+        Long productId = ratingSummaryRepository.findAll().get(0).getProductId();
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        Set<String> etags = new HashSet<>();
+
+        for (int quantity = 4; quantity >= 2; quantity--) {
+            productRepository.setStockQuantity(productId, quantity, now);
+            entityManager.clear();
+            productCache.clear();
+            etags.add(productService.getVersionedProductById(productId).getVersion().getEtag());
+        }
+        ratingSummaryRepository.addRating(productId, 4);
+        entityManager.clear();
+        productCache.clear();
+        etags.add(productService.getVersionedProductById(productId).getVersion().getEtag());
+
+        assertThat(etags).hasSize(4);
+    }
+
+    @Test
+    void ratingSummaryTracksAddsAndRemovals() {
+        Long productId = ratingSummaryRepository.findAll().get(0).getProductId();
+
+        ratingSummaryRepository.addRating(productId, 5);
+        ratingSummaryRepository.addRating(productId, 5);
+        ratingSummaryRepository.removeRating(productId, 5);
+        entityManager.clear();
+
+        ProductRatingSummary summary = ratingSummaryRepository.findById(productId).orElseThrow();
+        assertThat(summary.getReviewCount()).isEqualTo(2L);
+        assertThat(summary.getRating5()).isGreaterThanOrEqualTo(1L);
+        assertThat(summary.getVersion()).isEqualTo(4L);
+    }
+}
@@ -0,0 +1,189 @@
+package com.jayaa.ecommerce.service;
+
+import com.jayaa.ecommerce.exception.InsufficientStockException;
+import com.jayaa.ecommerce.inventory.StockShardService;
+import com.jayaa.ecommerce.model.Product;
+import com.jayaa.ecommerce.repository.ProductRepository;
+import com.jayaa.ecommerce.util.ScheduledLocks;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Real commits from many threads, so no test-managed transaction
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({StockService.class, StockShardService.class, ScheduledLocks.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int CHECKOUTS = 400;
+    private static final int SCARCE_STOCK = 300;
+    private static final int PLENTIFUL_STOCK = 10_000;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockShardService stockShardService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private long scarceId;
+    private long plentifulId;
+
+    @BeforeEach
+    void setUp() {
+        scarceId = insertProduct("SCARCE", SCARCE_STOCK);
+        plentifulId = insertProduct("PLENTY", PLENTIFUL_STOCK);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM product_stock_shards");
+        jdbcTemplate.update("DELETE FROM products");
+    }
+
+    @Test
+    void concurrentCheckoutsNeverOversell() throws Exception {
+        int succeeded = runConcurrentCheckouts(Set.of());
+
+        assertThat(succeeded).isEqualTo(SCARCE_STOCK);
+        assertThat(stock(scarceId)).isZero();
+        // A rejected checkout gives back the lines it had already taken
+        assertThat(stock(plentifulId)).isEqualTo(PLENTIFUL_STOCK - 2 * SCARCE_STOCK);
+    }
+
+    @Test
+    void concurrentCheckoutsOnShardedStockNeverOversell() throws Exception {
+        stockShardService.reshard(scarceId, 8);
+
+        int succeeded = runConcurrentCheckouts(Set.of(scarceId));
+
+        assertThat(succeeded).isEqualTo(SCARCE_STOCK);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT SUM(quantity) FROM product_stock_shards WHERE product_id = ?", Integer.class, scarceId)).isZero();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT MIN(quantity) FROM product_stock_shards WHERE product_id = ?", Integer.class, scarceId)).isZero();
+        assertThat(stock(plentifulId)).isEqualTo(PLENTIFUL_STOCK - 2 * SCARCE_STOCK);
+    }
+
+    // Returns the number of checkouts that went through; the others must fail on stock
+    private int runConcurrentCheckouts(Set<Long> shardedProductIds) throws Exception {
+        TransactionTemplate checkout = new TransactionTemplate(transactionManager);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < CHECKOUTS; i++) {
+            // Half the carts list the products in the opposite order: must not deadlock
+            Map<Long, Integer> cart = new LinkedHashMap<>();
+            if (i % 2 == 0) {
+                cart.put(scarceId, 1);
+                cart.put(plentifulId, 2);
+            } else {
+                cart.put(plentifulId, 2);
+                cart.put(scarceId, 1);
+            }
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    checkout.executeWithoutResult(status -> stockService.decrement(cart, shardedProductIds));
+                    succeeded.incrementAndGet();
+                } catch (InsufficientStockException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertThat(succeeded.get() + rejected.get()).isEqualTo(CHECKOUTS);
+        return succeeded.get();
+    }
+
+    @Test
+    void savingAProductLoadedBeforeACheckoutKeepsTheDecrement() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            Product product = productRepository.findById(scarceId).orElseThrow();
+            // A checkout commits between the admin's read and save
+            CompletableFuture.runAsync(() -> new TransactionTemplate(transactionManager).executeWithoutResult(
+                    checkout -> stockService.decrement(Map.of(scarceId, 10)))).join();
+            product.setImageUrl("/uploads/scarce.jpg");
+            productRepository.saveAndFlush(product);
+        });
+
+        assertThat(stock(scarceId)).isEqualTo(SCARCE_STOCK - 10);
+    }
+
+    @Test
+    void shortfallOnOneLineRollsBackTheOthers() {
+        TransactionTemplate checkout = new TransactionTemplate(transactionManager);
+
+        Throwable failure = catchFailure(() -> checkout.executeWithoutResult(status ->
+                stockService.decrement(Map.of(scarceId, SCARCE_STOCK + 1, plentifulId, 5))));
+
+        assertThat(failure).isInstanceOf(InsufficientStockException.class)
+                .hasMessageContaining("Available: " + SCARCE_STOCK);
+        assertThat(stock(plentifulId)).isEqualTo(PLENTIFUL_STOCK);
+    }
+
+    private static Throwable catchFailure(Runnable action) {
+        try {
+            action.run();
+            return null;
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    private long insertProduct(String sku, int stock) {
+        jdbcTemplate.update("INSERT INTO products (name, slug, description, price, stock_quantity, sku, is_active) " +
+                "VALUES (?, ?, 'Stress test product', 1.00, ?, ?, TRUE)", sku, sku.toLowerCase(), stock, sku);
+        return jdbcTemplate.queryForObject("SELECT id FROM products WHERE sku = ?", Long.class, sku);
+    }
+
+    private int stock(long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId);
+    }
+}
@@ -0,0 +1,129 @@
+package com.jayaa.ecommerce.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Blocks are reserved in their own committed transactions
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SequenceAllocatorTest {
+
+    private static final int BLOCK_SIZE = 10;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM sequences");
+    }
+
+    @Test
+    void twoNodesHandOutUniqueNumbersUnderContention() throws Exception {
+        // Two allocators = two application nodes sharing one sequences table
+        List<SequenceAllocator> nodes = List.of(
+                new SequenceAllocator(jdbcTemplate, transactionManager, BLOCK_SIZE),
+                new SequenceAllocator(jdbcTemplate, transactionManager, BLOCK_SIZE));
+        int threads = 16;
+        int perThread = 250;
+        Set<Long> issued = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            SequenceAllocator node = nodes.get(t % 2);
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    if (!issued.add(node.next("order_number:2030", () -> 1L))) {
+                        duplicates.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertThat(duplicates.get()).isZero();
+        assertThat(issued).hasSize(threads * perThread);
+        // At most a partly used block and a prefetched one per node
+        long reserved = jdbcTemplate.queryForObject(
+                "SELECT next_value FROM sequences WHERE name = 'order_number:2030'", Long.class) - 1;
+        assertThat(reserved).isBetween((long) threads * perThread, (long) threads * perThread + 4 * BLOCK_SIZE);
+    }
+
+    @Test
+    void newCounterStartsFromTheSuppliedFirstValueOnce() {
+        SequenceAllocator node = new SequenceAllocator(jdbcTemplate, transactionManager, BLOCK_SIZE);
+        AtomicInteger seeded = new AtomicInteger();
+
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            values.add(node.next("order_number:2031", () -> {
+                seeded.incrementAndGet();
+                return 46L;
+            }));
+        }
+
+        assertThat(seeded.get()).isEqualTo(1);
+        assertThat(values.get(0)).isEqualTo(46L);
+        assertThat(values).doesNotHaveDuplicates().isSorted();
+        assertThat(values.get(24)).isEqualTo(70L);
+    }
+
+    @Test
+    void nextBlockIsReservedAheadOnAnotherThread() throws Exception {
+        SequenceAllocator node = new SequenceAllocator(jdbcTemplate, transactionManager, BLOCK_SIZE);
+        Set<Thread> seeders = ConcurrentHashMap.newKeySet();
+
+        for (int i = 0; i < BLOCK_SIZE / 2 + 1; i++) {
+            node.next("order_number:2032", () -> {
+                seeders.add(Thread.currentThread());
+                return 1L;
+            });
+        }
+
+        // Half the first block is used: the second one is reserved without waiting for exhaustion
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (nextValue("order_number:2032") != 1 + 2 * BLOCK_SIZE && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(nextValue("order_number:2032")).isEqualTo(1 + 2 * BLOCK_SIZE);
+        assertThat(seeders).singleElement().isNotEqualTo(Thread.currentThread());
+    }
+
+    private long nextValue(String name) {
+        return jdbcTemplate.queryForObject("SELECT next_value FROM sequences WHERE name = ?", Long.class, name);
+    }
+}
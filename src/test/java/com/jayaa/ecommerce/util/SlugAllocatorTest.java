@@ -0,0 +1,99 @@
+package com.jayaa.ecommerce.util;
+
+import com.jayaa.ecommerce.model.Category;
+import com.jayaa.ecommerce.model.Product;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({SlugAllocator.class, SlugUtil.class})
+class SlugAllocatorTest {
+
+    @Autowired
+    private SlugAllocator slugAllocator;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        for (String slug : new String[]{"t-shirt", "t-shirt-1", "t-shirt-3", "t-shirt-blue"}) {
+            Product product = new Product();
+            product.setName(slug);
+            product.setSlug(slug);
+            product.setPrice(BigDecimal.TEN);
+            product.setStockQuantity(1);
+            product.setSku("SKU-" + slug);
+            entityManager.persist(product);
+        }
+
+        Category category = new Category();
+        category.setName("Shoes");
+        category.setSlug("shoes");
+        entityManager.persist(category);
+
+        entityManager.flush();
+        statistics.clear();
+    }
+
+    @Test
+    void picksSmallestFreeSuffixWithOneQueryPerBase() {
+        String base = slugAllocator.baseSlug(SlugAllocator.Scope.PRODUCT, "T-Shirt");
+
+        assertThat(slugAllocator.allocate(SlugAllocator.Scope.PRODUCT, base)).isEqualTo("t-shirt-2");
+        assertThat(slugAllocator.allocate(SlugAllocator.Scope.PRODUCT, base)).isEqualTo("t-shirt-4");
+        assertThat(slugAllocator.allocate(SlugAllocator.Scope.PRODUCT, base)).isEqualTo("t-shirt-5");
+
+        // the 50th T-Shirt no longer costs 50 round trips
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void scopesAreIndependent() {
+        assertThat(slugAllocator.allocate(SlugAllocator.Scope.CATEGORY, "shoes")).isEqualTo("shoes-1");
+        assertThat(slugAllocator.allocate(SlugAllocator.Scope.CATEGORY, "t-shirt")).isEqualTo("t-shirt");
+    }
+
+    @Test
+    void renamedAndDeletedSlugsAreFreedAgain() {
+        for (String slug : new String[]{"hoodie", "hoodie-1", "hoodie-2"}) {
+            Product product = new Product();
+            product.setName(slug);
+            product.setSlug(slug);
+            product.setPrice(BigDecimal.TEN);
+            product.setStockQuantity(1);
+            product.setSku("SKU-" + slug);
+            entityManager.persist(product);
+        }
+        entityManager.flush();
+        assertThat(slugAllocator.allocate(SlugAllocator.Scope.PRODUCT, "hoodie")).isEqualTo("hoodie-3");
+
+        // "hoodie-2" is renamed to "sweater"; "hoodie-1" is deleted in the (still open) test transaction
+        slugAllocator.saveWithUniqueSlug(SlugAllocator.Scope.PRODUCT, "Sweater", "hoodie-2", slug -> slug);
+        slugAllocator.releaseAfterCommit(SlugAllocator.Scope.PRODUCT, "hoodie-1");
+
+        assertThat(slugAllocator.allocate(SlugAllocator.Scope.PRODUCT, "hoodie")).isEqualTo("hoodie-2");
+        assertThat(slugAllocator.allocate(SlugAllocator.Scope.PRODUCT, "hoodie")).isEqualTo("hoodie-4");
+    }
+}